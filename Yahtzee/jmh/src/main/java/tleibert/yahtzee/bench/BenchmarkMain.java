@@ -0,0 +1,79 @@
+package tleibert.yahtzee.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Runs the benchmarks with the GC profiler always on, so every result
+ * reports the bytes allocated per op next to the throughput. The hot paths
+ * of the game are meant to allocate nothing, and gc.alloc.rate.norm is
+ * what shows it.
+ *
+ * Takes the same arguments as JMH's own launcher: benchmarks whose names
+ * match any of the regexes given are run, or all of them if none is, and
+ * options such as -f, -wi or -i are passed through.
+ *
+ * @author Trevor Leibert
+ */
+public final class BenchmarkMain {
+
+    /** regex matching every benchmark */
+    private static final String ALL = ".*";
+
+    /**
+     * BenchmarkMain only has static members.
+     */
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args regexes of the benchmarks to run, and JMH options
+     * @throws CommandLineOptionException if an option is invalid
+     * @throws RunnerException if a benchmark fails
+     * @throws IOException if the help cannot be printed
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(ALL);
+        }
+        if (!hasGcProfiler(commandLine)) {
+            options.addProfiler(GCProfiler.class);
+        }
+        Runner runner = new Runner(options.build());
+        if (commandLine.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+
+    /**
+     * Returns whether the GC profiler was asked for already, with -prof gc,
+     * so it is not added twice.
+     * @param commandLine the parsed arguments
+     * @return whether the GC profiler is on
+     */
+    private static boolean hasGcProfiler(CommandLineOptions commandLine) {
+        for (ProfilerConfig profiler : commandLine.getProfilers()) {
+            if ("gc".equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package tleibert.yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tleibert.yahtzee.model.BulkScorer;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Compares scoring hands in all 13 scoring types one at a time through
+ * ScoreCard with scoring them in bulk through {@link BulkScorer}. Every
+ * benchmark scores the same hands, and one op is one hand scored in
+ * every type.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BulkScoringBenchmarks {
+
+    /** number of hands scored by one call */
+    private static final int HANDS = 4096;
+
+    /** the hands */
+    private final DiceBlock[] hands = new DiceBlock[HANDS];
+
+    /** the hands, packed */
+    private final long[] packed = new long[HANDS];
+
+    /** points of each hand in each type, one row per hand */
+    private final int[] rows = new int[HANDS * ScoreTable.NUM_CATEGORIES];
+
+    /** points of each hand in each type, one column per type */
+    private final int[][] columns = new int[ScoreTable.NUM_CATEGORIES][HANDS];
+
+    /** card the hands are scored on one at a time */
+    private final ScoreCard card = new ScoreCard();
+
+    /**
+     * Rolls the hands.
+     */
+    @Setup
+    public void setUp() {
+        RandomSource rand = new SeededRandomSource(42);
+        for (int i = 0; i < HANDS; i++) {
+            hands[i] = new DiceBlock(rand);
+            hands[i].initialRoll();
+            packed[i] = hands[i].getPacked();
+        }
+    }
+
+    /**
+     * Scores every hand in every type on a fresh ScoreCard.
+     * @param blackhole consumes the points
+     */
+    @Benchmark
+    @OperationsPerInvocation(HANDS)
+    public void scoreCard(Blackhole blackhole) {
+        for (DiceBlock hand : hands) {
+            for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+                card.reset();
+                blackhole.consume(card.score(hand, type));
+            }
+        }
+    }
+
+    /**
+     * Scores every hand into rows.
+     * @return the rows
+     */
+    @Benchmark
+    @OperationsPerInvocation(HANDS)
+    public int[] bulkScore() {
+        BulkScorer.score(packed, 0, HANDS, rows, 0);
+        return rows;
+    }
+
+    /**
+     * Scores every hand into columns.
+     * @return the columns
+     */
+    @Benchmark
+    @OperationsPerInvocation(HANDS)
+    public int[][] bulkScoreColumns() {
+        BulkScorer.scoreColumns(packed, 0, HANDS, columns, 0);
+        return columns;
+    }
+}
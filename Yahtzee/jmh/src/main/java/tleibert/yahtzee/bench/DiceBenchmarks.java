@@ -0,0 +1,156 @@
+package tleibert.yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+import tleibert.yahtzee.model.dice.SplittableRandomSource;
+import tleibert.yahtzee.model.dice.ThreadLocalRandomSource;
+
+/**
+ * Benchmarks of rolling and tallying dice.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DiceBenchmarks {
+
+    /** number of different hands the tally benchmarks cycle through */
+    private static final int NUM_HANDS = 1024;
+
+    /** die rolled by roll */
+    private final Die die = new Die();
+
+    /** dice rolled by the roll benchmarks */
+    private final DiceBlock dice = new DiceBlock();
+
+    /** kept dice of rollSelected */
+    private final boolean[] selected = {true, false, true, false, true};
+
+    /** rolled hands the tally benchmarks cycle through */
+    private final DiceBlock[] hands = new DiceBlock[NUM_HANDS];
+
+    /** index of the next hand */
+    private int next;
+
+    /**
+     * Rolls the hands.
+     */
+    @Setup
+    public void setUp() {
+        RandomSource rand = new SeededRandomSource(42);
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = new DiceBlock(rand);
+            hands[i].initialRoll();
+        }
+        dice.initialRoll();
+    }
+
+    /**
+     * Rolls one die.
+     * @return the value rolled
+     */
+    @Benchmark
+    public int dieRoll() {
+        die.roll();
+        return die.getValue();
+    }
+
+    /**
+     * Draws one face from a random source.
+     * @param source the random source
+     * @return the face drawn
+     */
+    @Benchmark
+    public int nextFace(Source source) {
+        return source.random.nextFace();
+    }
+
+    /**
+     * Rolls all five dice.
+     * @return the packed dice
+     */
+    @Benchmark
+    public long initialRoll() {
+        dice.initialRoll();
+        return dice.getPacked();
+    }
+
+    /**
+     * Rerolls two of the dice.
+     * @return the packed dice
+     */
+    @Benchmark
+    public long rollSelected() {
+        dice.rollSelected(selected);
+        return dice.getPacked();
+    }
+
+    /**
+     * Tallies a hand.
+     * @return the tally
+     */
+    @Benchmark
+    public int[] getTally() {
+        return hands[next++ & (NUM_HANDS - 1)].getTally();
+    }
+
+    /**
+     * Sums a hand.
+     * @return the sum
+     */
+    @Benchmark
+    public int getSumOfDice() {
+        return hands[next++ & (NUM_HANDS - 1)].getSumOfDice();
+    }
+
+    /**
+     * The random source drawn from by nextFace, one benchmark per kind.
+     */
+    @State(Scope.Thread)
+    public static class Source {
+
+        /** kind of random source */
+        @Param({"ThreadLocalRandomSource", "SplittableRandomSource", "SeededRandomSource"})
+        public String kind;
+
+        /** the random source */
+        private RandomSource random;
+
+        /**
+         * Makes the random source.
+         */
+        @Setup
+        public void setUp() {
+            switch (kind) {
+                case "SplittableRandomSource" :
+                    random = new SplittableRandomSource(42);
+                    break;
+                case "SeededRandomSource" :
+                    random = new SeededRandomSource(42);
+                    break;
+                default :
+                    random = ThreadLocalRandomSource.INSTANCE;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package tleibert.yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Benchmarks of taking turns in a game and reading its results.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameBenchmarks {
+
+    /** number of different hands the benchmarks cycle through */
+    private static final int NUM_HANDS = 1024;
+
+    /** rolled hands the benchmarks cycle through */
+    private final DiceBlock[] hands = new DiceBlock[NUM_HANDS];
+
+    /** game takeTurn plays, replaced once it is over */
+    private YahtzeeGame game;
+
+    /** finished game with the most players */
+    private YahtzeeGame played;
+
+    /** index of the next hand */
+    private int next;
+
+    /**
+     * Rolls the hands and plays a game to the end.
+     */
+    @Setup
+    public void setUp() {
+        RandomSource rand = new SeededRandomSource(42);
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = new DiceBlock(rand);
+            hands[i].initialRoll();
+        }
+        game = new YahtzeeGame(YahtzeeGame.MIN_PLAYERS);
+        played = new YahtzeeGame(YahtzeeGame.MAX_PLAYERS);
+        for (int i = 0; !played.getIsOver(); i++) {
+            played.takeTurn(hands[i], i % ScoreTable.NUM_CATEGORIES);
+        }
+    }
+
+    /**
+     * Takes one turn, starting a new game when the last one ends.
+     * @return the points scored
+     */
+    @Benchmark
+    public int takeTurn() {
+        if (game.getIsOver()) {
+            game = new YahtzeeGame(YahtzeeGame.MIN_PLAYERS);
+        }
+        int i = next++ & Integer.MAX_VALUE;
+        return game.takeTurn(hands[i & (NUM_HANDS - 1)], i % ScoreTable.NUM_CATEGORIES);
+    }
+
+    /**
+     * Reads the scores of a finished game.
+     * @return the scores
+     */
+    @Benchmark
+    public int[] getScores() {
+        return played.getScores();
+    }
+
+    /**
+     * Finds the winner of a finished game.
+     * @return the winner
+     */
+    @Benchmark
+    public int getWinner() {
+        return played.getWinner();
+    }
+}
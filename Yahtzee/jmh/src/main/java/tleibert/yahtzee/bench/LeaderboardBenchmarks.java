@@ -0,0 +1,117 @@
+package tleibert.yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tleibert.yahtzee.model.Leaderboard;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Benchmarks of the leaderboard of a battle royale game.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class LeaderboardBenchmarks {
+
+    /** number of players on the leaderboard */
+    private static final int PLAYERS = 10_000;
+
+    /** number of players listed by getTop */
+    private static final int TOP_K = 10;
+
+    /** highest score given to a player */
+    private static final int SCORE_RANGE = ScoreCard.MAX_SCORE / 4;
+
+    /** the leaderboard */
+    private final Leaderboard leaderboard = new Leaderboard(PLAYERS);
+
+    /** a leaderboard on which every player is tied, as at the start of a game */
+    private final Leaderboard tied = new Leaderboard(PLAYERS);
+
+    /** players listed by getTop */
+    private final int[] top = new int[TOP_K];
+
+    /** next player to update or rank */
+    private int next;
+
+    /**
+     * Gives every player a random score.
+     */
+    @Setup
+    public void setUp() {
+        RandomSource rand = new SeededRandomSource(42);
+        for (int player = 0; player < PLAYERS; player++) {
+            leaderboard.update(player, rand.nextInt(SCORE_RANGE));
+        }
+    }
+
+    /**
+     * Moves one player up the board, wrapping around at the top.
+     * @return the player moved
+     */
+    @Benchmark
+    public int update() {
+        int player = next;
+        next = (next + 1) % PLAYERS;
+        leaderboard.update(player, (leaderboard.getScore(player) + 7) % SCORE_RANGE);
+        return player;
+    }
+
+    /**
+     * Finds the rank of one player.
+     * @return the rank
+     */
+    @Benchmark
+    public int getRank() {
+        int player = next;
+        next = (next + 1) % PLAYERS;
+        return leaderboard.getRank(player);
+    }
+
+    /**
+     * Lists the top players.
+     * @return the top players
+     */
+    @Benchmark
+    public int[] getTop() {
+        leaderboard.getTop(TOP_K, top);
+        return top;
+    }
+
+    /**
+     * Finds the winner of a tie between every player.
+     * @return the lowest numbered leader
+     */
+    @Benchmark
+    public int getLowestLeaderTied() {
+        return tied.getLowestLeader();
+    }
+
+    /**
+     * Lists the first leaders of a tie between every player.
+     * @return the listed leaders
+     */
+    @Benchmark
+    public int[] getLeadersTied() {
+        tied.getLeaders(top);
+        return top;
+    }
+}
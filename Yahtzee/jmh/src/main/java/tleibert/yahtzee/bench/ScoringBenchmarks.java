@@ -0,0 +1,94 @@
+package tleibert.yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Benchmarks of scoring one hand on a ScoreCard, in each scoring type and
+ * in all of them at once.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ScoringBenchmarks {
+
+    /** number of different hands the benchmarks cycle through */
+    private static final int NUM_HANDS = 1024;
+
+    /** card the hands are scored on */
+    private final ScoreCard card = new ScoreCard();
+
+    /** points filled in by evaluate */
+    private final int[] points = new int[ScoreTable.NUM_CATEGORIES];
+
+    /** rolled hands the benchmarks cycle through */
+    private final DiceBlock[] hands = new DiceBlock[NUM_HANDS];
+
+    /** index of the next hand */
+    private int next;
+
+    /**
+     * Rolls the hands.
+     */
+    @Setup
+    public void setUp() {
+        RandomSource rand = new SeededRandomSource(42);
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = new DiceBlock(rand);
+            hands[i].initialRoll();
+        }
+    }
+
+    /**
+     * Scores a hand in one scoring type.
+     * @param type the scoring type
+     * @return the points scored
+     */
+    @Benchmark
+    public int score(Type type) {
+        return card.score(hands[next++ & (NUM_HANDS - 1)], type.scoringType);
+    }
+
+    /**
+     * Finds the points of a hand in every scoring type without scoring it.
+     * @return the points of each type
+     */
+    @Benchmark
+    public int[] evaluate() {
+        card.evaluate(hands[next++ & (NUM_HANDS - 1)], points);
+        return points;
+    }
+
+    /**
+     * The scoring type scored by score, one benchmark per type.
+     */
+    @State(Scope.Thread)
+    public static class Type {
+
+        /** the scoring type */
+        @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12"})
+        public int scoringType;
+    }
+}
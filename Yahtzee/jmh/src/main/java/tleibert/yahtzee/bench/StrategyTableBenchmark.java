@@ -0,0 +1,90 @@
+package tleibert.yahtzee.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tleibert.yahtzee.engine.StateSpace;
+import tleibert.yahtzee.engine.StrategyFile;
+import tleibert.yahtzee.engine.StrategySolver;
+import tleibert.yahtzee.engine.StrategyTable;
+import tleibert.yahtzee.engine.TurnSolver;
+
+/**
+ * Measures how long it takes to get a {@link StrategyTable} ready to advise:
+ * mapping it from a strategy file, reading it into the heap, or solving it
+ * from scratch. Each measurement ends with one solved turn, so the time
+ * covers everything up to the first piece of advice.
+ *
+ * Every fork measures one cold start. The strategy file is solved and
+ * written first if it does not exist; pass {@code -p path=...} to use
+ * another file, and {@code -wi 5} to see the warm numbers.
+ *
+ * @author Trevor Leibert
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StrategyTableBenchmark {
+
+    /** strategy file to load */
+    @Param("strategy.bin")
+    public String path;
+
+    /** how the table is made ready: mmap, heap or solve */
+    @Param({"mmap", "heap", "solve"})
+    public String mode;
+
+    /**
+     * Solves and writes the strategy file if it does not exist.
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            StrategyFile.write(StrategySolver.solve(), file);
+        }
+    }
+
+    /**
+     * Loads or solves a table and solves the first turn of a game with it.
+     * @return the expected score of a game
+     * @throws IOException if the strategy file cannot be read
+     */
+    @Benchmark
+    public double firstAdvice() throws IOException {
+        StrategyTable table;
+        switch (mode) {
+            case "mmap" :
+                table = StrategyFile.map(Paths.get(path));
+                break;
+            case "heap" :
+                table = StrategyFile.read(Paths.get(path));
+                break;
+            case "solve" :
+                table = StrategySolver.solve();
+                break;
+            default :
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        return new TurnSolver(table).solve(StateSpace.index(0, 0, false, 0));
+    }
+}
@@ -0,0 +1,65 @@
+package tleibert.yahtzee.engine;
+
+import tleibert.yahtzee.model.dice.HandIndex;
+import tleibert.yahtzee.model.dice.RerollTable;
+
+/**
+ * Reroll structure used by the {@link TurnSolver}, on top of the keeps and
+ * outcomes of {@link RerollTable}: for every keep, the keeps with one die
+ * more or one die less, and the link between five dice keeps and hands.
+ *
+ * @author Trevor Leibert
+ */
+final class KeepTable {
+
+    /** number of distinct multisets of zero to five dice */
+    static final int NUM_KEEPS = RerollTable.NUM_KEEPS;
+
+    /** keeps of fewer than five dice have ids below this, and all five dice keeps are at or above it */
+    static final int FIRST_FULL_KEEP = RerollTable.FIRST_FULL_KEEP;
+
+    /** keep id of each keep plus one more die showing each value, six entries per keep below FIRST_FULL_KEEP */
+    static final int[] KEEP_PLUS = new int[FIRST_FULL_KEEP * 6];
+
+    /** first smaller keep of each keep, the smaller keeps of keep k end at KEEP_MINUS_START[k + 1] */
+    static final int[] KEEP_MINUS_START = new int[NUM_KEEPS + 1];
+
+    /** keep ids of each keep with one die taken away, one entry per distinct value in the keep */
+    static final int[] KEEP_MINUS;
+
+    /** hand id of each five dice keep, indexed by keep id - FIRST_FULL_KEEP */
+    static final int[] FULL_KEEP_HAND = new int[HandIndex.NUM_HANDS];
+
+    /** keep id of holding every die of each hand */
+    static final int[] HAND_KEEP = new int[HandIndex.NUM_HANDS];
+
+    static {
+        int[] minus = new int[NUM_KEEPS * 6];
+        int m = 0;
+        for (int keep = 0; keep < NUM_KEEPS; keep++) {
+            int key = RerollTable.tallyKey(keep);
+            KEEP_MINUS_START[keep] = m;
+            for (int face = 1; face <= 6; face++) {
+                if (keep < FIRST_FULL_KEEP) {
+                    KEEP_PLUS[keep * 6 + face - 1] = RerollTable.keepId(key + HandIndex.faceKey(face));
+                }
+                if (RerollTable.count(keep, face) > 0) {
+                    minus[m++] = RerollTable.keepId(key - HandIndex.faceKey(face));
+                }
+            }
+            if (keep >= FIRST_FULL_KEEP) {
+                FULL_KEEP_HAND[keep - FIRST_FULL_KEEP] = HandIndex.idOf(key);
+                HAND_KEEP[HandIndex.idOf(key)] = keep;
+            }
+        }
+        KEEP_MINUS_START[NUM_KEEPS] = m;
+        KEEP_MINUS = new int[m];
+        System.arraycopy(minus, 0, KEEP_MINUS, 0, m);
+    }
+
+    /**
+     * KeepTable only has static members.
+     */
+    private KeepTable() {
+    }
+}
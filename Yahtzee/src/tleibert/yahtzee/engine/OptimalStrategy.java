@@ -0,0 +1,56 @@
+package tleibert.yahtzee.engine;
+
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.Strategy;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * Plays the strategy of a {@link StrategyTable}, which maximizes the
+ * expected final score of a single ScoreCard. The turn of the current
+ * state is solved on its first decision and reused for the rest of the
+ * turn, into arrays allocated once, so deciding allocates nothing.
+ * An OptimalStrategy is used by one thread at a time; the table can be
+ * shared by any number of them.
+ *
+ * @author Trevor Leibert
+ */
+public class OptimalStrategy implements Strategy {
+
+    /** solves the turns of the states played */
+    private final TurnSolver solver;
+
+    /** state index the solver last solved, or -1 */
+    private int solvedIndex = -1;
+
+    /**
+     * Constructs an OptimalStrategy.
+     * @param table values of every state
+     */
+    public OptimalStrategy(StrategyTable table) {
+        solver = new TurnSolver(table);
+    }
+
+    @Override
+    public int chooseKeep(long dice, int rerolls, long cardState) {
+        solve(cardState);
+        return solver.bestKeep(rerolls, dice);
+    }
+
+    @Override
+    public int chooseScoringType(long dice, long cardState) {
+        solve(cardState);
+        return solver.bestCategory(PackedDice.canonicalId(dice));
+    }
+
+    /**
+     * Solves the turn of a ScoreCard, unless it is already solved.
+     * @param cardState the ScoreCard, see {@link CardState}
+     */
+    private void solve(long cardState) {
+        int index = StateSpace.index(cardState);
+        if (index != solvedIndex) {
+            solver.solve(index);
+            solvedIndex = index;
+        }
+    }
+}
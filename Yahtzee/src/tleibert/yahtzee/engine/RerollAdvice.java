@@ -0,0 +1,109 @@
+package tleibert.yahtzee.engine;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+
+/**
+ * The answer of a {@link RerollAdvisor}: every distinct choice of dice to
+ * keep, best first, with the final score each is expected to lead to.
+ * Keep masks that hold the same values, such as keeping either of two
+ * fives, are one choice, listed under one of their masks. Keeping every
+ * die means not rolling again.
+ *
+ * @author Trevor Leibert
+ */
+public final class RerollAdvice {
+
+    /** number of keep masks of five dice */
+    private static final int NUM_MASKS = 1 << DiceBlock.NUM_DICE;
+
+    /** one keep mask for each choice, best first */
+    private final int[] keepMasks;
+
+    /** expected final score of each choice */
+    private final double[] values;
+
+    /** choice made by each of the 32 keep masks */
+    private final int[] choiceOfMask;
+
+    /**
+     * Constructs a RerollAdvice.
+     * @param keepMasks one keep mask for each choice, best first
+     * @param values expected final score of each choice
+     * @param choiceOfMask choice made by each of the 32 keep masks
+     */
+    RerollAdvice(int[] keepMasks, double[] values, int[] choiceOfMask) {
+        this.keepMasks = keepMasks;
+        this.values = values;
+        this.choiceOfMask = choiceOfMask;
+    }
+
+    /**
+     * Returns the dice to keep to get the highest expected score.
+     * @return keep mask with bit i set if die i should be kept
+     */
+    public int getBestKeepMask() {
+        return keepMasks[0];
+    }
+
+    /**
+     * Returns the expected final score of the best choice.
+     * @return the expected final score
+     */
+    public double getBestValue() {
+        return values[0];
+    }
+
+    /**
+     * Returns the number of distinct choices.
+     * @return number of choices, at most 32
+     */
+    public int getNumChoices() {
+        return keepMasks.length;
+    }
+
+    /**
+     * Returns a keep mask making one of the choices.
+     * @param choice index of the choice, 0 for the best
+     * @return keep mask with bit i set if die i is kept
+     */
+    public int getKeepMask(int choice) {
+        return keepMasks[choice];
+    }
+
+    /**
+     * Returns the expected final score of one of the choices.
+     * @param choice index of the choice, 0 for the best
+     * @return the expected final score
+     */
+    public double getValue(int choice) {
+        return values[choice];
+    }
+
+    /**
+     * Returns the expected final score of keeping the given dice.
+     * @param keepMask bit i set if die i is kept
+     * @return the expected final score
+     */
+    public double getValueOfMask(int keepMask) {
+        if (keepMask < 0 || keepMask >= NUM_MASKS) {
+            throw new IllegalArgumentException("Invalid keep mask");
+        }
+        return values[choiceOfMask[keepMask]];
+    }
+
+    /**
+     * Returns a summary of the choices, for printing.
+     * @return the summary
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < keepMasks.length; i++) {
+            s.append("keep ");
+            for (int die = 0; die < DiceBlock.NUM_DICE; die++) {
+                s.append((keepMasks[i] & (1 << die)) != 0 ? 'X' : '-');
+            }
+            s.append(String.format("  %.3f%n", values[i]));
+        }
+        return s.toString();
+    }
+}
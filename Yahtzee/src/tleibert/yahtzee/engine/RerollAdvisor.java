@@ -0,0 +1,223 @@
+package tleibert.yahtzee.engine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.RerollTable;
+
+/**
+ * Advises which dice to keep before a reroll, to get the highest expected
+ * final score under a {@link StrategyTable}. Answers are remembered in a
+ * bounded least recently used cache keyed by the hand, the rolls left and
+ * the ScoreCard state, so the clicks of a turn are answered from memory,
+ * and a new turn costs one solved turn, well under a millisecond.
+ *
+ * A RerollAdvisor is thread safe; calls are answered one at a time.
+ *
+ * @author Trevor Leibert
+ */
+public class RerollAdvisor {
+
+    /** default number of answers to remember */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** number of keep masks of five dice */
+    private static final int NUM_MASKS = 1 << DiceBlock.NUM_DICE;
+
+    /** values of every state */
+    private final StrategyTable table;
+
+    /** solves the turns of the states asked about */
+    private final TurnSolver solver;
+
+    /** state index the solver last solved, or -1 */
+    private int solvedIndex = -1;
+
+    /** remembered answers, least recently used first */
+    private final Map<Long, Answer> cache;
+
+    /** scratch keep id of each keep mask */
+    private final int[] keepIds = new int[NUM_MASKS];
+
+    /**
+     * Constructs a RerollAdvisor with the default cache capacity.
+     * @param table values of every state
+     */
+    public RerollAdvisor(StrategyTable table) {
+        this(table, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a RerollAdvisor.
+     * @param table values of every state
+     * @param capacity number of answers to remember
+     */
+    public RerollAdvisor(StrategyTable table, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.table = table;
+        solver = new TurnSolver(table);
+        cache = new LinkedHashMap<Long, Answer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Answer> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Advises which of the dice showing to keep.
+     * @param dice the dice showing
+     * @param rollsLeft rolls left this turn, 1 or 2
+     * @param card ScoreCard of the player
+     * @return every choice of dice to keep, best first
+     * @throws IllegalArgumentException if the dice have not been rolled,
+     *         or there are no rolls left
+     */
+    public RerollAdvice advise(DiceBlock dice, int rollsLeft, ScoreCard card) {
+        return advise(dice.getPacked(), rollsLeft, card.pack());
+    }
+
+    /**
+     * Advises which of the dice showing to keep.
+     * @param packedDice the dice showing, see {@link PackedDice}
+     * @param rollsLeft rolls left this turn, 1 or 2
+     * @param cardState ScoreCard of the player, see {@link CardState}
+     * @return every choice of dice to keep, best first
+     * @throws IllegalArgumentException if the dice have not been rolled,
+     *         or there are no rolls left
+     */
+    public synchronized RerollAdvice advise(long packedDice, int rollsLeft, long cardState) {
+        if (rollsLeft < 1 || rollsLeft > TurnSolver.MAX_REROLLS) {
+            throw new IllegalArgumentException("Invalid number of rolls left");
+        }
+        int handId = PackedDice.canonicalId(packedDice);
+        if (handId < 0) {
+            throw new IllegalArgumentException("Dice have not been rolled");
+        }
+
+        long key = cardState << 10 | (long) handId << 2 | rollsLeft;
+        Answer answer = cache.get(key);
+        for (int mask = 0; mask < NUM_MASKS; mask++) {
+            keepIds[mask] = RerollTable.keepId(packedDice, mask);
+        }
+        if (answer == null) {
+            answer = solve(rollsLeft, cardState);
+            cache.put(key, answer);
+        }
+
+        // one mask per distinct keep, for the dice in the order they show
+        int[] keepMasks = new int[answer.keepIds.length];
+        int[] choiceOfMask = new int[NUM_MASKS];
+        for (int mask = NUM_MASKS - 1; mask >= 0; mask--) {
+            int choice = 0;
+            while (answer.keepIds[choice] != keepIds[mask]) {
+                choice++;
+            }
+            keepMasks[choice] = mask;
+            choiceOfMask[mask] = choice;
+        }
+        return new RerollAdvice(keepMasks, answer.values, choiceOfMask);
+    }
+
+    /**
+     * Works out every choice a player has with the dice showing: which
+     * dice to keep, if there are rolls left, and which type to score in.
+     * @param packedDice the dice showing, see {@link PackedDice}
+     * @param rollsLeft rolls left this turn, 0 to 2
+     * @param cardState ScoreCard of the player, see {@link CardState}
+     * @return the choices and what each is expected to lose
+     * @throws IllegalArgumentException if the dice have not been rolled,
+     *         or every scoring type is used
+     */
+    public TurnHint hint(long packedDice, int rollsLeft, long cardState) {
+        if (rollsLeft < 0 || rollsLeft > TurnSolver.MAX_REROLLS) {
+            throw new IllegalArgumentException("Invalid number of rolls left");
+        }
+        int handId = PackedDice.canonicalId(packedDice);
+        if (handId < 0) {
+            throw new IllegalArgumentException("Dice have not been rolled");
+        }
+        if (CardState.availableMask(cardState) == 0) {
+            throw new IllegalArgumentException("Every scoring type is used");
+        }
+        double[] scoreValues = new double[ScoreTable.NUM_CATEGORIES];
+        for (int type = 0; type < scoreValues.length; type++) {
+            scoreValues[type] = CardState.isUsed(cardState, type) ? Double.NaN
+                    : table.scoreValue(cardState, handId, type);
+        }
+        RerollAdvice reroll = rollsLeft > 0 ? advise(packedDice, rollsLeft, cardState) : null;
+        return new TurnHint(reroll, scoreValues);
+    }
+
+    /**
+     * Works out the distinct keeps of the dice held in {@link #keepIds} and
+     * their expected final scores.
+     * @param rollsLeft rolls left this turn
+     * @param cardState ScoreCard of the player
+     * @return the keeps, best first
+     */
+    private Answer solve(int rollsLeft, long cardState) {
+        int index = StateSpace.index(cardState);
+        if (index != solvedIndex) {
+            solver.solve(index);
+            solvedIndex = index;
+        }
+        int[] distinct = keepIds.clone();
+        Arrays.sort(distinct);
+        int count = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[count++] = distinct[i];
+            }
+        }
+
+        int score = CardState.score(cardState);
+        Integer[] order = new Integer[count];
+        double[] byKeep = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            byKeep[i] = score + solver.keepValue(rollsLeft, distinct[i]);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(byKeep[b], byKeep[a]));
+
+        int[] ids = new int[count];
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = distinct[order[i]];
+            values[i] = byKeep[order[i]];
+        }
+        return new Answer(ids, values);
+    }
+
+    /**
+     * Remembered answer for one hand, number of rolls left and card.
+     */
+    private static class Answer {
+
+        /** keep id of each distinct keep, best first */
+        private final int[] keepIds;
+
+        /** expected final score of each keep */
+        private final double[] values;
+
+        /**
+         * Constructs an Answer.
+         * @param keepIds keep id of each distinct keep, best first
+         * @param values expected final score of each keep
+         */
+        Answer(int[] keepIds, double[] values) {
+            this.keepIds = keepIds;
+            this.values = values;
+        }
+    }
+}
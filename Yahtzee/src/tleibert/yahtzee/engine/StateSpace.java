@@ -0,0 +1,170 @@
+package tleibert.yahtzee.engine;
+
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Describes the states of a single ScoreCard between turns, as seen by the
+ * strategy solver. Only the parts of a ScoreCard that affect future points
+ * are kept:
+ * <ul>
+ * <li>the used mask, one bit per scoring type that can no longer be scored.
+ *     The Yahtzee bit is only set once the Yahtzee box has been closed,
+ *     as a box holding a Yahtzee stays open for bonus Yahtzees.</li>
+ * <li>the upper score, capped at {@link ScoreCard#BONUS_SCORE_THRESHOLD}</li>
+ * <li>whether a Yahtzee has been scored</li>
+ * <li>the number of bonus Yahtzees scored, as each one uses up a turn
+ *     without using up a box</li>
+ * </ul>
+ * Each state has an index into a flat table, laid out as
+ * {@code slot << 19 | usedMask << 6 | upperScore}, where slot 0 means no
+ * Yahtzee has been scored and slot 1 + n means a Yahtzee and n bonus
+ * Yahtzees have been scored.
+ *
+ * @author Trevor Leibert
+ */
+public final class StateSpace {
+
+    /** number of scoring types */
+    public static final int NUM_CATEGORIES = ScoreTable.NUM_CATEGORIES;
+
+    /** used mask with every scoring type used */
+    public static final int ALL_CATEGORIES = (1 << NUM_CATEGORIES) - 1;
+
+    /** used mask with every upper scoring type used */
+    public static final int UPPER_CATEGORIES = (1 << (ScoreCard.SIXES + 1)) - 1;
+
+    /** highest upper score that is told apart from the others */
+    public static final int MAX_UPPER = ScoreCard.BONUS_SCORE_THRESHOLD;
+
+    /**
+     * most bonus Yahtzees a card can hold: every turn after the first
+     * Yahtzee can score one, so every reachable card has its own state.
+     */
+    public static final int MAX_BONUS_YAHTZEES = YahtzeeGame.NUM_TURNS_PER_PLAYER - 1;
+
+    /** number of Yahtzee slots */
+    public static final int NUM_SLOTS = MAX_BONUS_YAHTZEES + 2;
+
+    /** number of entries in a state table */
+    public static final int SIZE = NUM_SLOTS << 19;
+
+    /** upper scores reachable with each combination of used upper boxes */
+    private static final boolean[][] UPPER_REACHABLE = new boolean[UPPER_CATEGORIES + 1][MAX_UPPER + 1];
+
+    static {
+        for (int mask = 0; mask <= UPPER_CATEGORIES; mask++) {
+            boolean[] reachable = UPPER_REACHABLE[mask];
+            reachable[0] = true;
+            for (int category = ScoreCard.ONES; category <= ScoreCard.SIXES; category++) {
+                if ((mask & (1 << category)) != 0) {
+                    for (int upper = MAX_UPPER; upper >= 0; upper--) {
+                        if (reachable[upper]) {
+                            for (int n = 1; n <= 5; n++) {
+                                reachable[Math.min(MAX_UPPER, upper + n * (category + 1))] = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * StateSpace only has static members.
+     */
+    private StateSpace() {
+    }
+
+    /**
+     * Returns the table index of a state.
+     * @param usedMask scoring types that can no longer be scored
+     * @param upperScore upper score, capped at {@link #MAX_UPPER}
+     * @param hadYahtzee whether a Yahtzee has been scored
+     * @param bonusYahtzees number of bonus Yahtzees scored
+     * @return the index of the state
+     */
+    public static int index(int usedMask, int upperScore, boolean hadYahtzee, int bonusYahtzees) {
+        int slot = hadYahtzee ? 1 + bonusYahtzees : 0;
+        return (slot << 19) | (usedMask << 6) | upperScore;
+    }
+
+    /**
+     * Returns the table index of a ScoreCard, packed as in {@link CardState}.
+     * @param cardState packed card
+     * @return the index of the state
+     * @throws IllegalArgumentException if the card holds more bonus Yahtzees
+     *         than a game can, which no valid game reaches
+     */
+    public static int index(long cardState) {
+        int bonusYahtzees = CardState.bonusYahtzees(cardState);
+        if (bonusYahtzees > MAX_BONUS_YAHTZEES) {
+            throw new IllegalArgumentException("Too many bonus Yahtzees");
+        }
+        return index(CardState.usedMask(cardState), CardState.upperScore(cardState),
+                CardState.hadYahtzee(cardState), bonusYahtzees);
+    }
+
+    /**
+     * Returns the used mask of a state index.
+     * @param index state index
+     * @return the used mask
+     */
+    public static int usedMask(int index) {
+        return (index >>> 6) & ALL_CATEGORIES;
+    }
+
+    /**
+     * Returns the upper score of a state index.
+     * @param index state index
+     * @return the capped upper score
+     */
+    public static int upperScore(int index) {
+        return index & 63;
+    }
+
+    /**
+     * Returns whether a Yahtzee has been scored in a state index.
+     * @param index state index
+     * @return true if a Yahtzee has been scored
+     */
+    public static boolean hadYahtzee(int index) {
+        return (index >>> 19) != 0;
+    }
+
+    /**
+     * Returns the number of bonus Yahtzees scored in a state index.
+     * @param index state index
+     * @return the number of bonus Yahtzees
+     */
+    public static int bonusYahtzees(int index) {
+        int slot = index >>> 19;
+        return slot == 0 ? 0 : slot - 1;
+    }
+
+    /**
+     * Returns how many turns have been taken to reach a state.
+     * @param usedMask scoring types that can no longer be scored
+     * @param hadYahtzee whether a Yahtzee has been scored
+     * @param bonusYahtzees number of bonus Yahtzees scored
+     * @return the number of turns taken
+     */
+    public static int turnsTaken(int usedMask, boolean hadYahtzee, int bonusYahtzees) {
+        return Integer.bitCount(usedMask) + (hadYahtzee ? 1 : 0) + bonusYahtzees;
+    }
+
+    /**
+     * Returns whether a state index describes a ScoreCard that can come up
+     * in a game: the turns taken fit in a game and the upper score can be
+     * made from the used upper boxes.
+     * @param index state index
+     * @return true if the state can be reached
+     */
+    public static boolean isReachable(int index) {
+        int usedMask = usedMask(index);
+        return turnsTaken(usedMask, hadYahtzee(index), bonusYahtzees(index)) <= YahtzeeGame.NUM_TURNS_PER_PLAYER
+                && UPPER_REACHABLE[usedMask & UPPER_CATEGORIES][upperScore(index)];
+    }
+}
@@ -0,0 +1,155 @@
+package tleibert.yahtzee.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes {@link StrategyTable}s as binary files, so workers can
+ * start advising without solving the game first.
+ *
+ * A strategy file is a 32 byte header followed by one little endian float
+ * per state. The header holds, in order: the magic number, the format
+ * version, the number of states, the number of tracked bonus Yahtzees,
+ * four unused bytes, and the CRC-32 of the values. A file written for a
+ * different version or state layout is rejected as stale.
+ *
+ * {@link #map(Path)} maps the values straight from the file, so loading
+ * costs no copying and every JVM on a host shares the same pages.
+ *
+ * @author Trevor Leibert
+ */
+public final class StrategyFile {
+
+    /** first eight bytes of every strategy file, "YAHTZSTR" */
+    public static final long MAGIC = 0x5254535A54484159L;
+
+    /** version of the file format and of the rules it was solved with */
+    public static final int FORMAT_VERSION = 2;
+
+    /** size of the header in bytes */
+    public static final int HEADER_BYTES = 32;
+
+    /** position of the checksum in the header */
+    private static final int CHECKSUM_OFFSET = 24;
+
+    /**
+     * StrategyFile only has static members.
+     */
+    private StrategyFile() {
+    }
+
+    /**
+     * Writes a table to a file. The file is written next to the target and
+     * moved into place, so readers never see a partly written table.
+     * @param table table to write
+     * @param path file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(StrategyTable table, Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(StateSpace.SIZE * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        data.asFloatBuffer().put(table.values());
+
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(StateSpace.SIZE);
+        header.putInt(StateSpace.MAX_BONUS_YAHTZEES);
+        header.putInt(0);
+        header.putLong(crc.getValue());
+        header.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a table from a file and checks its checksum.
+     * @param path file to map
+     * @return a table reading its values from the mapped file
+     * @throws IOException if the file cannot be read, or is stale or corrupt
+     */
+    public static StrategyTable map(Path path) throws IOException {
+        return map(path, true);
+    }
+
+    /**
+     * Maps a table from a file. The header is always checked; checking the
+     * checksum reads the whole file once, which also brings it into the page cache.
+     * @param path file to map
+     * @param verify whether to check the checksum of the values
+     * @return a table reading its values from the mapped file
+     * @throws IOException if the file cannot be read, or is stale or corrupt
+     */
+    public static StrategyTable map(Path path, boolean verify) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return new StrategyTable(values(buffer, verify, path));
+    }
+
+    /**
+     * Reads a table from a file into the heap.
+     * @param path file to read
+     * @return a table holding a copy of the values
+     * @throws IOException if the file cannot be read, or is stale or corrupt
+     */
+    public static StrategyTable read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] values = new float[StateSpace.SIZE];
+        values(buffer, true, path).get(values);
+        return new StrategyTable(FloatBuffer.wrap(values));
+    }
+
+    /**
+     * Checks the header of a strategy file and returns a view of its values.
+     * @param buffer contents of the file, in little endian order
+     * @param verify whether to check the checksum of the values
+     * @param path file being read, for error messages
+     * @return the values of every state
+     * @throws IOException if the file is stale or corrupt
+     */
+    private static FloatBuffer values(ByteBuffer buffer, boolean verify, Path path) throws IOException {
+        if (buffer.capacity() != HEADER_BYTES + (long) StateSpace.SIZE * Float.BYTES
+                || buffer.getLong(0) != MAGIC) {
+            throw new IOException(path + " is not a strategy file");
+        }
+        if (buffer.getInt(8) != FORMAT_VERSION || buffer.getInt(12) != StateSpace.SIZE
+                || buffer.getInt(16) != StateSpace.MAX_BONUS_YAHTZEES) {
+            throw new IOException(path + " is stale: version " + buffer.getInt(8)
+                    + ", expected " + FORMAT_VERSION);
+        }
+        ByteBuffer data = buffer.duplicate().position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (verify) {
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            if (crc.getValue() != buffer.getLong(CHECKSUM_OFFSET)) {
+                throw new IOException(path + " is corrupt: checksum mismatch");
+            }
+        }
+        return data.asFloatBuffer();
+    }
+}
@@ -0,0 +1,139 @@
+package tleibert.yahtzee.engine;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Computes the strategy that maximizes the expected final score of a
+ * single ScoreCard, by working backwards from the end of the game.
+ *
+ * States are grouped into layers by the number of turns taken to reach
+ * them. Every turn moves a ScoreCard into the next layer, so once a layer
+ * has been solved all states of the layer before it can be solved
+ * independently. Each layer is split across a fork-join pool.
+ *
+ * @author Trevor Leibert
+ */
+public final class StrategySolver {
+
+    /** number of states solved by one fork-join task */
+    private static final int STATES_PER_TASK = 64;
+
+    /**
+     * StrategySolver only has static members.
+     */
+    private StrategySolver() {
+    }
+
+    /**
+     * Solves every state using the common fork-join pool.
+     * @return the table of state values
+     */
+    public static StrategyTable solve() {
+        return solve(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves every state using the given fork-join pool.
+     * @param pool pool to run the solver in
+     * @return the table of state values
+     */
+    public static StrategyTable solve(ForkJoinPool pool) {
+        StrategyTable table = new StrategyTable(FloatBuffer.wrap(new float[StateSpace.SIZE]));
+        int[][] layers = layers();
+        // states at the end of the game are worth nothing and stay at zero
+        for (int turns = YahtzeeGame.NUM_TURNS_PER_PLAYER - 1; turns >= 0; turns--) {
+            int[] layer = layers[turns];
+            pool.invoke(new LayerTask(table, layer, 0, layer.length));
+        }
+        return table;
+    }
+
+    /**
+     * Groups the reachable states by the number of turns taken to reach them.
+     * @return state indexes for each number of turns taken
+     */
+    private static int[][] layers() {
+        int[] sizes = new int[YahtzeeGame.NUM_TURNS_PER_PLAYER + 1];
+        for (int index = 0; index < StateSpace.SIZE; index++) {
+            if (StateSpace.isReachable(index)) {
+                sizes[turnsTaken(index)]++;
+            }
+        }
+        int[][] layers = new int[sizes.length][];
+        for (int turns = 0; turns < layers.length; turns++) {
+            layers[turns] = new int[sizes[turns]];
+            sizes[turns] = 0;
+        }
+        for (int index = 0; index < StateSpace.SIZE; index++) {
+            if (StateSpace.isReachable(index)) {
+                int turns = turnsTaken(index);
+                layers[turns][sizes[turns]++] = index;
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Returns the number of turns taken to reach a state.
+     * @param index state index
+     * @return the number of turns taken
+     */
+    private static int turnsTaken(int index) {
+        return StateSpace.turnsTaken(StateSpace.usedMask(index), StateSpace.hadYahtzee(index),
+                StateSpace.bonusYahtzees(index));
+    }
+
+    /**
+     * Solves a range of the states in one layer, splitting it in half
+     * until it is small enough to solve directly.
+     */
+    private static class LayerTask extends RecursiveAction {
+
+        /** default serializable id */
+        private static final long serialVersionUID = 1L;
+
+        /** table being filled in */
+        private final StrategyTable table;
+
+        /** states of the layer */
+        private final int[] states;
+
+        /** first state to solve */
+        private final int from;
+
+        /** end of the states to solve, exclusive */
+        private final int to;
+
+        /**
+         * Constructs a task solving states[from] up to states[to - 1].
+         * @param table table being filled in
+         * @param states states of the layer
+         * @param from first state to solve
+         * @param to end of the states to solve, exclusive
+         */
+        LayerTask(StrategyTable table, int[] states, int from, int to) {
+            this.table = table;
+            this.states = states;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= STATES_PER_TASK) {
+                TurnSolver solver = new TurnSolver(table);
+                for (int i = from; i < to; i++) {
+                    table.set(states[i], (float) solver.solve(states[i]));
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LayerTask(table, states, from, mid),
+                        new LayerTask(table, states, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package tleibert.yahtzee.engine;
+
+import java.nio.FloatBuffer;
+
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.dice.HandIndex;
+
+/**
+ * Holds the expected number of points still to be scored from every
+ * ScoreCard state, when playing the optimal strategy. States are indexed
+ * as described in {@link StateSpace}. A table is made by the
+ * {@link StrategySolver}, or loaded from a file with {@link StrategyFile}.
+ *
+ * The values live in a FloatBuffer, which is either backed by a heap array
+ * or mapped straight from a strategy file.
+ *
+ * @author Trevor Leibert
+ */
+public class StrategyTable {
+
+    /** expected future points of each state */
+    private final FloatBuffer values;
+
+    /**
+     * Constructs a table over the given values.
+     * @param values expected future points of each state, with
+     *               {@link StateSpace#SIZE} entries
+     */
+    StrategyTable(FloatBuffer values) {
+        if (values.capacity() != StateSpace.SIZE) {
+            throw new IllegalArgumentException("Table must have " + StateSpace.SIZE + " entries");
+        }
+        this.values = values;
+    }
+
+    /**
+     * Returns the expected points still to be scored from a state.
+     * @param index state index from {@link StateSpace}
+     * @return the expected future points
+     */
+    public float value(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Returns the expected points still to be scored from a state.
+     * @param usedMask scoring types that can no longer be scored
+     * @param upperScore upper score, capped at {@link StateSpace#MAX_UPPER}
+     * @param hadYahtzee whether a Yahtzee has been scored
+     * @param bonusYahtzees number of bonus Yahtzees scored
+     * @return the expected future points
+     */
+    public float value(int usedMask, int upperScore, boolean hadYahtzee, int bonusYahtzees) {
+        return values.get(StateSpace.index(usedMask, upperScore, hadYahtzee, bonusYahtzees));
+    }
+
+    /**
+     * Returns the expected final score of a game played with the optimal strategy.
+     * @return the expected score of an empty ScoreCard
+     */
+    public float expectedScore() {
+        return values.get(0);
+    }
+
+    /**
+     * Returns the expected final score of scoring a hand in a scoring type
+     * and playing the rest of the game optimally.
+     * @param cardState ScoreCard before the turn, see {@link CardState}
+     * @param handId hand id from {@link HandIndex}
+     * @param scoringType scoring type between 0 and 12
+     * @return the expected final score
+     */
+    public double scoreValue(long cardState, int handId, int scoringType) {
+        long after = CardState.score(cardState, handId, scoringType);
+        return CardState.score(after) + value(StateSpace.index(after));
+    }
+
+    /**
+     * Sets the value of a state. Only used by the solver.
+     * @param index state index
+     * @param value expected future points
+     */
+    void set(int index, float value) {
+        values.put(index, value);
+    }
+
+    /**
+     * Returns a read only view of the values, for writing them out.
+     * @return the values of every state
+     */
+    FloatBuffer values() {
+        return values.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,127 @@
+package tleibert.yahtzee.engine;
+
+/**
+ * Everything a player can do with the dice showing, and what each choice
+ * is expected to cost compared to the best one: which dice to keep, if
+ * there are rolls left, and which scoring type to score the dice in now.
+ * Made by {@link RerollAdvisor#hint(long, int, long)}.
+ *
+ * @author Trevor Leibert
+ */
+public final class TurnHint {
+
+    /** choices of dice to keep, or null if there are no rolls left */
+    private final RerollAdvice reroll;
+
+    /** expected final score of scoring in each type, NaN for used types */
+    private final double[] scoreValues;
+
+    /** best scoring type for the dice showing */
+    private final int bestScoringType;
+
+    /** expected final score of the best choice */
+    private final double bestValue;
+
+    /**
+     * Constructs a TurnHint.
+     * @param reroll choices of dice to keep, or null if there are no rolls left
+     * @param scoreValues expected final score of scoring in each type, NaN for used types
+     */
+    TurnHint(RerollAdvice reroll, double[] scoreValues) {
+        this.reroll = reroll;
+        this.scoreValues = scoreValues;
+        int best = -1;
+        for (int type = 0; type < scoreValues.length; type++) {
+            if (!Double.isNaN(scoreValues[type]) && (best < 0 || scoreValues[type] > scoreValues[best])) {
+                best = type;
+            }
+        }
+        bestScoringType = best;
+        // keeping every die is worth scoring the best type, so a reroll is never worse
+        bestValue = reroll != null ? Math.max(reroll.getBestValue(), scoreValues[best]) : scoreValues[best];
+    }
+
+    /**
+     * Returns whether the dice can still be rolled this turn.
+     * @return true if there are rolls left
+     */
+    public boolean canReroll() {
+        return reroll != null;
+    }
+
+    /**
+     * Returns the choices of dice to keep.
+     * @return the choices, best first, or null if there are no rolls left
+     */
+    public RerollAdvice getRerollAdvice() {
+        return reroll;
+    }
+
+    /**
+     * Returns the dice to keep to get the highest expected score.
+     * @return keep mask with bit i set if die i should be kept, or -1 if
+     *         there are no rolls left
+     */
+    public int getBestKeepMask() {
+        return reroll != null ? reroll.getBestKeepMask() : -1;
+    }
+
+    /**
+     * Returns the expected score lost by keeping the given dice instead of
+     * making the best choice.
+     * @param keepMask bit i set if die i is kept
+     * @return the expected points lost, zero for the best choice
+     * @throws IllegalStateException if there are no rolls left
+     */
+    public double getKeepLoss(int keepMask) {
+        if (reroll == null) {
+            throw new IllegalStateException("No rolls left");
+        }
+        return bestValue - reroll.getValueOfMask(keepMask);
+    }
+
+    /**
+     * Returns the best scoring type for the dice showing, if the turn is
+     * ended now.
+     * @return the scoring type
+     */
+    public int getBestScoringType() {
+        return bestScoringType;
+    }
+
+    /**
+     * Returns whether a scoring type can still be scored.
+     * @param scoringType scoring type
+     * @return true if the type is open
+     */
+    public boolean isOpen(int scoringType) {
+        return !Double.isNaN(scoreValues[scoringType]);
+    }
+
+    /**
+     * Returns the expected final score of scoring the dice in a type now.
+     * @param scoringType scoring type
+     * @return the expected final score, NaN if the type is used
+     */
+    public double getScoreValue(int scoringType) {
+        return scoreValues[scoringType];
+    }
+
+    /**
+     * Returns the expected score lost by scoring the dice in a type now
+     * instead of making the best choice, which may be rolling again.
+     * @param scoringType scoring type
+     * @return the expected points lost, NaN if the type is used
+     */
+    public double getScoreLoss(int scoringType) {
+        return bestValue - scoreValues[scoringType];
+    }
+
+    /**
+     * Returns the expected final score of the best choice.
+     * @return the expected final score
+     */
+    public double getBestValue() {
+        return bestValue;
+    }
+}
@@ -0,0 +1,276 @@
+package tleibert.yahtzee.engine;
+
+import java.util.Arrays;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.HandIndex;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.RerollTable;
+
+/**
+ * Solves a single turn: given the ScoreCard state at the start of the turn
+ * and the values of every state after it, works out the value of each hand
+ * and each keep for every number of rolls left, and from those the value
+ * of the state itself.
+ *
+ * A TurnSolver keeps its working arrays between calls and is not thread
+ * safe, each thread needs its own.
+ *
+ * @author Trevor Leibert
+ */
+public final class TurnSolver {
+
+    /** most rerolls a player can have left, after the first roll of a turn */
+    public static final int MAX_REROLLS = 2;
+
+    /** base points of each hand, by scoring type */
+    private static final int[][] POINTS = new int[StateSpace.NUM_CATEGORIES][HandIndex.NUM_HANDS];
+
+    static {
+        for (int category = 0; category < StateSpace.NUM_CATEGORIES; category++) {
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                POINTS[category][hand] = ScoreTable.points(hand, category);
+            }
+        }
+    }
+
+    /** values of the states after this turn */
+    private final StrategyTable table;
+
+    /** value of each hand, by rerolls left */
+    private final double[][] handValue = new double[MAX_REROLLS + 1][HandIndex.NUM_HANDS];
+
+    /** value of each keep, by rerolls left before the reroll */
+    private final double[][] keepValue = new double[MAX_REROLLS + 1][KeepTable.NUM_KEEPS];
+
+    /** best value of any keep held inside each keep */
+    private final double[] bestInside = new double[KeepTable.NUM_KEEPS];
+
+    /** best scoring type for each hand */
+    private final int[] bestCategory = new int[HandIndex.NUM_HANDS];
+
+    /** value of scoring each upper box with each number of matching dice */
+    private final double[][] upperValue = new double[ScoreCard.SIXES + 1][DiceBlock.NUM_DICE + 1];
+
+    /** value of the state after scoring each lower box, without the points */
+    private final double[] lowerValue = new double[StateSpace.NUM_CATEGORIES];
+
+    /** scoring types that are still open in the solved state */
+    private int openMask;
+
+    /**
+     * Constructs a TurnSolver reading successor values from the given table.
+     * @param table values of the states after the turn
+     */
+    public TurnSolver(StrategyTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Solves the turn starting in the given state.
+     * @param index state index from {@link StateSpace}
+     * @return the value of the state: the expected points still to be scored
+     */
+    public double solve(int index) {
+        scoreHands(StateSpace.usedMask(index), StateSpace.upperScore(index),
+                StateSpace.hadYahtzee(index), StateSpace.bonusYahtzees(index));
+        for (int rerolls = 1; rerolls <= MAX_REROLLS; rerolls++) {
+            rollKeeps(handValue[rerolls - 1], keepValue[rerolls]);
+            chooseKeeps(keepValue[rerolls], handValue[rerolls]);
+        }
+
+        double value = 0;
+        double[] hands = handValue[MAX_REROLLS];
+        for (int i = RerollTable.outcomeStart(RerollTable.EMPTY_KEEP);
+                i < RerollTable.outcomeEnd(RerollTable.EMPTY_KEEP); i++) {
+            value += RerollTable.outcomeProbability(i) * hands[RerollTable.outcomeHand(i)];
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of a hand in the last solved state.
+     * @param rerolls rerolls left, between 0 and {@link #MAX_REROLLS}
+     * @param handId hand id
+     * @return the expected points still to be scored, including this turn
+     */
+    public double handValue(int rerolls, int handId) {
+        return handValue[rerolls][handId];
+    }
+
+    /**
+     * Returns the value of keeping some of the dice and rerolling the rest
+     * in the last solved state.
+     * @param rerolls rerolls left before the reroll, 1 or 2
+     * @param packedDice dice showing, see {@link PackedDice}
+     * @param keepMask bit i set if die i is kept
+     * @return the expected points still to be scored, including this turn
+     * @throws IllegalArgumentException if a kept die has not been rolled
+     */
+    public double keepValue(int rerolls, long packedDice, int keepMask) {
+        return keepValue[rerolls][RerollTable.keepId(packedDice, keepMask)];
+    }
+
+    /**
+     * Returns the value of a keep in the last solved state.
+     * @param rerolls rerolls left before the reroll, 1 or 2
+     * @param keepId keep id from {@link RerollTable}
+     * @return the expected points still to be scored, including this turn
+     */
+    double keepValue(int rerolls, int keepId) {
+        return keepValue[rerolls][keepId];
+    }
+
+    /**
+     * Returns the dice to keep to get the most points in the last solved state.
+     * @param rerolls rerolls left, 1 or 2
+     * @param packedDice dice showing, see {@link PackedDice}
+     * @return keep mask with bit i set if die i should be kept
+     */
+    public int bestKeep(int rerolls, long packedDice) {
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int mask = (1 << DiceBlock.NUM_DICE) - 1; mask >= 0; mask--) {
+            double value = keepValue(rerolls, packedDice, mask);
+            if (value > bestValue) {
+                bestValue = value;
+                best = mask;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the best scoring type for a hand at the end of the last solved turn.
+     * @param handId hand id
+     * @return the scoring type to use
+     */
+    public int bestCategory(int handId) {
+        return bestCategory[handId];
+    }
+
+    /**
+     * Returns the scoring types still open in the last solved state.
+     * @return bit mask of the scoring types that may be scored
+     */
+    public int openMask() {
+        return openMask;
+    }
+
+    /**
+     * Fills in the value of each hand with no rerolls left, which is the
+     * best of scoring it in each open box.
+     * @param usedMask scoring types that can no longer be scored
+     * @param upper capped upper score
+     * @param hadYahtzee whether a Yahtzee has been scored
+     * @param bonusYahtzees number of bonus Yahtzees scored
+     */
+    private void scoreHands(int usedMask, int upper, boolean hadYahtzee, int bonusYahtzees) {
+        openMask = ~usedMask & StateSpace.ALL_CATEGORIES;
+        for (int category = ScoreCard.ONES; category <= ScoreCard.SIXES; category++) {
+            int bit = 1 << category;
+            if ((openMask & bit) != 0) {
+                int nextMask = usedMask | bit;
+                boolean upperDone = (nextMask & StateSpace.UPPER_CATEGORIES) == StateSpace.UPPER_CATEGORIES;
+                for (int n = 0; n <= DiceBlock.NUM_DICE; n++) {
+                    int points = n * (category + 1);
+                    int nextUpper = Math.min(StateSpace.MAX_UPPER, upper + points);
+                    if (upperDone && nextUpper >= ScoreCard.BONUS_SCORE_THRESHOLD) {
+                        points += ScoreCard.BONUS_SCORE_POINTS;
+                    }
+                    upperValue[category][n] = points
+                            + table.value(nextMask, nextUpper, hadYahtzee, bonusYahtzees);
+                }
+            }
+        }
+        for (int category = ScoreCard.THREE_OF_KIND; category < StateSpace.NUM_CATEGORIES; category++) {
+            if ((openMask & (1 << category)) != 0) {
+                lowerValue[category] = table.value(usedMask | (1 << category), upper,
+                        hadYahtzee, bonusYahtzees);
+            }
+        }
+
+        // a Yahtzee scored in the Yahtzee box leaves it open for bonus Yahtzees
+        double yahtzeeValue = 0;
+        if ((openMask & (1 << ScoreCard.YAHTZEE)) != 0) {
+            if (!hadYahtzee) {
+                yahtzeeValue = ScoreCard.YAHTZEE_POINTS + table.value(usedMask, upper, true, 0);
+            } else {
+                yahtzeeValue = ScoreCard.YAHTZEE_BONUS
+                        + table.value(usedMask, upper, true, bonusYahtzees + 1);
+            }
+        }
+
+        double[] values = handValue[0];
+        Arrays.fill(values, Double.NEGATIVE_INFINITY);
+        for (int category = 0; category < StateSpace.NUM_CATEGORIES; category++) {
+            if ((openMask & (1 << category)) == 0) {
+                continue;
+            }
+            int[] points = POINTS[category];
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                double value;
+                if (category <= ScoreCard.SIXES) {
+                    value = upperValue[category][points[hand] / (category + 1)];
+                } else if (category == ScoreCard.YAHTZEE && points[hand] > 0) {
+                    value = yahtzeeValue;
+                } else {
+                    value = points[hand] + lowerValue[category];
+                }
+                if (value > values[hand]) {
+                    values[hand] = value;
+                    bestCategory[hand] = category;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the value of each keep as the expected value of the hands
+     * its reroll can end in. Rolling the missing dice one at a time gives
+     * the same outcomes as rolling them together, so a keep is worth the
+     * average of the six keeps with one more die.
+     * @param hands value of each hand after the reroll
+     * @param keeps array to fill with the value of each keep
+     */
+    private static void rollKeeps(double[] hands, double[] keeps) {
+        int[] fullKeepHand = KeepTable.FULL_KEEP_HAND;
+        int[] plus = KeepTable.KEEP_PLUS;
+        for (int keep = KeepTable.NUM_KEEPS - 1; keep >= KeepTable.FIRST_FULL_KEEP; keep--) {
+            keeps[keep] = hands[fullKeepHand[keep - KeepTable.FIRST_FULL_KEEP]];
+        }
+        for (int keep = KeepTable.FIRST_FULL_KEEP - 1; keep >= 0; keep--) {
+            int i = keep * 6;
+            keeps[keep] = (keeps[plus[i]] + keeps[plus[i + 1]] + keeps[plus[i + 2]]
+                    + keeps[plus[i + 3]] + keeps[plus[i + 4]] + keeps[plus[i + 5]]) / 6;
+        }
+    }
+
+    /**
+     * Computes the value of each hand as the best of the keeps it can be
+     * reduced to. The best keep inside each keep is found by taking away
+     * one die at a time, starting from the smallest keeps.
+     * @param keeps value of each keep
+     * @param hands array to fill with the value of each hand
+     */
+    private void chooseKeeps(double[] keeps, double[] hands) {
+        int[] start = KeepTable.KEEP_MINUS_START;
+        int[] minus = KeepTable.KEEP_MINUS;
+        double[] best = bestInside;
+        for (int keep = 0; keep < KeepTable.NUM_KEEPS; keep++) {
+            double value = keeps[keep];
+            for (int i = start[keep]; i < start[keep + 1]; i++) {
+                if (best[minus[i]] > value) {
+                    value = best[minus[i]];
+                }
+            }
+            best[keep] = value;
+        }
+        int[] handKeep = KeepTable.HAND_KEEP;
+        for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+            hands[hand] = best[handKeep[hand]];
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package tleibert.yahtzee.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import tleibert.yahtzee.model.GameListener;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Records every move of any number of games in one append-only journal
+ * file, for auditing and for {@link GameReplay}. Each move is one fixed
+ * size binary record written straight into a memory mapped region of the
+ * file, so recording a move allocates nothing and makes no system call.
+ * The mapped pages are forced to disk in the background every flush
+ * interval, and on {@link #flush()} and {@link #close()}.
+ *
+ * A journal is a 32 byte header followed by 32 byte records, all little
+ * endian. The header holds the magic number, the format version and the
+ * record size. A record holds, in order:
+ * <pre>
+ *  0  long   game id
+ *  8  long   packed dice; for GAME_OVER, the scores as four shorts
+ * 16  long   time in milliseconds since the epoch
+ * 24  short  points
+ * 26  byte   player
+ * 27  byte   keep mask, scoring type, or number of players
+ * 28  3 bytes unused
+ * 31  byte   event type, written last, zero past the end of the journal
+ * </pre>
+ * The file grows in chunks of {@link #CHUNK_BYTES}, so its tail is zeros.
+ * A record whose type byte was never written, for example because the
+ * process died in the middle of it, ends the journal.
+ *
+ * Recording is thread safe: any number of games on any number of threads
+ * can share one journal.
+ *
+ * @author Trevor Leibert
+ */
+public class GameJournal implements Closeable {
+
+    /** first eight bytes of every journal, "YAHTZJNL" */
+    public static final long MAGIC = 0x4C4E4A5A54484159L;
+
+    /** version of the file format */
+    public static final int FORMAT_VERSION = 1;
+
+    /** size of the header, and of every record, in bytes */
+    public static final int RECORD_BYTES = 32;
+
+    /** the file is mapped and grown this many bytes at a time */
+    public static final int CHUNK_BYTES = 1 << 26;
+
+    /** default time between forcing the journal to disk, in milliseconds */
+    public static final long DEFAULT_FLUSH_MILLIS = 100;
+
+    /** event type of a game being started */
+    public static final byte GAME_STARTED = 1;
+
+    /** event type of the dice being rolled */
+    public static final byte DICE_ROLLED = 2;
+
+    /** event type of a turn being scored */
+    public static final byte TURN_TAKEN = 3;
+
+    /** event type of the end of a game */
+    public static final byte GAME_OVER = 4;
+
+    /** offset of the dice in a record */
+    static final int DICE_OFFSET = 8;
+
+    /** offset of the time in a record */
+    static final int TIME_OFFSET = 16;
+
+    /** offset of the points in a record */
+    static final int POINTS_OFFSET = 24;
+
+    /** offset of the player in a record */
+    static final int PLAYER_OFFSET = 26;
+
+    /** offset of the argument in a record */
+    static final int ARG_OFFSET = 27;
+
+    /** offset of the event type in a record */
+    static final int TYPE_OFFSET = 31;
+
+    /** the journal file */
+    private final FileChannel channel;
+
+    /** mapped chunk that records are written to */
+    private volatile MappedByteBuffer chunk;
+
+    /** position of the mapped chunk in the file */
+    private long chunkStart;
+
+    /** position of the next record in the file */
+    private long position;
+
+    /** id of the next game */
+    private long nextGameId;
+
+    /** forces the journal to disk */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens a journal with the default flush interval, creating it if it
+     * does not exist, and continues after its last record.
+     * @param path the journal file
+     * @throws IOException if the file cannot be opened, or is not a journal
+     */
+    public GameJournal(Path path) throws IOException {
+        this(path, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * Opens a journal, creating it if it does not exist, and continues
+     * after its last record.
+     * @param path the journal file
+     * @param flushMillis time between forcing the journal to disk, in
+     *                    milliseconds, or 0 to force only when asked
+     * @throws IOException if the file cannot be opened, or is not a journal
+     */
+    public GameJournal(Path path, long flushMillis) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                mapChunk(0);
+                chunk.putLong(0, MAGIC);
+                chunk.putInt(8, FORMAT_VERSION);
+                chunk.putInt(12, RECORD_BYTES);
+                position = RECORD_BYTES;
+            } else {
+                try (JournalReader reader = new JournalReader(channel, path)) {
+                    while (reader.next()) {
+                        nextGameId = Math.max(nextGameId, reader.gameId() + 1);
+                    }
+                    position = reader.end();
+                }
+                mapChunk(position - position % CHUNK_BYTES);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "yahtzee-journal-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Starts recording a game. Its moves are recorded from now on, until
+     * its listener is replaced.
+     * @param game the game, before any move has been made
+     * @return id of the game in this journal
+     * @throws IllegalArgumentException if the game has more than
+     *         {@link YahtzeeGame#MAX_PLAYERS} players, which records have
+     *         no room for
+     */
+    public long record(YahtzeeGame game) {
+        if (game.getNumPlayers() > YahtzeeGame.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Too many players to record");
+        }
+        long gameId;
+        synchronized (this) {
+            gameId = nextGameId++;
+            append(gameId, GAME_STARTED, game.getSelectedPlayer(), game.getNumPlayers(), 0, 0);
+        }
+        game.setGameListener(new Recorder(gameId));
+        return gameId;
+    }
+
+    /**
+     * Forces every record written so far to disk. Recording carries on
+     * while the pages are written.
+     * @throws IOException if the journal cannot be written
+     */
+    public void flush() throws IOException {
+        chunk.force();
+    }
+
+    /**
+     * Flushes and closes the journal. Games still being recorded must not
+     * make any more moves.
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        chunk.force();
+        channel.close();
+    }
+
+    /**
+     * Forces the journal to disk from the flusher thread.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // the next flush, or close, tries again
+        }
+    }
+
+    /**
+     * Writes one record.
+     * @param gameId id of the game
+     * @param type event type
+     * @param player player
+     * @param arg keep mask, scoring type or number of players
+     * @param points points
+     * @param dice packed dice or scores
+     */
+    private synchronized void append(long gameId, byte type, int player, int arg, int points, long dice) {
+        if (position - chunkStart == CHUNK_BYTES) {
+            try {
+                chunk.force();
+                mapChunk(position);
+            } catch (IOException e) {
+                throw new IllegalStateException("Journal cannot grow", e);
+            }
+        }
+        int at = (int) (position - chunkStart);
+        chunk.putLong(at, gameId);
+        chunk.putLong(at + DICE_OFFSET, dice);
+        chunk.putLong(at + TIME_OFFSET, System.currentTimeMillis());
+        chunk.putShort(at + POINTS_OFFSET, (short) points);
+        chunk.put(at + PLAYER_OFFSET, (byte) player);
+        chunk.put(at + ARG_OFFSET, (byte) arg);
+        chunk.put(at + TYPE_OFFSET, type);
+        position += RECORD_BYTES;
+    }
+
+    /**
+     * Maps the chunk starting at the given position, growing the file.
+     * @param start position of the chunk
+     * @throws IOException if the file cannot be mapped
+     */
+    private void mapChunk(long start) throws IOException {
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, CHUNK_BYTES);
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        chunkStart = start;
+    }
+
+    /**
+     * Packs the scores of a game into a long, 16 bits per player.
+     * @param game the game
+     * @return the packed scores
+     */
+    private static long packScores(YahtzeeGame game) {
+        long scores = 0;
+        ScoreCard[] cards = game.getScoreCards();
+        for (int i = 0; i < cards.length; i++) {
+            scores |= (long) (cards[i].getScore() & 0xFFFF) << (16 * i);
+        }
+        return scores;
+    }
+
+    /**
+     * Records the moves of one game.
+     */
+    private class Recorder implements GameListener {
+
+        /** id of the game */
+        private final long gameId;
+
+        /**
+         * Constructs a Recorder.
+         * @param gameId id of the game
+         */
+        Recorder(long gameId) {
+            this.gameId = gameId;
+        }
+
+        @Override
+        public void diceRolled(YahtzeeGame game, int keepMask, long dice) {
+            append(gameId, DICE_ROLLED, game.getSelectedPlayer(), keepMask, 0, dice);
+        }
+
+        @Override
+        public void turnTaken(YahtzeeGame game, int player, int scoringType, int points, long dice) {
+            append(gameId, TURN_TAKEN, player, scoringType, points, dice);
+        }
+
+        @Override
+        public void gameOver(YahtzeeGame game) {
+            append(gameId, GAME_OVER, game.getWinner(), game.getNumPlayers(), 0, packScores(game));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package tleibert.yahtzee.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.RandomSource;
+
+/**
+ * Rebuilds games from a {@link GameJournal} by streaming its records and
+ * making every recorded move again. The recorded dice are fed back in as
+ * the rolls, so the rebuilt game goes through the same rules as the
+ * original, and every roll, turn and final score is checked against the
+ * journal on the way.
+ *
+ * @author Trevor Leibert
+ */
+public final class GameReplay {
+
+    /**
+     * GameReplay only has static members.
+     */
+    private GameReplay() {
+    }
+
+    /**
+     * Rebuilds one game.
+     * @param path the journal file
+     * @param gameId id of the game
+     * @return the game, as it was after its last recorded move
+     * @throws IOException if the journal cannot be read, does not hold the
+     *         game, or does not match the rules
+     */
+    public static YahtzeeGame replay(Path path, long gameId) throws IOException {
+        Replayed replayed = null;
+        try (JournalReader reader = new JournalReader(path)) {
+            while (reader.next()) {
+                if (reader.gameId() == gameId) {
+                    replayed = apply(replayed, reader, path);
+                }
+            }
+        }
+        if (replayed == null) {
+            throw new IOException(path + " has no game " + gameId);
+        }
+        return replayed.game;
+    }
+
+    /**
+     * Rebuilds every game in a journal.
+     * @param path the journal file
+     * @return the games by id, as they were after their last recorded move
+     * @throws IOException if the journal cannot be read or does not match the rules
+     */
+    public static Map<Long, YahtzeeGame> replayAll(Path path) throws IOException {
+        Map<Long, Replayed> replayed = new HashMap<>();
+        try (JournalReader reader = new JournalReader(path)) {
+            while (reader.next()) {
+                long gameId = reader.gameId();
+                replayed.put(gameId, apply(replayed.get(gameId), reader, path));
+            }
+        }
+        Map<Long, YahtzeeGame> games = new HashMap<>();
+        for (Map.Entry<Long, Replayed> entry : replayed.entrySet()) {
+            games.put(entry.getKey(), entry.getValue().game);
+        }
+        return games;
+    }
+
+    /**
+     * Makes the move of the current record again.
+     * @param replayed the game so far, or null before its first record
+     * @param reader reader on the record
+     * @param path the journal file, for messages
+     * @return the game after the move
+     * @throws IOException if the record does not match the game
+     */
+    private static Replayed apply(Replayed replayed, JournalReader reader, Path path) throws IOException {
+        byte type = reader.type();
+        if (replayed == null && type != GameJournal.GAME_STARTED
+                || replayed != null && type == GameJournal.GAME_STARTED) {
+            throw corrupt(path, reader, "out of order");
+        }
+        try {
+            switch (type) {
+                case GameJournal.GAME_STARTED:
+                    Playback playback = new Playback();
+                    return new Replayed(new YahtzeeGame(reader.arg(), reader.player(), playback), playback);
+
+                case GameJournal.DICE_ROLLED:
+                    YahtzeeGame game = replayed.game;
+                    long dice = PackedDice.of(replayed.faces(reader.dice()));
+                    replayed.playback.load(dice, game.getNumRolls() == 0 ? 0 : reader.arg());
+                    game.rollDice(reader.arg());
+                    if (game.getDiceBlock().getPacked() != dice) {
+                        throw corrupt(path, reader, "kept dice changed");
+                    }
+                    return replayed;
+
+                case GameJournal.TURN_TAKEN:
+                    DiceBlock block = replayed.game.getDiceBlock();
+                    block.setPacked(PackedDice.of(replayed.faces(reader.dice())));
+                    if (replayed.game.getSelectedPlayer() != reader.player()
+                            || replayed.game.takeTurn(block, reader.arg()) != reader.points()) {
+                        throw corrupt(path, reader, "turn does not match");
+                    }
+                    block.resetDice();
+                    return replayed;
+
+                case GameJournal.GAME_OVER:
+                    for (int i = 0; i < replayed.game.getNumPlayers(); i++) {
+                        if (replayed.game.getScoreCards()[i].getScore() != reader.score(i)) {
+                            throw corrupt(path, reader, "final score does not match");
+                        }
+                    }
+                    return replayed;
+
+                default:
+                    throw corrupt(path, reader, "unknown event " + type);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw corrupt(path, reader, e.getMessage());
+        }
+    }
+
+    /**
+     * Makes the exception thrown for a record that does not match.
+     * @param path the journal file
+     * @param reader reader on the record
+     * @param reason what is wrong
+     * @return the exception
+     */
+    private static IOException corrupt(Path path, JournalReader reader, String reason) {
+        return new IOException(path + " is corrupt: game " + reader.gameId() + ", " + reason);
+    }
+
+    /**
+     * A game being rebuilt, with the source its dice are rolled from.
+     */
+    private static class Replayed {
+
+        /** the game */
+        private final YahtzeeGame game;
+
+        /** feeds the recorded dice to the game */
+        private final Playback playback;
+
+        /** scratch space for unpacking dice */
+        private final int[] faces = new int[DiceBlock.NUM_DICE];
+
+        /**
+         * Constructs a Replayed.
+         * @param game the game
+         * @param playback feeds the recorded dice to the game
+         */
+        Replayed(YahtzeeGame game, Playback playback) {
+            this.game = game;
+            this.playback = playback;
+        }
+
+        /**
+         * Unpacks recorded dice, so they can be checked by repacking them.
+         * @param dice the recorded dice
+         * @return the values of the dice
+         */
+        int[] faces(long dice) {
+            for (int i = 0; i < faces.length; i++) {
+                faces[i] = PackedDice.face(dice, i);
+            }
+            return faces;
+        }
+    }
+
+    /**
+     * RandomSource that gives back recorded dice, in the order the game rolls them.
+     */
+    private static class Playback implements RandomSource {
+
+        /** values of the dice to give back */
+        private final int[] faces = new int[DiceBlock.NUM_DICE];
+
+        /** number of values loaded */
+        private int count;
+
+        /** index of the next value to give back */
+        private int next;
+
+        /**
+         * Loads the values of every die a roll changes.
+         * @param dice the dice after the roll
+         * @param keepMask bit i set if die i was kept
+         */
+        void load(long dice, int keepMask) {
+            count = 0;
+            next = 0;
+            for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+                if ((keepMask & (1 << i)) == 0) {
+                    faces[count++] = PackedDice.face(dice, i);
+                }
+            }
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            if (next == count) {
+                throw new IllegalStateException("more dice rolled than recorded");
+            }
+            return faces[next++] - 1;
+        }
+    }
+}
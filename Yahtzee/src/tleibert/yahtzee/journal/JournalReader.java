@@ -0,0 +1,219 @@
+package tleibert.yahtzee.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the records of a {@link GameJournal} in the order they were
+ * written. The journal is mapped read only one chunk at a time, and the
+ * reader is a cursor over it, so reading creates no object per record:
+ * call {@link #next()}, then read the fields of the current record.
+ *
+ * <pre>
+ * try (JournalReader reader = new JournalReader(path)) {
+ *     while (reader.next()) {
+ *         ... reader.gameId(), reader.type(), ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Trevor Leibert
+ */
+public class JournalReader implements Closeable {
+
+    /** the journal file */
+    private final FileChannel channel;
+
+    /** whether the channel was opened by this reader */
+    private final boolean ownsChannel;
+
+    /** size of the file when the reader was opened */
+    private final long size;
+
+    /** mapped chunk holding the current record */
+    private MappedByteBuffer chunk;
+
+    /** position of the mapped chunk in the file */
+    private long chunkStart;
+
+    /** position of the current record in the file */
+    private long position;
+
+    /** offset of the current record in the chunk */
+    private int at;
+
+    /**
+     * Opens a journal for reading.
+     * @param path the journal file
+     * @throws IOException if the file cannot be read, or is not a journal
+     */
+    public JournalReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), path, true);
+    }
+
+    /**
+     * Reads a journal through a channel opened by its writer.
+     * @param channel the journal file
+     * @param path the journal file, for messages
+     * @throws IOException if the file cannot be read, or is not a journal
+     */
+    JournalReader(FileChannel channel, Path path) throws IOException {
+        this(channel, path, false);
+    }
+
+    /**
+     * Constructs a JournalReader and checks the header.
+     * @param channel the journal file
+     * @param path the journal file, for messages
+     * @param ownsChannel whether to close the channel with the reader
+     * @throws IOException if the file cannot be read, or is not a journal
+     */
+    private JournalReader(FileChannel channel, Path path, boolean ownsChannel) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        try {
+            size = channel.size();
+            if (size < GameJournal.RECORD_BYTES) {
+                throw new IOException(path + " is not a game journal");
+            }
+            mapChunk(0);
+            if (chunk.getLong(0) != GameJournal.MAGIC) {
+                throw new IOException(path + " is not a game journal");
+            }
+            if (chunk.getInt(8) != GameJournal.FORMAT_VERSION || chunk.getInt(12) != GameJournal.RECORD_BYTES) {
+                throw new IOException(path + " is stale: version " + chunk.getInt(8)
+                        + ", expected " + GameJournal.FORMAT_VERSION);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        // the cursor starts on the header, before the first record
+        position = 0;
+        at = 0;
+    }
+
+    /**
+     * Moves to the next record.
+     * @return true if there is a next record, false at the end of the journal
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next() throws IOException {
+        long nextPosition = position + GameJournal.RECORD_BYTES;
+        if (nextPosition + GameJournal.RECORD_BYTES > size) {
+            return false;
+        }
+        if (nextPosition - chunkStart >= chunk.capacity()) {
+            mapChunk(nextPosition);
+        }
+        int nextAt = (int) (nextPosition - chunkStart);
+        if (chunk.get(nextAt + GameJournal.TYPE_OFFSET) == 0) {
+            return false;
+        }
+        position = nextPosition;
+        at = nextAt;
+        return true;
+    }
+
+    /**
+     * Returns the position just past the last record read, where the next
+     * record would be appended once {@link #next()} has returned false.
+     * @return position in the file
+     */
+    long end() {
+        return position + GameJournal.RECORD_BYTES;
+    }
+
+    /**
+     * Returns the game the current record belongs to.
+     * @return id of the game
+     */
+    public long gameId() {
+        return chunk.getLong(at);
+    }
+
+    /**
+     * Returns the event type of the current record, one of the event type
+     * constants of {@link GameJournal}.
+     * @return the event type
+     */
+    public byte type() {
+        return chunk.get(at + GameJournal.TYPE_OFFSET);
+    }
+
+    /**
+     * Returns the player of the current record: the first player when a
+     * game is started, the player to move when the dice are rolled, the
+     * player who scored a turn, or the winner of a game.
+     * @return index of the player
+     */
+    public int player() {
+        return chunk.get(at + GameJournal.PLAYER_OFFSET);
+    }
+
+    /**
+     * Returns the argument of the current record: the number of players
+     * when a game is started or over, the keep mask of a roll, or the
+     * scoring type of a turn.
+     * @return the argument
+     */
+    public int arg() {
+        return chunk.get(at + GameJournal.ARG_OFFSET);
+    }
+
+    /**
+     * Returns the points of the current record, if it is a turn.
+     * @return the points
+     */
+    public int points() {
+        return chunk.getShort(at + GameJournal.POINTS_OFFSET);
+    }
+
+    /**
+     * Returns the packed dice of the current record, if it is a roll or a turn.
+     * @return the dice, packed as in {@link tleibert.yahtzee.model.dice.PackedDice}
+     */
+    public long dice() {
+        return chunk.getLong(at + GameJournal.DICE_OFFSET);
+    }
+
+    /**
+     * Returns the score of a player, if the current record is the end of a game.
+     * @param player index of the player
+     * @return the final score
+     */
+    public int score(int player) {
+        return (int) (dice() >>> (16 * player)) & 0xFFFF;
+    }
+
+    /**
+     * Returns when the current record was written.
+     * @return time in milliseconds since the epoch
+     */
+    public long time() {
+        return chunk.getLong(at + GameJournal.TIME_OFFSET);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Maps the chunk starting at the given position.
+     * @param start position of the chunk
+     * @throws IOException if the file cannot be mapped
+     */
+    private void mapChunk(long start) throws IOException {
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(GameJournal.CHUNK_BYTES, size - start));
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        chunkStart = start;
+    }
+}
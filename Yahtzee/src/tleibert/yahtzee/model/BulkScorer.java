@@ -0,0 +1,157 @@
+package tleibert.yahtzee.model;
+
+import tleibert.yahtzee.model.dice.HandIndex;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * Scores large arrays of hands in every scoring type at once, for
+ * analysing recorded games. The points are the base points of
+ * {@link ScoreTable}, which is built from the rules of {@link ScoreCard},
+ * so they are exactly what {@link ScoreCard#evaluate(int, int[])} gives a
+ * new ScoreCard; bonuses depend on a card and are left out.
+ *
+ * A hand costs one table lookup to find its {@link HandIndex} id, then a
+ * copy of its 13 points, with no objects and no calls per scoring type.
+ * Every method only reads the tables, so any number of threads can score
+ * at once, and none allocates.
+ *
+ * @author Trevor Leibert
+ */
+public final class BulkScorer {
+
+    /** number of hands whose ids are found before the columns are filled */
+    private static final int BLOCK = 1024;
+
+    /** ids of a block of hands, one buffer per thread so scoring allocates nothing */
+    private static final ThreadLocal<int[]> HAND_IDS = ThreadLocal.withInitial(() -> new int[BLOCK]);
+
+    /** base points of each scoring type, one array per type indexed by hand id */
+    private static final int[][] COLUMNS = new int[ScoreTable.NUM_CATEGORIES][HandIndex.NUM_HANDS];
+
+    static {
+        for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                COLUMNS[type][hand] = ScoreTable.points(hand, type);
+            }
+        }
+    }
+
+    /**
+     * BulkScorer only has static members.
+     */
+    private BulkScorer() {
+    }
+
+    /**
+     * Scores hands in every scoring type, hand by hand: the points of hand
+     * {@code from + i} in type t go to {@code points[offset + i * 13 + t]}.
+     * @param hands packed hands, see {@link PackedDice}
+     * @param from index of the first hand to score
+     * @param to index after the last hand to score
+     * @param points array to fill
+     * @param offset position in points of the first hand's points
+     * @throws IllegalArgumentException if a hand has not been rolled
+     * @throws IndexOutOfBoundsException if a range falls outside its array
+     */
+    public static void score(long[] hands, int from, int to, int[] points, int offset) {
+        checkRange(hands, from, to);
+        if (offset < 0 || (long) offset + (long) (to - from) * ScoreTable.NUM_CATEGORIES > points.length) {
+            throw new IndexOutOfBoundsException("Points array is too short");
+        }
+        for (int i = from; i < to; i++, offset += ScoreTable.NUM_CATEGORIES) {
+            ScoreTable.copyPoints(handId(hands[i]), points, offset);
+        }
+    }
+
+    /**
+     * Scores hands in every scoring type, type by type: the points of hand
+     * {@code from + i} in type t go to {@code columns[t][offset + i]}.
+     * @param hands packed hands, see {@link PackedDice}
+     * @param from index of the first hand to score
+     * @param to index after the last hand to score
+     * @param columns 13 arrays to fill, one for each scoring type
+     * @param offset position in each column of the first hand's points
+     * @throws IllegalArgumentException if a hand has not been rolled
+     * @throws IndexOutOfBoundsException if a range falls outside its array
+     */
+    public static void scoreColumns(long[] hands, int from, int to, int[][] columns, int offset) {
+        checkRange(hands, from, to);
+        if (columns.length < ScoreTable.NUM_CATEGORIES) {
+            throw new IllegalArgumentException("Need a column for every scoring type");
+        }
+        for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+            if (offset < 0 || (long) offset + (to - from) > columns[type].length) {
+                throw new IndexOutOfBoundsException("Column is too short");
+            }
+        }
+        // find the hands a block at a time, then fill each column in one pass
+        int[] handIds = HAND_IDS.get();
+        for (int start = from; start < to; start += BLOCK) {
+            int n = Math.min(BLOCK, to - start);
+            for (int i = 0; i < n; i++) {
+                handIds[i] = handId(hands[start + i]);
+            }
+            int at = offset + start - from;
+            for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+                int[] table = COLUMNS[type];
+                int[] column = columns[type];
+                for (int i = 0; i < n; i++) {
+                    column[at + i] = table[handIds[i]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores hands in one scoring type.
+     * @param hands packed hands, see {@link PackedDice}
+     * @param from index of the first hand to score
+     * @param to index after the last hand to score
+     * @param scoringType scoring type between 0 and 12
+     * @param points array to fill, points[offset + i] for hand from + i
+     * @param offset position in points of the first hand's points
+     * @throws IllegalArgumentException if a hand has not been rolled, or
+     *         the scoring type is invalid
+     * @throws IndexOutOfBoundsException if a range falls outside its array
+     */
+    public static void score(long[] hands, int from, int to, int scoringType, int[] points, int offset) {
+        checkRange(hands, from, to);
+        if (scoringType < 0 || scoringType >= ScoreTable.NUM_CATEGORIES) {
+            throw new IllegalArgumentException("Invalid scoring type");
+        }
+        if (offset < 0 || (long) offset + (to - from) > points.length) {
+            throw new IndexOutOfBoundsException("Points array is too short");
+        }
+        int[] column = COLUMNS[scoringType];
+        for (int i = from; i < to; i++) {
+            points[offset + i - from] = column[handId(hands[i])];
+        }
+    }
+
+    /**
+     * Returns the id of a hand.
+     * @param hand packed hand
+     * @return the hand id
+     * @throws IllegalArgumentException if the hand has not been rolled
+     */
+    private static int handId(long hand) {
+        int handId = PackedDice.canonicalId(hand);
+        if (handId < 0) {
+            throw new IllegalArgumentException("Dice have not been rolled");
+        }
+        return handId;
+    }
+
+    /**
+     * Checks a range of hands.
+     * @param hands packed hands
+     * @param from index of the first hand
+     * @param to index after the last hand
+     * @throws IndexOutOfBoundsException if the range falls outside the array
+     */
+    private static void checkRange(long[] hands, int from, int to) {
+        if (from < 0 || to > hands.length || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range of hands");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package tleibert.yahtzee.model;
+
+import tleibert.yahtzee.model.dice.HandIndex;
+
+/**
+ * Encodes everything a {@link ScoreCard} knows in a single long, so cards
+ * can be stored by the million, used as table keys, and scored without any
+ * objects. Every method is a pure function of its arguments.
+ *
+ * Layout of a packed card, from the lowest bit up:
+ * <ul>
+ * <li>bits 0-12: the used scoring types, bit i set once type i is used.
+ *     The Yahtzee box stays open while it keeps scoring Yahtzees, so its
+ *     bit is only set once it is scored for zero.</li>
+ * <li>bits 13-18: the upper score, capped at {@link ScoreCard#BONUS_SCORE_THRESHOLD}
+ *     since points past it make no difference</li>
+ * <li>bit 19: whether a Yahtzee has been scored</li>
+ * <li>bit 20: whether the upper score bonus has been awarded</li>
+ * <li>bits 21-24: the number of Yahtzees scored for the bonus amount</li>
+ * <li>bits 25-36: the total score</li>
+ * </ul>
+ *
+ * @author Trevor Leibert
+ */
+public final class CardState {
+
+    /** packed value of a new ScoreCard */
+    public static final long EMPTY = 0L;
+
+    /** mask with a bit for every scoring type */
+    public static final int ALL_CATEGORIES = (1 << ScoreTable.NUM_CATEGORIES) - 1;
+
+    /** mask with a bit for every upper scoring type */
+    public static final int UPPER_CATEGORIES = (1 << (ScoreCard.SIXES + 1)) - 1;
+
+    /** position of the upper score */
+    private static final int UPPER_SHIFT = ScoreTable.NUM_CATEGORIES;
+
+    /** mask for the upper score once shifted down */
+    private static final long UPPER_MASK = (1L << 6) - 1;
+
+    /** bit set once a Yahtzee has been scored */
+    private static final long YAHTZEE_FLAG = 1L << (UPPER_SHIFT + 6);
+
+    /** bit set once the upper score bonus has been awarded */
+    private static final long BONUS_FLAG = YAHTZEE_FLAG << 1;
+
+    /** position of the number of bonus Yahtzees */
+    private static final int BONUS_YAHTZEES_SHIFT = UPPER_SHIFT + 8;
+
+    /** mask for the number of bonus Yahtzees once shifted down */
+    private static final long BONUS_YAHTZEES_MASK = (1L << 4) - 1;
+
+    /** position of the total score */
+    private static final int SCORE_SHIFT = BONUS_YAHTZEES_SHIFT + 4;
+
+    /** mask for the total score once shifted down */
+    private static final long SCORE_MASK = (1L << 12) - 1;
+
+    /**
+     * CardState only has static members.
+     */
+    private CardState() {
+    }
+
+    /**
+     * Returns the used scoring types.
+     * @param state packed card
+     * @return bit i set if scoring type i is used
+     */
+    public static int usedMask(long state) {
+        return (int) state & ALL_CATEGORIES;
+    }
+
+    /**
+     * Returns the scoring types that can still be scored.
+     * @param state packed card
+     * @return bit i set if scoring type i is open
+     */
+    public static int availableMask(long state) {
+        return ~(int) state & ALL_CATEGORIES;
+    }
+
+    /**
+     * Returns whether a scoring type is used.
+     * @param state packed card
+     * @param scoringType scoring type between 0 and 12
+     * @return true if the scoring type is used
+     */
+    public static boolean isUsed(long state, int scoringType) {
+        return (state & (1L << scoringType)) != 0;
+    }
+
+    /**
+     * Returns the upper score, capped at {@link ScoreCard#BONUS_SCORE_THRESHOLD}.
+     * @param state packed card
+     * @return the capped upper score
+     */
+    public static int upperScore(long state) {
+        return (int) ((state >>> UPPER_SHIFT) & UPPER_MASK);
+    }
+
+    /**
+     * Returns whether a Yahtzee has been scored.
+     * @param state packed card
+     * @return true after the first Yahtzee
+     */
+    public static boolean hadYahtzee(long state) {
+        return (state & YAHTZEE_FLAG) != 0;
+    }
+
+    /**
+     * Returns whether the upper score bonus has been awarded.
+     * @param state packed card
+     * @return true once the bonus is awarded
+     */
+    public static boolean hadBonusScore(long state) {
+        return (state & BONUS_FLAG) != 0;
+    }
+
+    /**
+     * Returns the number of Yahtzees scored for {@link ScoreCard#YAHTZEE_BONUS}.
+     * @param state packed card
+     * @return number of bonus Yahtzees
+     */
+    public static int bonusYahtzees(long state) {
+        return (int) ((state >>> BONUS_YAHTZEES_SHIFT) & BONUS_YAHTZEES_MASK);
+    }
+
+    /**
+     * Returns the total score.
+     * @param state packed card
+     * @return the score
+     */
+    public static int score(long state) {
+        return (int) ((state >>> SCORE_SHIFT) & SCORE_MASK);
+    }
+
+    /**
+     * Returns the number of turns scored on the card.
+     * @param state packed card
+     * @return number of turns
+     */
+    public static int turnsTaken(long state) {
+        return Integer.bitCount(usedMask(state)) + (hadYahtzee(state) ? 1 : 0) + bonusYahtzees(state);
+    }
+
+    /**
+     * Returns the points scoring a hand in a scoring type is worth, not
+     * counting the upper score bonus. A Yahtzee after the first is worth
+     * {@link ScoreCard#YAHTZEE_BONUS}.
+     * @param state packed card
+     * @param handId hand id from {@link HandIndex}
+     * @param scoringType scoring type between 0 and 12
+     * @return the points of the turn
+     */
+    public static int turnPoints(long state, int handId, int scoringType) {
+        int points = ScoreTable.points(handId, scoringType);
+        if (scoringType == ScoreCard.YAHTZEE && points > 0 && hadYahtzee(state)) {
+            return ScoreCard.YAHTZEE_BONUS;
+        }
+        return points;
+    }
+
+    /**
+     * Returns the points scoring a hand in a scoring type adds to the total
+     * score, including the upper score bonus if the turn earns it.
+     * @param state packed card
+     * @param handId hand id from {@link HandIndex}
+     * @param scoringType scoring type between 0 and 12
+     * @return the points added
+     */
+    public static int gain(long state, int handId, int scoringType) {
+        return score(score(state, handId, scoringType)) - score(state);
+    }
+
+    /**
+     * Scores a hand in a scoring type. Like {@link ScoreCard#score}, this
+     * does not check whether the type is already used.
+     * @param state packed card
+     * @param handId hand id from {@link HandIndex}
+     * @param scoringType scoring type between 0 and 12
+     * @return the packed card after the turn
+     */
+    public static long score(long state, int handId, int scoringType) {
+        int points = turnPoints(state, handId, scoringType);
+        int score = score(state) + points;
+        if (scoringType <= ScoreCard.SIXES) {
+            int upper = Math.min(ScoreCard.BONUS_SCORE_THRESHOLD, upperScore(state) + points);
+            state |= 1L << scoringType;
+            state = (state & ~(UPPER_MASK << UPPER_SHIFT)) | (long) upper << UPPER_SHIFT;
+            if (!hadBonusScore(state) && upper >= ScoreCard.BONUS_SCORE_THRESHOLD
+                    && (state & UPPER_CATEGORIES) == UPPER_CATEGORIES) {
+                state |= BONUS_FLAG;
+                score += ScoreCard.BONUS_SCORE_POINTS;
+            }
+        } else if (scoringType != ScoreCard.YAHTZEE || points == 0) {
+            state |= 1L << scoringType;
+        } else if (!hadYahtzee(state)) {
+            state |= YAHTZEE_FLAG;
+        } else {
+            int bonus = Math.min(bonusYahtzees(state) + 1, (int) BONUS_YAHTZEES_MASK);
+            state = (state & ~(BONUS_YAHTZEES_MASK << BONUS_YAHTZEES_SHIFT)) | (long) bonus << BONUS_YAHTZEES_SHIFT;
+        }
+        return withScore(state, score);
+    }
+
+    /**
+     * Returns the card with its total score set to zero, leaving everything
+     * that decides the points still to come.
+     * @param state packed card
+     * @return the packed card without its score
+     */
+    public static long withoutScore(long state) {
+        return withScore(state, 0);
+    }
+
+    /**
+     * Checks that a long is a card this class could have made.
+     * @param state packed card
+     * @return true if every field is in range
+     */
+    public static boolean isValid(long state) {
+        return (state >>> (SCORE_SHIFT + 12)) == 0
+                && upperScore(state) <= ScoreCard.BONUS_SCORE_THRESHOLD
+                && (!hadBonusScore(state) || upperScore(state) == ScoreCard.BONUS_SCORE_THRESHOLD
+                        && (state & UPPER_CATEGORIES) == UPPER_CATEGORIES)
+                && (hadYahtzee(state) || bonusYahtzees(state) == 0);
+    }
+
+    /**
+     * Replaces the total score.
+     * @param state packed card
+     * @param score new total score
+     * @return the packed card
+     */
+    private static long withScore(long state, int score) {
+        return (state & ~(SCORE_MASK << SCORE_SHIFT)) | (Math.min(score, SCORE_MASK) << SCORE_SHIFT);
+    }
+}
@@ -0,0 +1,40 @@
+package tleibert.yahtzee.model;
+
+/**
+ * Listens to the moves made in a {@link YahtzeeGame}. The listener is
+ * called on the thread making the move, right after the move, so it should
+ * return quickly. Every method does nothing by default.
+ *
+ * @author Trevor Leibert
+ */
+public interface GameListener {
+
+    /**
+     * Called after the dice of the game are rolled with
+     * {@link YahtzeeGame#rollDice(int)}.
+     * @param game the game
+     * @param keepMask bit i set if die i was kept, zero on the first roll
+     * @param dice the dice after the roll, packed as in
+     *             {@link tleibert.yahtzee.model.dice.PackedDice}
+     */
+    default void diceRolled(YahtzeeGame game, int keepMask, long dice) {
+    }
+
+    /**
+     * Called after a player scores a turn.
+     * @param game the game
+     * @param player index of the player who scored
+     * @param scoringType type that was scored
+     * @param points points the turn was worth
+     * @param dice the dice that were scored, packed
+     */
+    default void turnTaken(YahtzeeGame game, int player, int scoringType, int points, long dice) {
+    }
+
+    /**
+     * Called once, after the last turn of the game.
+     * @param game the game
+     */
+    default void gameOver(YahtzeeGame game) {
+    }
+}
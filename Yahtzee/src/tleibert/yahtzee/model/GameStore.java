@@ -0,0 +1,728 @@
+package tleibert.yahtzee.model;
+
+import java.util.Arrays;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * Keeps the state of many Yahtzee games in parallel primitive arrays, so
+ * millions of games that sit idle between moves, as in play by mail, cost
+ * a few longs each instead of a graph of objects. Every game takes:
+ * <ul>
+ * <li>one long holding its dice as in {@link PackedDice}, with the number
+ *     of players, the player to move, the rolls and the turns taken packed
+ *     into the bits above them</li>
+ * <li>one long holding the state of its random number generator</li>
+ * <li>{@link YahtzeeGame#MAX_PLAYERS} longs holding its cards as in
+ *     {@link CardState}</li>
+ * </ul>
+ * which makes {@value #LONGS_PER_GAME} longs, 48 bytes, whatever the
+ * number of players.
+ *
+ * Games are numbered by their slot, and the slots of removed games are
+ * reused. The moves follow the rules of {@link YahtzeeGame#rollDice(int)}
+ * and {@link YahtzeeGame#scoreTurn(int)}, and a game seeded with a number
+ * rolls the same dice as a YahtzeeGame playing the same moves with a
+ * {@link tleibert.yahtzee.model.dice.SplittableRandomSource} of that seed.
+ * {@link Game} and {@link Card} are flyweights that read and play a game
+ * of the store through the same methods as YahtzeeGame and ScoreCard.
+ *
+ * A GameStore is not thread safe.
+ *
+ * @author Trevor Leibert
+ */
+public class GameStore {
+
+    /** number of games room is made for at first */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** longs taken by every game: six, or 48 bytes, with four players a game */
+    public static final int LONGS_PER_GAME = 2 + YahtzeeGame.MAX_PLAYERS;
+
+    /** number of bits of the header holding the dice */
+    private static final int DICE_BITS = 40;
+
+    /** mask of the dice in a header */
+    private static final long DICE_MASK = (1L << DICE_BITS) - 1;
+
+    /** position of the number of players - 2 */
+    private static final int PLAYERS_SHIFT = DICE_BITS;
+
+    /** position of the player to move */
+    private static final int PLAYER_SHIFT = PLAYERS_SHIFT + 2;
+
+    /** position of the number of rolls this turn */
+    private static final int ROLLS_SHIFT = PLAYER_SHIFT + 2;
+
+    /** position of the number of turns taken */
+    private static final int TURNS_SHIFT = ROLLS_SHIFT + 2;
+
+    /** mask of a two bit field once shifted down */
+    private static final long TWO_BITS = 3;
+
+    /** mask of the number of turns once shifted down */
+    private static final long TURNS_MASK = 63;
+
+    /** set in the header of every game in use */
+    private static final long LIVE_FLAG = 1L << 63;
+
+    /** step of the generator, as used by {@link java.util.SplittableRandom} */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** dice, players, player to move, rolls and turns of each game */
+    private long[] headers;
+
+    /** state of the random number generator of each game */
+    private long[] seeds;
+
+    /** cards of each game, MAX_PLAYERS in a row */
+    private long[] cards;
+
+    /** slots of removed games, to be reused */
+    private int[] free = new int[0];
+
+    /** number of slots in free */
+    private int numFree;
+
+    /** number of slots ever used */
+    private int used;
+
+    /**
+     * Constructs a GameStore with room for {@link #DEFAULT_CAPACITY} games.
+     */
+    public GameStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a GameStore. It grows past its capacity as needed.
+     * @param capacity number of games to make room for
+     */
+    public GameStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        headers = new long[capacity];
+        seeds = new long[capacity];
+        cards = new long[capacity * YahtzeeGame.MAX_PLAYERS];
+    }
+
+    /**
+     * Starts a game with a random first player, drawn from the seed as
+     * {@link YahtzeeGame#YahtzeeGame(int, tleibert.yahtzee.model.dice.RandomSource)} does.
+     * @param players number of players
+     * @param seed seed of the dice
+     * @return the number of the game
+     */
+    public int newGame(int players, long seed) {
+        return newGame(players, -1, seed);
+    }
+
+    /**
+     * Starts a game.
+     * @param players number of players
+     * @param firstPlayer index of the player who takes the first turn, or
+     *                    -1 to choose one at random
+     * @param seed seed of the dice
+     * @return the number of the game
+     */
+    public int newGame(int players, int firstPlayer, long seed) {
+        if (players < YahtzeeGame.MIN_PLAYERS || players > YahtzeeGame.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Invalid number of players");
+        }
+        if (firstPlayer < -1 || firstPlayer >= players) {
+            throw new IllegalArgumentException("Invalid first player");
+        }
+        int game;
+        if (numFree > 0) {
+            game = free[--numFree];
+        } else {
+            if (used == headers.length) {
+                grow();
+            }
+            game = used++;
+        }
+        seeds[game] = seed;
+        if (firstPlayer < 0) {
+            firstPlayer = nextInt(game, players);
+        }
+        Arrays.fill(cards, game * YahtzeeGame.MAX_PLAYERS, (game + 1) * YahtzeeGame.MAX_PLAYERS, CardState.EMPTY);
+        headers[game] = LIVE_FLAG | (long) (players - YahtzeeGame.MIN_PLAYERS) << PLAYERS_SHIFT
+                | (long) firstPlayer << PLAYER_SHIFT;
+        return game;
+    }
+
+    /**
+     * Removes a game, so its slot can be reused.
+     * @param game number of the game
+     */
+    public void removeGame(int game) {
+        check(game);
+        headers[game] = 0;
+        if (numFree == free.length) {
+            free = Arrays.copyOf(free, Math.max(16, free.length * 2));
+        }
+        free[numFree++] = game;
+    }
+
+    /**
+     * Returns whether a number names a game in the store.
+     * @param game number of the game
+     * @return true if the game has been started and not removed
+     */
+    public boolean contains(int game) {
+        return game >= 0 && game < used && headers[game] != 0;
+    }
+
+    /**
+     * Returns the number of games in the store.
+     * @return number of games
+     */
+    public int size() {
+        return used - numFree;
+    }
+
+    /**
+     * Returns the number of games the store has room for before it grows.
+     * @return the capacity
+     */
+    public int capacity() {
+        return headers.length;
+    }
+
+    /**
+     * Rolls the dice of a game for the current player, as
+     * {@link YahtzeeGame#rollDice(int)} does.
+     * @param game number of the game
+     * @param keepMask bit i set if die i is kept, ignored on the first roll
+     * @throws IllegalStateException if the game is over, or if the dice
+     *         have already been rolled three times this turn
+     */
+    public void rollDice(int game, int keepMask) {
+        long header = headers[check(game)];
+        if (isOver(header)) {
+            throw new IllegalStateException("Game is over");
+        }
+        int rolls = (int) (header >>> ROLLS_SHIFT & TWO_BITS);
+        if (rolls >= YahtzeeGame.MAX_ROLLS) {
+            throw new IllegalStateException("No rolls left this turn");
+        }
+        if (rolls == 0) {
+            keepMask = 0;
+        }
+        long dice = header & DICE_MASK;
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            if ((keepMask & (1 << i)) == 0) {
+                dice = PackedDice.withFace(dice, i, nextInt(game, Die.MAX_VALUE) + 1);
+            }
+        }
+        headers[game] = (header & ~DICE_MASK & ~(TWO_BITS << ROLLS_SHIFT)) | dice
+                | (long) (rolls + 1) << ROLLS_SHIFT;
+    }
+
+    /**
+     * Ends the current player's turn by scoring the dice of a game, as
+     * {@link YahtzeeGame#scoreTurn(int)} does.
+     * @param game number of the game
+     * @param scoringType method of scoring for the dice
+     * @return the score recieved from this turn
+     * @throws IllegalArgumentException if the scoring type is invalid or
+     *         has already been used by the current player
+     * @throws IllegalStateException if the game is over, or if the dice
+     *         have not been rolled this turn
+     */
+    public int scoreTurn(int game, int scoringType) {
+        long header = headers[check(game)];
+        if (isOver(header)) {
+            throw new IllegalStateException("Game is over");
+        }
+        if ((header >>> ROLLS_SHIFT & TWO_BITS) == 0) {
+            throw new IllegalStateException("Dice have not been rolled");
+        }
+        if (scoringType < 0 || scoringType >= ScoreTable.NUM_CATEGORIES) {
+            throw new IllegalArgumentException("Invalid scoring type");
+        }
+        int player = (int) (header >>> PLAYER_SHIFT & TWO_BITS);
+        int slot = game * YahtzeeGame.MAX_PLAYERS + player;
+        if (CardState.isUsed(cards[slot], scoringType)) {
+            throw new IllegalArgumentException("Scoring type already used");
+        }
+        int handId = PackedDice.canonicalId(header & DICE_MASK);
+        int points = CardState.turnPoints(cards[slot], handId, scoringType);
+        cards[slot] = CardState.score(cards[slot], handId, scoringType);
+
+        int players = numPlayers(header);
+        int next = player + 1 == players ? 0 : player + 1;
+        long turns = (header >>> TURNS_SHIFT & TURNS_MASK) + 1;
+        headers[game] = LIVE_FLAG | (long) (players - YahtzeeGame.MIN_PLAYERS) << PLAYERS_SHIFT
+                | (long) next << PLAYER_SHIFT | turns << TURNS_SHIFT;
+        return points;
+    }
+
+    /**
+     * Returns the number of players of a game.
+     * @param game number of the game
+     * @return number of players
+     */
+    public int getNumPlayers(int game) {
+        return numPlayers(headers[check(game)]);
+    }
+
+    /**
+     * Returns the number of times the dice of a game have been rolled this turn.
+     * @param game number of the game
+     * @return number of rolls
+     */
+    public int getNumRolls(int game) {
+        return (int) (headers[check(game)] >>> ROLLS_SHIFT & TWO_BITS);
+    }
+
+    /**
+     * Returns the number of turns taken in a game, by every player together.
+     * @param game number of the game
+     * @return number of turns
+     */
+    public int getNumTurns(int game) {
+        return (int) (headers[check(game)] >>> TURNS_SHIFT & TURNS_MASK);
+    }
+
+    /**
+     * Returns the player to move in a game.
+     * @param game number of the game
+     * @return index of the player
+     */
+    public int getSelectedPlayer(int game) {
+        return (int) (headers[check(game)] >>> PLAYER_SHIFT & TWO_BITS);
+    }
+
+    /**
+     * Returns whether a game is over.
+     * @param game number of the game
+     * @return true once every player has taken every turn
+     */
+    public boolean getIsOver(int game) {
+        return isOver(headers[check(game)]);
+    }
+
+    /**
+     * Returns the dice of a game.
+     * @param game number of the game
+     * @return the dice, see {@link PackedDice}
+     */
+    public long getDice(int game) {
+        return headers[check(game)] & DICE_MASK;
+    }
+
+    /**
+     * Returns the card of a player of a game.
+     * @param game number of the game
+     * @param player index of the player
+     * @return the card, see {@link CardState}
+     */
+    public long getCardState(int game, int player) {
+        return cards[slot(game, player)];
+    }
+
+    /**
+     * Returns the score of a player of a game.
+     * @param game number of the game
+     * @param player index of the player
+     * @return the score
+     */
+    public int getScore(int game, int player) {
+        return CardState.score(cards[slot(game, player)]);
+    }
+
+    /**
+     * Returns the player with the highest score in a game, the lowest
+     * player number among tied players, as {@link YahtzeeGame#getWinner()} does.
+     * @param game number of the game
+     * @return index of the player
+     */
+    public int getWinner(int game) {
+        int players = getNumPlayers(game);
+        int base = game * YahtzeeGame.MAX_PLAYERS;
+        int winner = 0;
+        for (int player = 1; player < players; player++) {
+            if (CardState.score(cards[base + player]) > CardState.score(cards[base + winner])) {
+                winner = player;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Returns the rank of a player of a game, as {@link YahtzeeGame#getRank(int)} does.
+     * @param game number of the game
+     * @param player index of the player
+     * @return the rank, 1 for a leader
+     */
+    public int getRank(int game, int player) {
+        int score = getScore(game, player);
+        int players = getNumPlayers(game);
+        int base = game * YahtzeeGame.MAX_PLAYERS;
+        int rank = 1;
+        for (int other = 0; other < players; other++) {
+            if (CardState.score(cards[base + other]) > score) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns a flyweight reading and playing a game of this store.
+     * @param game number of the game
+     * @return the flyweight
+     */
+    public Game getGame(int game) {
+        check(game);
+        return new Game(game);
+    }
+
+    /**
+     * Returns whether a header is of a game that is over.
+     * @param header the header
+     * @return true once every player has taken every turn
+     */
+    private static boolean isOver(long header) {
+        return (header >>> TURNS_SHIFT & TURNS_MASK) == (long) numPlayers(header) * YahtzeeGame.NUM_TURNS_PER_PLAYER;
+    }
+
+    /**
+     * Returns the number of players in a header.
+     * @param header the header
+     * @return number of players
+     */
+    private static int numPlayers(long header) {
+        return (int) (header >>> PLAYERS_SHIFT & TWO_BITS) + YahtzeeGame.MIN_PLAYERS;
+    }
+
+    /**
+     * Checks that a number names a game in the store.
+     * @param game number of the game
+     * @return the number
+     * @throws IllegalArgumentException if there is no such game
+     */
+    private int check(int game) {
+        if (!contains(game)) {
+            throw new IllegalArgumentException("No such game");
+        }
+        return game;
+    }
+
+    /**
+     * Returns the position of a player's card.
+     * @param game number of the game
+     * @param player index of the player
+     * @return the position in cards
+     */
+    private int slot(int game, int player) {
+        if (player < 0 || player >= getNumPlayers(game)) {
+            throw new IllegalArgumentException("Invalid player");
+        }
+        return game * YahtzeeGame.MAX_PLAYERS + player;
+    }
+
+    /**
+     * Draws a number from the generator of a game, the same way
+     * {@link java.util.SplittableRandom#nextInt(int)} does.
+     * @param game number of the game
+     * @param bound upper bound, must be positive
+     * @return a number from zero up to, but not including, the bound
+     */
+    private int nextInt(int game, int bound) {
+        int r = mix32(seeds[game] += GOLDEN_GAMMA);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(seeds[game] += GOLDEN_GAMMA) >>> 1) {
+            // draw again to stay unbiased
+        }
+        return r;
+    }
+
+    /**
+     * Mixes a generator state into 32 random bits, as SplittableRandom does.
+     * @param z the state
+     * @return the bits
+     */
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Doubles the room for games.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(Integer.MAX_VALUE / YahtzeeGame.MAX_PLAYERS, headers.length * 2L);
+        if (capacity == headers.length) {
+            throw new IllegalStateException("Store is full");
+        }
+        headers = Arrays.copyOf(headers, capacity);
+        seeds = Arrays.copyOf(seeds, capacity);
+        cards = Arrays.copyOf(cards, capacity * YahtzeeGame.MAX_PLAYERS);
+    }
+
+    /**
+     * Reads and plays one game of the store through the methods of
+     * {@link YahtzeeGame}. A Game holds nothing but the number of the game,
+     * and can be moved to another game, so one can serve every request.
+     */
+    public final class Game {
+
+        /** number of the game */
+        private int game;
+
+        /** flyweight cards of the players, made when first asked for */
+        private final Card[] cards = new Card[YahtzeeGame.MAX_PLAYERS];
+
+        /**
+         * Constructs a Game.
+         * @param game number of the game
+         */
+        private Game(int game) {
+            this.game = game;
+        }
+
+        /**
+         * Points this flyweight at another game of the store.
+         * @param game number of the game
+         * @return this flyweight
+         */
+        public Game moveTo(int game) {
+            this.game = check(game);
+            return this;
+        }
+
+        /**
+         * Returns the number of the game.
+         * @return the number
+         */
+        public int getId() {
+            return game;
+        }
+
+        /**
+         * Rolls the dice, see {@link YahtzeeGame#rollDice(int)}.
+         * @param keepMask bit i set if die i is kept, ignored on the first roll
+         */
+        public void rollDice(int keepMask) {
+            GameStore.this.rollDice(game, keepMask);
+        }
+
+        /**
+         * Scores the dice, see {@link YahtzeeGame#scoreTurn(int)}.
+         * @param scoringType method of scoring for the dice
+         * @return the score recieved from this turn
+         */
+        public int scoreTurn(int scoringType) {
+            return GameStore.this.scoreTurn(game, scoringType);
+        }
+
+        /**
+         * Returns the number of players.
+         * @return number of players
+         */
+        public int getNumPlayers() {
+            return GameStore.this.getNumPlayers(game);
+        }
+
+        /**
+         * Returns the number of rolls this turn.
+         * @return number of rolls
+         */
+        public int getNumRolls() {
+            return GameStore.this.getNumRolls(game);
+        }
+
+        /**
+         * Returns the player to move.
+         * @return index of the player
+         */
+        public int getSelectedPlayer() {
+            return GameStore.this.getSelectedPlayer(game);
+        }
+
+        /**
+         * Returns the player to move in a displayable format.
+         * @return index of the player + 1
+         */
+        public int getTurn() {
+            return getSelectedPlayer() + 1;
+        }
+
+        /**
+         * Returns whether the game is over.
+         * @return whether game is over
+         */
+        public boolean getIsOver() {
+            return GameStore.this.getIsOver(game);
+        }
+
+        /**
+         * Returns the dice.
+         * @return the dice, see {@link PackedDice}
+         */
+        public long getDice() {
+            return GameStore.this.getDice(game);
+        }
+
+        /**
+         * Returns whether the current player can still score a type.
+         * @param scoringType scoring type
+         * @return true if the scoring type is open
+         */
+        public boolean isOpen(int scoringType) {
+            return !CardState.isUsed(getCardState(game, getSelectedPlayer()), scoringType);
+        }
+
+        /**
+         * Returns the scoring types a player can still score.
+         * @param player index of the player
+         * @return bit i set if scoring type i is open
+         */
+        public int getOpenMask(int player) {
+            return CardState.availableMask(getCardState(game, player));
+        }
+
+        /**
+         * Gets the score of the current player.
+         * @return current player's score
+         */
+        public int getCurrentPlayerScore() {
+            return getScore(game, getSelectedPlayer());
+        }
+
+        /**
+         * Fills an array with the score of each player.
+         * @param scores array of at least as many elements as players
+         * @return the array
+         */
+        public int[] getScores(int[] scores) {
+            int players = getNumPlayers();
+            if (scores.length < players) {
+                throw new IllegalArgumentException("Scores array is too short");
+            }
+            for (int i = 0; i < players; i++) {
+                scores[i] = getScore(game, i);
+            }
+            return scores;
+        }
+
+        /**
+         * Returns the player with the highest score, see {@link YahtzeeGame#getWinner()}.
+         * @return index of the player
+         */
+        public int getWinner() {
+            return GameStore.this.getWinner(game);
+        }
+
+        /**
+         * Returns the rank of a player, see {@link YahtzeeGame#getRank(int)}.
+         * @param player index of the player
+         * @return the rank, 1 for a leader
+         */
+        public int getRank(int player) {
+            return GameStore.this.getRank(game, player);
+        }
+
+        /**
+         * Returns a flyweight card of a player of this game. The card
+         * follows this flyweight when it moves to another game.
+         * @param player index of the player
+         * @return the card
+         */
+        public Card getScoreCard(int player) {
+            slot(game, player);
+            if (cards[player] == null) {
+                cards[player] = new Card(this, player);
+            }
+            return cards[player];
+        }
+    }
+
+    /**
+     * Reads one player's card of a game of the store through the methods
+     * of {@link ScoreCard}.
+     */
+    public final class Card {
+
+        /** the game the card is in */
+        private final Game owner;
+
+        /** index of the player */
+        private final int player;
+
+        /**
+         * Constructs a Card.
+         * @param owner the game the card is in
+         * @param player index of the player
+         */
+        private Card(Game owner, int player) {
+            this.owner = owner;
+            this.player = player;
+        }
+
+        /**
+         * Returns the card packed into a long.
+         * @return the packed card, see {@link CardState}
+         */
+        public long pack() {
+            return getCardState(owner.game, player);
+        }
+
+        /**
+         * Returns the score.
+         * @return the score
+         */
+        public int getScore() {
+            return CardState.score(pack());
+        }
+
+        /**
+         * Returns the upper score, capped at the bonus threshold.
+         * @return the capped upper score
+         */
+        public int getUpperScore() {
+            return CardState.upperScore(pack());
+        }
+
+        /**
+         * Returns if the upper score bonus has been awarded.
+         * @return true once the bonus is awarded
+         */
+        public boolean getHadBonusScore() {
+            return CardState.hadBonusScore(pack());
+        }
+
+        /**
+         * Returns if a Yahtzee has been scored.
+         * @return true after the first Yahtzee
+         */
+        public boolean getHadYahtzee() {
+            return CardState.hadYahtzee(pack());
+        }
+
+        /**
+         * Returns whether a scoring type has been used.
+         * @param scoringType scoring type between 0 and 12
+         * @return true if the scoring type can no longer be scored
+         */
+        public boolean isUsed(int scoringType) {
+            return CardState.isUsed(pack(), scoringType);
+        }
+
+        /**
+         * Returns the scoring types that can still be scored.
+         * @return bit i set if scoring type i is open
+         */
+        public int availableMask() {
+            return CardState.availableMask(pack());
+        }
+    }
+}
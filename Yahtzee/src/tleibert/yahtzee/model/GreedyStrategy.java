@@ -0,0 +1,62 @@
+package tleibert.yahtzee.model;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * A simple strategy: keep the dice showing the most common value, and
+ * score the box that gives the most points right now, bonuses included.
+ * Useful as a baseline. A GreedyStrategy has no state, so one instance
+ * can be shared.
+ *
+ * @author Trevor Leibert
+ */
+public class GreedyStrategy implements Strategy {
+
+    /** order in which boxes are given up when nothing scores */
+    private static final int[] SCRATCH_ORDER = {ScoreCard.ONES, ScoreCard.TWOS, ScoreCard.YAHTZEE,
+        ScoreCard.THREES, ScoreCard.LARGE_STRAIGHT, ScoreCard.FOUR_OF_KIND, ScoreCard.FOURS,
+        ScoreCard.FULL_HOUSE, ScoreCard.SMALL_STRAIGHT, ScoreCard.FIVES, ScoreCard.SIXES,
+        ScoreCard.THREE_OF_KIND, ScoreCard.CHANCE};
+
+    @Override
+    public int chooseKeep(long dice, int rerolls, long cardState) {
+        int bestFace = Die.MAX_VALUE;
+        for (int face = Die.MAX_VALUE - 1; face >= 1; face--) {
+            if (PackedDice.count(dice, face) > PackedDice.count(dice, bestFace)) {
+                bestFace = face;
+            }
+        }
+        int keepMask = 0;
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            if (PackedDice.face(dice, i) == bestFace) {
+                keepMask |= 1 << i;
+            }
+        }
+        return keepMask;
+    }
+
+    @Override
+    public int chooseScoringType(long dice, long cardState) {
+        int handId = PackedDice.canonicalId(dice);
+        int openMask = CardState.availableMask(cardState);
+        int best = -1;
+        int bestPoints = 0;
+        for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+            if ((openMask & (1 << type)) != 0) {
+                int points = CardState.gain(cardState, handId, type);
+                if (points > bestPoints) {
+                    best = type;
+                    bestPoints = points;
+                }
+            }
+        }
+        for (int i = 0; best < 0; i++) {
+            if ((openMask & (1 << SCRATCH_ORDER[i])) != 0) {
+                best = SCRATCH_ORDER[i];
+            }
+        }
+        return best;
+    }
+}
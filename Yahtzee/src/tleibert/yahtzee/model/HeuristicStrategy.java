@@ -0,0 +1,153 @@
+package tleibert.yahtzee.model;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * A strategy built from rules of thumb, stronger than {@link GreedyStrategy}
+ * without needing a solved strategy table. It keeps a made straight or full
+ * house when those boxes are open, chases straights from a run of three or
+ * more, and otherwise keeps the most common value. It scores the box that
+ * beats that box's par by the most, where the par of a box is roughly what
+ * it scores on average in a well played game, so low rolls go into cheap
+ * boxes instead of wasting good ones. A HeuristicStrategy has no state,
+ * so one instance can be shared.
+ *
+ * @author Trevor Leibert
+ */
+public class HeuristicStrategy implements Strategy {
+
+    /** average points of each box in a well played game, rounded */
+    private static final int[] PAR = {2, 5, 9, 12, 16, 19, 22, 13, 23, 29, 33, 17, 22};
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = (1 << DiceBlock.NUM_DICE) - 1;
+
+    @Override
+    public int chooseKeep(long dice, int rerolls, long cardState) {
+        int openMask = CardState.availableMask(cardState);
+        boolean straightsOpen = (openMask & (1 << ScoreCard.SMALL_STRAIGHT | 1 << ScoreCard.LARGE_STRAIGHT)) != 0;
+
+        // longest run of consecutive values, and the most common value
+        int runStart = 1;
+        int runLength = 0;
+        int bestFace = Die.MAX_VALUE;
+        for (int face = 1, length = 0; face <= Die.MAX_VALUE; face++) {
+            length = PackedDice.count(dice, face) > 0 ? length + 1 : 0;
+            if (length > runLength) {
+                runLength = length;
+                runStart = face - length + 1;
+            }
+            // ties go to a value whose upper box is open, then to the higher value
+            int count = PackedDice.count(dice, face);
+            int bestCount = PackedDice.count(dice, bestFace);
+            boolean open = (openMask & (1 << (face - 1))) != 0;
+            boolean bestOpen = (openMask & (1 << (bestFace - 1))) != 0;
+            if (count > bestCount || (count == bestCount
+                    && (open && !bestOpen || open == bestOpen && face > bestFace))) {
+                bestFace = face;
+            }
+        }
+        int bestCount = PackedDice.count(dice, bestFace);
+
+        if (runLength == DiceBlock.NUM_DICE && (openMask & (1 << ScoreCard.LARGE_STRAIGHT)) != 0) {
+            return KEEP_ALL;
+        }
+        if (bestCount == DiceBlock.NUM_DICE) {
+            return KEEP_ALL;
+        }
+        if (isFullHouse(dice) && (openMask & (1 << ScoreCard.FULL_HOUSE)) != 0) {
+            return KEEP_ALL;
+        }
+        if (runLength >= 4 && straightsOpen) {
+            return keepRun(dice, runStart, runLength);
+        }
+        if (runLength == 3 && bestCount < 3 && straightsOpen) {
+            return keepRun(dice, runStart, runLength);
+        }
+        if (bestCount == 2 && (openMask & (1 << ScoreCard.FULL_HOUSE)) != 0) {
+            // two pairs: keep both and roll for the full house
+            int pairs = 0;
+            for (int face = 1; face <= Die.MAX_VALUE; face++) {
+                if (PackedDice.count(dice, face) == 2) {
+                    pairs |= 1 << face;
+                }
+            }
+            if (Integer.bitCount(pairs) == 2) {
+                return keepFaces(dice, pairs);
+            }
+        }
+        return keepFaces(dice, 1 << bestFace);
+    }
+
+    @Override
+    public int chooseScoringType(long dice, long cardState) {
+        int handId = PackedDice.canonicalId(dice);
+        int openMask = CardState.availableMask(cardState);
+        int best = -1;
+        int bestMargin = Integer.MIN_VALUE;
+        for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+            if ((openMask & (1 << type)) != 0) {
+                int margin = CardState.gain(cardState, handId, type) - PAR[type];
+                if (margin > bestMargin) {
+                    best = type;
+                    bestMargin = margin;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether the dice are three of one value and two of another.
+     * @param dice packed dice
+     * @return true for a full house
+     */
+    private static boolean isFullHouse(long dice) {
+        boolean three = false;
+        boolean two = false;
+        for (int face = 1; face <= Die.MAX_VALUE; face++) {
+            int count = PackedDice.count(dice, face);
+            three |= count == 3;
+            two |= count == 2;
+        }
+        return three && two;
+    }
+
+    /**
+     * Keeps one die of each value in a run.
+     * @param dice packed dice
+     * @param start lowest value of the run
+     * @param length number of values in the run
+     * @return keep mask
+     */
+    private static int keepRun(long dice, int start, int length) {
+        int keepMask = 0;
+        int wanted = ((1 << length) - 1) << start;
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            int face = 1 << PackedDice.face(dice, i);
+            if ((wanted & face) != 0) {
+                keepMask |= 1 << i;
+                wanted &= ~face;
+            }
+        }
+        return keepMask;
+    }
+
+    /**
+     * Keeps every die showing one of the given values.
+     * @param dice packed dice
+     * @param faces bit f set to keep the dice showing f
+     * @return keep mask
+     */
+    private static int keepFaces(long dice, int faces) {
+        int keepMask = 0;
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            if ((faces & (1 << PackedDice.face(dice, i))) != 0) {
+                keepMask |= 1 << i;
+            }
+        }
+        return keepMask;
+    }
+}
@@ -0,0 +1,355 @@
+package tleibert.yahtzee.model;
+
+import java.util.Arrays;
+
+/**
+ * Ranks the players of a game by score, kept up to date one score change
+ * at a time. Scores are whole numbers between 0 and a known maximum, so
+ * the leaderboard counts the players on each score in a Fenwick tree,
+ * ordered from the highest score down, and links the players on each
+ * score in a list. Changing a score, finding the rank of a player and
+ * finding the k-th best score each take O(log m) time, where m is the
+ * maximum score, whatever the number of players, and listing the top k
+ * players takes O(k) more. A tournament tree over the players keeps the
+ * lowest numbered leader at its root, so a change also costs O(log n) in
+ * the number of players n, and the winner of a tie is found in O(1).
+ *
+ * Players on the same score share a rank: a player's rank is one more than
+ * the number of players with a higher score. Within a score, players are
+ * listed in the order they reached it.
+ *
+ * @author Trevor Leibert
+ */
+public class Leaderboard {
+
+    /** marks the end of a list */
+    private static final int NONE = -1;
+
+    /** highest score a player can have */
+    private final int maxScore;
+
+    /** score of each player */
+    private final int[] scores;
+
+    /** Fenwick tree of the number of players on each score, highest score at position 1 */
+    private final int[] tree;
+
+    /** highest power of two not above the size of the tree, where searches start */
+    private final int topBit;
+
+    /** first player on each score, or NONE */
+    private final int[] first;
+
+    /** last player on each score, or NONE */
+    private final int[] last;
+
+    /** next player on the same score, or NONE */
+    private final int[] next;
+
+    /** previous player on the same score, or NONE */
+    private final int[] previous;
+
+    /** number of leaves of the tournament tree, a power of two */
+    private final int leaves;
+
+    /**
+     * tournament tree of the players: node i holds the better of its
+     * children 2i and 2i+1, the lower numbered on a tie, and the leaves
+     * from {@link #leaves} on hold the players in order, or NONE
+     */
+    private final int[] winner;
+
+    /**
+     * Constructs a Leaderboard for scores up to {@link ScoreCard#MAX_SCORE}.
+     * Every player starts on zero.
+     * @param players number of players
+     */
+    public Leaderboard(int players) {
+        this(players, ScoreCard.MAX_SCORE);
+    }
+
+    /**
+     * Constructs a Leaderboard. Every player starts on zero.
+     * @param players number of players
+     * @param maxScore highest score a player can have
+     */
+    public Leaderboard(int players, int maxScore) {
+        if (players < 1) {
+            throw new IllegalArgumentException("Need at least one player");
+        }
+        if (maxScore < 0) {
+            throw new IllegalArgumentException("Invalid maximum score");
+        }
+        this.maxScore = maxScore;
+        scores = new int[players];
+        tree = new int[maxScore + 2];
+        topBit = Integer.highestOneBit(tree.length - 1);
+        first = new int[maxScore + 1];
+        last = new int[maxScore + 1];
+        next = new int[players];
+        previous = new int[players];
+        Arrays.fill(first, NONE);
+        Arrays.fill(last, NONE);
+
+        add(0, players);
+        for (int player = 0; player < players; player++) {
+            next[player] = player + 1 < players ? player + 1 : NONE;
+            previous[player] = player - 1;
+        }
+        first[0] = 0;
+        last[0] = players - 1;
+
+        leaves = Integer.highestOneBit(Math.max(1, players - 1)) << 1;
+        winner = new int[2 * leaves];
+        Arrays.fill(winner, NONE);
+        for (int player = 0; player < players; player++) {
+            winner[leaves + player] = player;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            winner[node] = better(winner[2 * node], winner[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Returns the number of players.
+     * @return number of players
+     */
+    public int getNumPlayers() {
+        return scores.length;
+    }
+
+    /**
+     * Returns the score of a player.
+     * @param player index of the player
+     * @return the score
+     */
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    /**
+     * Changes the score of a player.
+     * @param player index of the player
+     * @param score the new score
+     */
+    public void update(int player, int score) {
+        if (score < 0 || score > maxScore) {
+            throw new IllegalArgumentException("Invalid score");
+        }
+        int old = scores[player];
+        if (old == score) {
+            return;
+        }
+        unlink(player, old);
+        add(old, -1);
+        scores[player] = score;
+        add(score, 1);
+        link(player, score);
+        for (int node = (leaves + player) >> 1; node > 0; node >>= 1) {
+            winner[node] = better(winner[2 * node], winner[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Returns the rank of a player: one more than the number of players
+     * with a higher score.
+     * @param player index of the player
+     * @return the rank, 1 for a leader
+     */
+    public int getRank(int player) {
+        return countAbove(scores[player]) + 1;
+    }
+
+    /**
+     * Returns the number of players with a higher score than the given one.
+     * @param score the score
+     * @return number of players above it
+     */
+    public int countAbove(int score) {
+        if (score >= maxScore) {
+            return 0;
+        }
+        if (score < 0) {
+            return scores.length;
+        }
+        return prefix(position(score + 1));
+    }
+
+    /**
+     * Returns the score of the player with the given place, counting every
+     * player on a score separately.
+     * @param place place of the player, 1 for the best
+     * @return the score in that place
+     */
+    public int getScoreAt(int place) {
+        if (place < 1 || place > scores.length) {
+            throw new IllegalArgumentException("Invalid place");
+        }
+        // find the last position whose prefix is below place
+        int pos = 0;
+        int remaining = place;
+        for (int bit = topBit; bit > 0; bit >>= 1) {
+            int probe = pos + bit;
+            if (probe < tree.length && tree[probe] < remaining) {
+                pos = probe;
+                remaining -= tree[probe];
+            }
+        }
+        return maxScore - pos;
+    }
+
+    /**
+     * Returns the highest score.
+     * @return the top score
+     */
+    public int getTopScore() {
+        return getScoreAt(1);
+    }
+
+    /**
+     * Returns the number of players sharing the highest score.
+     * @return number of leaders, more than one for a tie
+     */
+    public int getNumLeaders() {
+        int top = getTopScore();
+        return scores.length - countBelow(top) - countAbove(top);
+    }
+
+    /**
+     * Lists the players sharing the highest score, in the order they
+     * reached it. Only the leaders that fit in the array are visited.
+     * @param players array to fill, long enough for {@link #getNumLeaders()}
+     *                players, or only the first leaders that fit are listed
+     * @return the number of leaders
+     */
+    public int getLeaders(int[] players) {
+        int count = getNumLeaders();
+        int listed = 0;
+        for (int player = first[getTopScore()]; player != NONE && listed < players.length;
+                player = next[player]) {
+            players[listed++] = player;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the lowest index of the players sharing the highest score.
+     * @return index of the player
+     */
+    public int getLowestLeader() {
+        return winner[1];
+    }
+
+    /**
+     * Lists the players with the highest scores, best first.
+     * @param k number of players wanted
+     * @param players array of at least k elements to fill
+     * @return the number of players listed, the lower of k and the number of players
+     */
+    public int getTop(int k, int[] players) {
+        if (k < 0 || k > players.length) {
+            throw new IllegalArgumentException("Invalid number of players");
+        }
+        int count = 0;
+        while (count < k && count < scores.length) {
+            int score = getScoreAt(count + 1);
+            for (int player = first[score]; player != NONE && count < k; player = next[player]) {
+                players[count++] = player;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the better of two players in the tournament tree: the one
+     * with the higher score, or the lower numbered on a tie.
+     * @param a index of a player, or NONE
+     * @param b index of a player numbered above a, or NONE
+     * @return the better player, or NONE if both are NONE
+     */
+    private int better(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (b == NONE) {
+            return a;
+        }
+        return scores[b] > scores[a] ? b : a;
+    }
+
+    /**
+     * Returns the number of players with a lower score than the given one.
+     * @param score the score
+     * @return number of players below it
+     */
+    private int countBelow(int score) {
+        return scores.length - prefix(position(score));
+    }
+
+    /**
+     * Returns the tree position of a score.
+     * @param score the score
+     * @return position, 1 for the highest score
+     */
+    private int position(int score) {
+        return maxScore - score + 1;
+    }
+
+    /**
+     * Changes the number of players on a score.
+     * @param score the score
+     * @param delta players added, negative to take away
+     */
+    private void add(int score, int delta) {
+        for (int pos = position(score); pos < tree.length; pos += pos & -pos) {
+            tree[pos] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of players on the scores of the first positions.
+     * @param pos last position counted
+     * @return number of players with a score at or above that position's
+     */
+    private int prefix(int pos) {
+        int sum = 0;
+        for (; pos > 0; pos -= pos & -pos) {
+            sum += tree[pos];
+        }
+        return sum;
+    }
+
+    /**
+     * Adds a player to the end of the list of a score.
+     * @param player index of the player
+     * @param score the score
+     */
+    private void link(int player, int score) {
+        next[player] = NONE;
+        previous[player] = last[score];
+        if (last[score] == NONE) {
+            first[score] = player;
+        } else {
+            next[last[score]] = player;
+        }
+        last[score] = player;
+    }
+
+    /**
+     * Takes a player out of the list of a score.
+     * @param player index of the player
+     * @param score the score
+     */
+    private void unlink(int player, int score) {
+        if (previous[player] == NONE) {
+            first[score] = next[player];
+        } else {
+            next[previous[player]] = next[player];
+        }
+        if (next[player] == NONE) {
+            last[score] = previous[player];
+        } else {
+            previous[next[player]] = previous[player];
+        }
+    }
+}
@@ -3,6 +3,7 @@ package tleibert.yahtzee.model;
 import java.util.Arrays;
 
 import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.HandIndex;
 
 /**
  * Represents the scorecard for one player in Yahtzee.
@@ -76,33 +77,49 @@ public class ScoreCard {
     /** amount of bonus points to add for the upper score bonus  */
     public static final int BONUS_SCORE_POINTS = 35;
 
-    // instance variables
-    /** the current score that the player has */
-    private int score;
-
-    /** the total upper score that the player has */
-    private int upperScore;
-
-    /** stores whether each upper score box has been used or not */
-    private boolean[] upperScoreChecked;
+    /** highest possible final score: a Yahtzee followed by a bonus Yahtzee every turn */
+    public static final int MAX_SCORE = YAHTZEE_POINTS
+            + (YahtzeeGame.NUM_TURNS_PER_PLAYER - 1) * YAHTZEE_BONUS;
 
-    /** stores whether a player has had a Yahtzee this game */
-    private boolean hadYahtzee;
+    // instance variables
+    /** the whole state of the card, packed as in {@link CardState} */
+    private long state;
 
-    /** stores whether a player has recieved the upper score bonus this game */
-    private boolean hadBonusScore;
-    
     /**
      * Constructor for the ScoreCard class. A new ScoreCard will have its scores
      * set to zero, and all boolean variables set to false.
      */
     public ScoreCard() {
-        score = 0;
-        upperScore = 0;
-        hadYahtzee = false;
-        upperScoreChecked = new boolean[SIXES + 1];
-        Arrays.fill(upperScoreChecked, false);
-        hadBonusScore = false;
+        reset();
+    }
+
+    /**
+     * Clears this ScoreCard so it can be used for a new game. Afterwards
+     * it is the same as a newly constructed ScoreCard.
+     */
+    public void reset() {
+        state = CardState.EMPTY;
+    }
+
+    /**
+     * Returns the state of this ScoreCard packed into a long.
+     * @return the packed card, see {@link CardState}
+     */
+    public long pack() {
+        return state;
+    }
+
+    /**
+     * Sets this ScoreCard from a packed state, for example one returned by
+     * {@link #pack()}.
+     * @param state the packed card, see {@link CardState}
+     * @throws IllegalArgumentException if the state is not a valid card
+     */
+    public void unpack(long state) {
+        if (!CardState.isValid(state)) {
+            throw new IllegalArgumentException("Invalid card state");
+        }
+        this.state = state;
     }
 
     /**
@@ -116,72 +133,106 @@ public class ScoreCard {
      * @return the score given by this call of the method. Will be zero
      *         if the scoring requirements for the chosen criteria of scoring
      *         were not met.
-     * @throws IllegalArgumentException if scoring type isn't between 0 and 12 (inclusive)
+     * @throws IllegalArgumentException if scoring type isn't between 0 and 12 (inclusive),
+     *         or if the dice have not all been rolled
      */
     public int score(DiceBlock dice, int scoringType) {
         if (scoringType < 0 || scoringType > 12) {
             throw new IllegalArgumentException("Invalid scoring type");
         }
-        
+        int handId = dice.getHandId();
+        if (handId < 0) {
+            throw new IllegalArgumentException("Dice have not been rolled");
+        }
+
+        // every Yahtzee after the first is worth the bonus amount
+        int tempScore = CardState.turnPoints(state, handId, scoringType);
+        state = CardState.score(state, handId, scoringType);
+        return tempScore;
+    }
+
+    /**
+     * Finds how many points scoring the dice would add to this ScoreCard in
+     * every scoring type, without changing the ScoreCard. The points are
+     * the same as {@link #score(DiceBlock, int)} would return, plus the
+     * upper score bonus when scoring that type would earn it. Nothing is
+     * allocated, so this can be called in inner loops.
+     *
+     * @param dice a DiceBlock object representing the dice to evaluate
+     * @param points array of at least 13 elements, filled with the points
+     *               for each scoring type
+     * @throws IllegalArgumentException if the dice have not all been rolled,
+     *         or if the array is too short
+     */
+    public void evaluate(DiceBlock dice, int[] points) {
+        evaluate(dice.getHandId(), points);
+    }
+
+    /**
+     * Works like {@link #evaluate(DiceBlock, int[])} for a hand given by
+     * its {@link HandIndex} id.
+     *
+     * @param handId id of the hand to evaluate
+     * @param points array of at least 13 elements, filled with the points
+     *               for each scoring type
+     * @throws IllegalArgumentException if the hand id is invalid, or if the
+     *         array is too short
+     */
+    public void evaluate(int handId, int[] points) {
+        if (handId < 0 || handId >= HandIndex.NUM_HANDS) {
+            throw new IllegalArgumentException("Dice have not been rolled");
+        }
+        if (points.length < ScoreTable.NUM_CATEGORIES) {
+            throw new IllegalArgumentException("Points array is too short");
+        }
+
+        // the bonus can only come from the last open upper box
+        int openUpper = CardState.availableMask(state) & CardState.UPPER_CATEGORIES;
+        int upperScore = CardState.upperScore(state);
+        boolean canEarnBonus = !CardState.hadBonusScore(state) && (openUpper & (openUpper - 1)) == 0;
+
+        for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+            int tempScore = CardState.turnPoints(state, handId, type);
+            if (type <= SIXES && canEarnBonus && (openUpper == 0 || openUpper == 1 << type)
+                    && upperScore + tempScore >= BONUS_SCORE_THRESHOLD) {
+                tempScore += BONUS_SCORE_POINTS;
+            }
+            points[type] = tempScore;
+        }
+    }
+
+    /**
+     * Returns the points a tally of dice is worth in the given scoring type,
+     * without bonuses and without changing any ScoreCard. Used to build
+     * the {@link ScoreTable}.
+     *
+     * @param diceTally tally array with 6 elements, with the one at [0]
+     *                  representing the number of ones, and the one at [5]
+     *                  repersenting the number of sixes.
+     * @param sumOfDice the sum of the dice values
+     * @param scoringType the selected criteria of scoring the dice.
+     * @return the base points for the scoring type
+     */
+    static int basePoints(int[] diceTally, int sumOfDice, int scoringType) {
         int tempScore = 0;
-        int[] diceTally = dice.getTally();
 
         switch (scoringType) {
-        // upper score
-        // ones
-            case ONES:
-                tempScore = diceTally[ONES] * (ONES + 1);
-                upperScore += tempScore;
-                upperScoreChecked[ONES] = true;
-                bonusScore();
-                break;
-
-            // twos
+            // upper score
+            case ONES :
             case TWOS :
-                tempScore = diceTally[TWOS] * (TWOS + 1);
-                upperScore += tempScore;
-                upperScoreChecked[TWOS] = true;
-                bonusScore();
-                break;
-            // threes  
             case THREES :
-                tempScore = diceTally[THREES] * (THREES + 1);
-                upperScore += tempScore;
-                upperScoreChecked[THREES] = true;
-                bonusScore();
-                break;
-            
-            // fours
-            case FOURS : 
-                tempScore = diceTally[FOURS] * (FOURS + 1);
-                upperScore += tempScore;
-                upperScoreChecked[FOURS] = true;
-                bonusScore();
-                break;
-
-            // fives
+            case FOURS :
             case FIVES :
-                tempScore = diceTally[FIVES] * (FIVES + 1);
-                upperScore += tempScore;
-                upperScoreChecked[FIVES] = true;
-                bonusScore();
-                break;
-            
-            // sixes
             case SIXES :
-                tempScore = diceTally[SIXES] * (SIXES + 1);
-                // check if bonus score applies
-                upperScore += tempScore;
-                upperScoreChecked[SIXES] = true;
-                bonusScore();
+                tempScore = diceTally[scoringType] * (scoringType + 1);
                 break;
-            
+
             // lower score
             // three of a kind
             case THREE_OF_KIND : 
                 for (int i = 0; i < diceTally.length; i++) {
                     if (diceTally[i] >= 3) {
-                        tempScore = dice.getSumOfDice();
+                        tempScore = sumOfDice;
                     }
                 }
                 break;
@@ -190,7 +241,7 @@ public class ScoreCard {
             case FOUR_OF_KIND :
                 for (int i = 0; i < diceTally.length; i++) {
                     if (diceTally[i] >= 4) {
-                        tempScore = dice.getSumOfDice();
+                        tempScore = sumOfDice;
                     }
                 }
                 break;
@@ -228,49 +279,60 @@ public class ScoreCard {
             
             case YAHTZEE :
                 if (isYahtzee(diceTally)) {
-                    if (!hadYahtzee) {
-                        tempScore = YAHTZEE_POINTS;
-                        hadYahtzee = true;
-                    } else {
-                        tempScore = YAHTZEE_BONUS;
-                    }
+                    tempScore = YAHTZEE_POINTS;
                 }
                 break;
 
             case CHANCE :
-                tempScore = dice.getSumOfDice();
+                tempScore = sumOfDice;
                 break;
             default :   
         }
         
-        this.score += tempScore;
         return tempScore;
     }
 
-    /**
-     * This method will add bonus points to the player's score if their
-     * upper score total is greater than or equal to the limit.
-     */
-    private void bonusScore() {
-        if (!hadBonusScore) {
-            boolean[] allTrue = new boolean[upperScoreChecked.length];
-            Arrays.fill(allTrue, true);
-            if (Arrays.equals(upperScoreChecked, allTrue)) {
-                if (upperScore >= BONUS_SCORE_THRESHOLD) {
-                    score += BONUS_SCORE_POINTS;
-                }
-            }
-            hadBonusScore = true;
-        }
-    }
-
     /**
      * Returns if a user has recieved bonus score or not.
      * @return true if the player has recieved bonus points,
      *         false if they have not.
      */
     public boolean getHadBonusScore() {
-        return hadBonusScore;
+        return CardState.hadBonusScore(state);
+    }
+
+    /**
+     * Returns if a user has scored a Yahtzee or not.
+     * @return true if the player has scored a Yahtzee
+     */
+    public boolean getHadYahtzee() {
+        return CardState.hadYahtzee(state);
+    }
+
+    /**
+     * Returns the user's upper score, capped at the bonus threshold.
+     * @return the capped upper score
+     */
+    public int getUpperScore() {
+        return CardState.upperScore(state);
+    }
+
+    /**
+     * Returns whether a scoring type has been used. The Yahtzee box stays
+     * open while it keeps scoring Yahtzees.
+     * @param scoringType scoring type between 0 and 12
+     * @return true if the scoring type can no longer be scored
+     */
+    public boolean isUsed(int scoringType) {
+        return CardState.isUsed(state, scoringType);
+    }
+
+    /**
+     * Returns the scoring types that can still be scored.
+     * @return bit i set if scoring type i is open
+     */
+    public int availableMask() {
+        return CardState.availableMask(state);
     }
 
     /**
@@ -362,6 +424,6 @@ public class ScoreCard {
      * @return the total score.
      */
     public int getScore() {
-        return score;
+        return CardState.score(state);
     }
 }
@@ -0,0 +1,61 @@
+package tleibert.yahtzee.model;
+
+import tleibert.yahtzee.model.dice.HandIndex;
+
+/**
+ * Lookup table holding the base points of every scoring type for every
+ * one of the 252 distinct five dice hands. The table is built once from
+ * the scoring rules in {@link ScoreCard}, so scoring a hand is a single
+ * array load. Bonus points (the upper score bonus and extra Yahtzees)
+ * depend on the state of a ScoreCard and are not part of the table.
+ *
+ * @author Trevor Leibert
+ */
+public final class ScoreTable {
+
+    /** number of scoring types on a ScoreCard */
+    public static final int NUM_CATEGORIES = ScoreCard.CHANCE + 1;
+
+    /** base points, stored hand by hand with one entry per scoring type */
+    private static final int[] POINTS = new int[HandIndex.NUM_HANDS * NUM_CATEGORIES];
+
+    static {
+        int[] diceTally = new int[6];
+        for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+            for (int face = 1; face <= 6; face++) {
+                diceTally[face - 1] = HandIndex.count(hand, face);
+            }
+            for (int category = 0; category < NUM_CATEGORIES; category++) {
+                POINTS[hand * NUM_CATEGORIES + category] =
+                        ScoreCard.basePoints(diceTally, HandIndex.sum(hand), category);
+            }
+        }
+    }
+
+    /**
+     * ScoreTable only has static members.
+     */
+    private ScoreTable() {
+    }
+
+    /**
+     * Returns the points a hand is worth in a scoring type, before any bonuses.
+     * A Yahtzee is listed at {@link ScoreCard#YAHTZEE_POINTS}.
+     * @param handId hand id from {@link HandIndex}
+     * @param scoringType scoring type between 0 and 12
+     * @return the base points
+     */
+    public static int points(int handId, int scoringType) {
+        return POINTS[handId * NUM_CATEGORIES + scoringType];
+    }
+
+    /**
+     * Copies the base points of every scoring type of a hand.
+     * @param handId hand id from {@link HandIndex}
+     * @param dest array to copy to
+     * @param offset position in dest of the points of the first scoring type
+     */
+    static void copyPoints(int handId, int[] dest, int offset) {
+        System.arraycopy(POINTS, handId * NUM_CATEGORIES, dest, offset, NUM_CATEGORIES);
+    }
+}
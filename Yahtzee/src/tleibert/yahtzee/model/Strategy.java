@@ -0,0 +1,38 @@
+package tleibert.yahtzee.model;
+
+/**
+ * Makes the decisions of a player who is not clicking buttons: which dice
+ * to keep before each reroll, and which scoring type to score the dice in.
+ * A {@link YahtzeeGame} plays a turn for a seat with a strategy through
+ * {@link YahtzeeGame#playTurn()}.
+ *
+ * Decisions are made from primitive state only: the dice packed as in
+ * {@link tleibert.yahtzee.model.dice.PackedDice} and the ScoreCard packed
+ * as in {@link CardState}. Implementations must not allocate while
+ * deciding; any working memory is allocated once, when the strategy is
+ * made. So a strategy may keep state between calls, and one instance must
+ * only be used by one thread at a time. Callers playing on many threads
+ * own one instance per thread.
+ *
+ * @author Trevor Leibert
+ */
+public interface Strategy {
+
+    /**
+     * Chooses which dice to keep before a reroll. Keeping every die ends
+     * the rolling for the turn.
+     * @param dice the dice showing, packed
+     * @param rerolls rerolls left in this turn, including this one, 1 or 2
+     * @param cardState the player's ScoreCard, packed
+     * @return keep mask with bit i set if die i is kept
+     */
+    int chooseKeep(long dice, int rerolls, long cardState);
+
+    /**
+     * Chooses the scoring type to score the dice in at the end of a turn.
+     * @param dice the dice showing, packed
+     * @param cardState the player's ScoreCard, packed
+     * @return a scoring type the ScoreCard has not used
+     */
+    int chooseScoringType(long dice, long cardState);
+}
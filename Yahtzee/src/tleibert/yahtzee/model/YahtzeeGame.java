@@ -2,6 +2,10 @@ package tleibert.yahtzee.model;
 import java.util.*;
 
 import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.RandomSource;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+import tleibert.yahtzee.model.dice.ThreadLocalRandomSource;
 
 /**
  * The YahtzeeGame class runs the Yahtzee Game.
@@ -24,8 +28,17 @@ public class YahtzeeGame
     /** maximum number of players in a game */
     public static final int MAX_PLAYERS = 4;
 
+    /** maximum number of players in a battle royale game */
+    public static final int MAX_BATTLE_ROYALE_PLAYERS = 1 << 16;
+
     /** each player can take 13 turns in Yahtzee */
     public static final int NUM_TURNS_PER_PLAYER = 13;
+
+    /** number of times the dice can be rolled in one turn */
+    public static final int MAX_ROLLS = 3;
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = (1 << DiceBlock.NUM_DICE) - 1;
     
     /** DiceBlock that holds the dice */
     private DiceBlock diceBlock;
@@ -33,6 +46,13 @@ public class YahtzeeGame
     /** player scores are handled by an array of ScoreCard objects */
     private ScoreCard[] scoreCards;
 
+    /**
+     * ranks the players, updated after every turn; only battle royale games
+     * start with one, small games scan their few scores instead until one
+     * is asked for
+     */
+    private Leaderboard leaderboard;
+
     /** number of players in the game */
     private int numPlayers;
 
@@ -51,15 +71,24 @@ public class YahtzeeGame
     /** the maximum number of turns that can be taken this game */
     private int maxNumTurns;
 
-    /** random number generator */
-    private Random rand;
+    /** source of the random rolls and of the first player */
+    private RandomSource random;
+
+    /**
+     * in a battle royale, the source of the rolls, rewound at the start of
+     * every turn so each seat rolls the same dice in a round; null otherwise
+     */
+    private SeededRandomSource roundDice;
+
+    /** told about every move, or null */
+    private GameListener listener;
+
+    /** strategy playing each seat, null for a person */
+    private Strategy[] strategies;
 
     /** boolean array of selected die to re roll */
     private boolean[] selected;
     
-    /** whether or not there is a tie */
-    private boolean tie;
-
     /** whether the game is over or not */
     private boolean isOver;
     
@@ -70,27 +99,162 @@ public class YahtzeeGame
     */
     public YahtzeeGame(int players)
     {
-        if (players < MIN_PLAYERS || players > MAX_PLAYERS) {
+        this(players, ThreadLocalRandomSource.INSTANCE);
+    }
+
+    /**
+    * Constructs a Yahtzee game that can be replayed exactly: the same seed
+    * and the same choices always give the same dice.
+    *
+    * @param players number of players in game
+    * @param seed seed of the dice
+    */
+    public YahtzeeGame(int players, long seed)
+    {
+        this(players, new SeededRandomSource(seed));
+    }
+
+    /**
+    * Constructs a Yahtzee game whose dice and first player come from the
+    * given random source.
+    *
+    * @param players number of players in game
+    * @param random source of the random rolls
+    */
+    public YahtzeeGame(int players, RandomSource random)
+    {
+        this(players, -1, random);
+    }
+
+    /**
+    * Constructs a Yahtzee game with a chosen first player, for example to
+    * rebuild a recorded game.
+    *
+    * @param players number of players in game
+    * @param firstPlayer index of the player who takes the first turn, or
+    *                    -1 to choose one at random
+    * @param random source of the random rolls
+    */
+    public YahtzeeGame(int players, int firstPlayer, RandomSource random)
+    {
+        this(players, firstPlayer, random, MAX_PLAYERS);
+    }
+
+    /**
+    * Constructs a Yahtzee game.
+    *
+    * @param players number of players in game
+    * @param firstPlayer index of the player who takes the first turn, or
+    *                    -1 to choose one at random
+    * @param random source of the random rolls
+    * @param maxPlayers most players allowed
+    */
+    private YahtzeeGame(int players, int firstPlayer, RandomSource random, int maxPlayers)
+    {
+        if (players < MIN_PLAYERS || players > maxPlayers) {
             throw new IllegalArgumentException("Invalid number of players");
         }
+        if (firstPlayer < -1 || firstPlayer >= players) {
+            throw new IllegalArgumentException("Invalid first player");
+        }
 
         numPlayers = players;
         scoreCards = new ScoreCard[players];
+        strategies = new Strategy[players];
         
         for (int i = 0; i < scoreCards.length; i++) {
             scoreCards[i] = new ScoreCard();
         }
         
-        diceBlock = new DiceBlock();
+        diceBlock = new DiceBlock(random);
+        this.random = random;
+        selectedPlayer = firstPlayer < 0 ? random.nextInt(numPlayers) : firstPlayer;
         numRolls = 0;
         category = 0;
-        rand = new Random();
-        selectedPlayer = rand.nextInt(numPlayers);
         numTurns = 0;
         maxNumTurns = NUM_TURNS_PER_PLAYER * (numPlayers);
         isOver = false;
     }
     
+    /**
+    * Constructs a battle royale: a game of up to
+    * {@link #MAX_BATTLE_ROYALE_PLAYERS} players, who take their turns in
+    * order from the first player and share one dice sequence. Every seat
+    * starts each round's turn from the same point of the sequence, so in
+    * a round every seat rolls the same dice when it keeps the same dice,
+    * whatever the seats before it kept, and two seats playing the same
+    * strategy end with the same card. The standings are kept in a
+    * {@link Leaderboard} as the game goes on.
+    *
+    * @param players number of players in game
+    * @param seed seed of the dice sequence
+    * @return the game
+    */
+    public static YahtzeeGame battleRoyale(int players, long seed)
+    {
+        SeededRandomSource random = new SeededRandomSource(seed);
+        YahtzeeGame game = new YahtzeeGame(players, 0, random, MAX_BATTLE_ROYALE_PLAYERS);
+        game.roundDice = random;
+        game.leaderboard = new Leaderboard(players);
+        return game;
+    }
+
+    /**
+    * Returns where the dice sequence of a round of a battle royale starts.
+    *
+    * @param seed seed of the dice sequence
+    * @param round round, counting from 0
+    * @return the generator state at the start of the round
+    */
+    private static long roundState(long seed, int round)
+    {
+        // murmur3 finalizer, so the streams of nearby rounds do not overlap
+        long z = seed ^ ((round + 1) * 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+    * Rebuilds a game part way through, for example one that was saved to
+    * disk. Strategies and the listener are not part of the state, and have
+    * to be set again.
+    *
+    * @param cardStates packed card of each player, see {@link CardState}
+    * @param selectedPlayer index of the player to move
+    * @param numRolls rolls taken this turn
+    * @param numTurns turns taken by every player together
+    * @param packedDice the dice showing, see {@link PackedDice}
+    * @param random source of the random rolls, carrying on the stream of the game
+    * @return the game
+    * @throws IllegalArgumentException if the state is not one a game can reach
+    */
+    public static YahtzeeGame restore(long[] cardStates, int selectedPlayer, int numRolls, int numTurns,
+            long packedDice, RandomSource random)
+    {
+        YahtzeeGame game = new YahtzeeGame(cardStates.length, selectedPlayer, random, MAX_PLAYERS);
+        int turns = 0;
+        for (int i = 0; i < cardStates.length; i++) {
+            game.scoreCards[i].unpack(cardStates[i]);
+            turns += CardState.turnsTaken(cardStates[i]);
+        }
+        if (turns != numTurns || numTurns > game.maxNumTurns) {
+            throw new IllegalArgumentException("Invalid number of turns");
+        }
+        if (numRolls < 0 || numRolls > MAX_ROLLS || numTurns == game.maxNumTurns && numRolls > 0) {
+            throw new IllegalArgumentException("Invalid number of rolls");
+        }
+        if ((numRolls == 0) != (packedDice == PackedDice.EMPTY)
+                || numRolls > 0 && PackedDice.canonicalId(packedDice) < 0) {
+            throw new IllegalArgumentException("Invalid dice");
+        }
+        game.diceBlock.setPacked(packedDice);
+        game.numRolls = numRolls;
+        game.numTurns = numTurns;
+        game.isOver = numTurns == game.maxNumTurns;
+        return game;
+    }
+
     /**
     * updates the boolean array of selected die
     *
@@ -127,6 +291,15 @@ public class YahtzeeGame
         return numRolls;
     }
     
+    /**
+    * Getter method for the number of turns taken by every player together
+    *
+    * @return number of turns
+    */
+    public int getNumTurns() {
+        return numTurns;
+    }
+    
     /**
     * Getter method for category player scores in
     *
@@ -148,10 +321,20 @@ public class YahtzeeGame
     /**
      * Getter method for tie
      *
-     * @return whether or not there is a tie
+     * @return whether more than one player shares the highest score
      */
     public boolean getTie() {
-        return tie;
+        if (leaderboard != null) {
+            return leaderboard.getNumLeaders() > 1;
+        }
+        int highScore = getHighScore();
+        int leaders = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            if (scoreCards[i].getScore() == highScore) {
+                leaders++;
+            }
+        }
+        return leaders > 1;
     }
     
     /**
@@ -181,12 +364,23 @@ public class YahtzeeGame
     public int takeTurn(DiceBlock dice, int scoringType) {
         if (numTurns < maxNumTurns) {
             int temp = scoreCards[selectedPlayer].score(dice, scoringType);
+            if (leaderboard != null) {
+                leaderboard.update(selectedPlayer, scoreCards[selectedPlayer].getScore());
+            }
+            numRolls = 0;
+            int player = selectedPlayer;
             selectedPlayer++;
             if (selectedPlayer == numPlayers) {
                 selectedPlayer = 0;
             }
             numTurns++;
             isOver = maxNumTurns == numTurns;
+            if (listener != null) {
+                listener.turnTaken(this, player, scoringType, temp, dice.getPacked());
+                if (isOver) {
+                    listener.gameOver(this);
+                }
+            }
             return temp;
 
         } else {
@@ -194,6 +388,173 @@ public class YahtzeeGame
         }
     }
 
+    /**
+     * Rolls the dice of this game for the current player. The first roll of
+     * a turn rolls every die; the second and third roll every die that is
+     * not kept.
+     *
+     * @param keepMask bit i set if die i is kept, ignored on the first roll
+     * @throws IllegalStateException if the game is over, or if the dice
+     *         have already been rolled three times this turn
+     */
+    public void rollDice(int keepMask) {
+        if (isOver) {
+            throw new IllegalStateException("Game is over");
+        }
+        if (numRolls >= MAX_ROLLS) {
+            throw new IllegalStateException("No rolls left this turn");
+        }
+        if (numRolls == 0) {
+            if (roundDice != null) {
+                roundDice.setState(roundState(roundDice.getSeed(), numTurns / numPlayers));
+            }
+            diceBlock.initialRoll();
+            keepMask = 0;
+        } else {
+            keepMask &= (1 << DiceBlock.NUM_DICE) - 1;
+            diceBlock.rollExcept(keepMask);
+        }
+        numRolls++;
+        if (listener != null) {
+            listener.diceRolled(this, keepMask, diceBlock.getPacked());
+        }
+    }
+
+    /**
+     * Sets the listener told about every move of this game.
+     * @param listener the listener, or null for none
+     */
+    public void setGameListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the listener told about every move of this game.
+     * @return the listener, or null if there is none
+     */
+    public GameListener getGameListener() {
+        return listener;
+    }
+
+    /**
+     * Ends the current player's turn by scoring the dice of this game, then
+     * clears the dice for the next player. Unlike {@link #takeTurn(DiceBlock, int)}
+     * this checks every rule, so it can be driven by untrusted input.
+     *
+     * @param scoringType method of scoring for the dice
+     * @return the score recieved from this turn
+     * @throws IllegalArgumentException if the scoring type is invalid or
+     *         has already been used by the current player
+     * @throws IllegalStateException if the game is over, or if the dice
+     *         have not been rolled this turn
+     */
+    public int scoreTurn(int scoringType) {
+        if (isOver) {
+            throw new IllegalStateException("Game is over");
+        }
+        if (numRolls == 0) {
+            throw new IllegalStateException("Dice have not been rolled");
+        }
+        if (scoringType < 0 || scoringType >= SCORING_TYPES.length) {
+            throw new IllegalArgumentException("Invalid scoring type");
+        }
+        if (!isOpen(scoringType)) {
+            throw new IllegalArgumentException("Scoring type already used");
+        }
+        int points = takeTurn(diceBlock, scoringType);
+        diceBlock.resetDice();
+        return points;
+    }
+
+    /**
+     * Lets a strategy play a seat instead of a person.
+     * @param player index of the player
+     * @param strategy the strategy, or null for a person
+     */
+    public void setStrategy(int player, Strategy strategy) {
+        if (player < 0 || player >= numPlayers) {
+            throw new IllegalArgumentException("Invalid player");
+        }
+        strategies[player] = strategy;
+    }
+
+    /**
+     * Returns the strategy playing a seat.
+     * @param player index of the player
+     * @return the strategy, or null if a person plays the seat
+     */
+    public Strategy getStrategy(int player) {
+        if (player < 0 || player >= numPlayers) {
+            throw new IllegalArgumentException("Invalid player");
+        }
+        return strategies[player];
+    }
+
+    /**
+     * Plays the rest of the current player's turn with the strategy of
+     * their seat: rolls until the strategy keeps every die or the rolls run
+     * out, then scores the type it chooses. A turn the player has already
+     * rolled for is carried on from where it is.
+     *
+     * @return the score recieved from this turn
+     * @throws IllegalStateException if the game is over, or if the current
+     *         player has no strategy
+     * @throws IllegalArgumentException if the strategy chooses a used
+     *         scoring type
+     */
+    public int playTurn() {
+        Strategy strategy = strategies[selectedPlayer];
+        if (strategy == null) {
+            throw new IllegalStateException("Current player has no strategy");
+        }
+        if (numRolls == 0) {
+            rollDice(0);
+        }
+        long cardState = scoreCards[selectedPlayer].pack();
+        while (numRolls < MAX_ROLLS) {
+            int keepMask = strategy.chooseKeep(diceBlock.getPacked(), MAX_ROLLS - numRolls, cardState);
+            if ((keepMask & KEEP_ALL) == KEEP_ALL) {
+                break;
+            }
+            rollDice(keepMask);
+        }
+        return scoreTurn(strategy.chooseScoringType(diceBlock.getPacked(), cardState));
+    }
+
+    /**
+     * Plays turns for as long as the current player has a strategy, so a
+     * person only has to play their own turns, and a game of strategies
+     * plays to the end.
+     *
+     * @return the number of turns played
+     */
+    public int playStrategyTurns() {
+        int turns = 0;
+        while (!isOver && strategies[selectedPlayer] != null) {
+            playTurn();
+            turns++;
+        }
+        return turns;
+    }
+
+    /**
+     * Returns whether the current player can still score the given type.
+     * @param scoringType scoring type
+     * @return true if the scoring type is open
+     */
+    public boolean isOpen(int scoringType) {
+        return !scoreCards[selectedPlayer].isUsed(scoringType);
+    }
+
+    /**
+     * Returns the scoring types a player can still score.
+     * @param player index of the player
+     * @return bit i set if scoring type i is open
+     */
+    public int getOpenMask(int player) {
+        return scoreCards[player].availableMask();
+    }
+
     /**
      * Returns true if the game is over, false if it isn't
      * @return whether game is over
@@ -230,8 +591,19 @@ public class YahtzeeGame
      * @return player scores
      */
     public int[] getScores() {
-        int[] scores = new int[numPlayers];
-        
+        return getScores(new int[numPlayers]);
+    }
+
+    /**
+     * Fills an array with the current scores of each player, so scores
+     * can be read repeatedly without allocating.
+     * @param scores array of at least as many elements as players
+     * @return the array
+     */
+    public int[] getScores(int[] scores) {
+        if (scores.length < numPlayers) {
+            throw new IllegalArgumentException("Scores array is too short");
+        }
         for (int i = 0; i < numPlayers; i++) {
             scores[i] = scoreCards[i].getScore();
         }
@@ -239,24 +611,93 @@ public class YahtzeeGame
     }
 
     /**
-     * Returns the player number (0-3) of the player with the highest score
+     * Returns the player number of the player with the highest score. If
+     * players are tied, the lowest player number among them is returned;
+     * {@link #getWinners(int[])} lists them all.
      * 
      * @return player number
      */
     public int getWinner() {
-        int[] scores = getScores();
+        if (leaderboard != null) {
+            return leaderboard.getLowestLeader();
+        }
+        int highScore = getHighScore();
+        for (int i = 0; i < numPlayers; i++) {
+            if (scoreCards[i].getScore() == highScore) {
+                return i;
+            }
+        }
+        return 0;
+    }
 
-        int highScore = Integer.MIN_VALUE;
-        for (int i = 0; i < scores.length; i++) {
-            highScore = Math.max(highScore, scores[i]);
+    /**
+     * Lists every player sharing the highest score.
+     * @param players array to fill, or only the first winners that fit are listed
+     * @return the number of players sharing the highest score
+     */
+    public int getWinners(int[] players) {
+        if (leaderboard != null) {
+            return leaderboard.getLeaders(players);
         }
+        int highScore = getHighScore();
+        int count = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            if (scoreCards[i].getScore() == highScore) {
+                if (count < players.length) {
+                    players[count] = i;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
 
-        for (int i = 0; i < scores.length; i++) {
-            if (scores[i] == highScore) {
-                return i;
+    /**
+     * Returns the rank of a player: one more than the number of players
+     * with a higher score, so tied players share a rank.
+     * @param player index of the player
+     * @return the rank, 1 for a leader
+     */
+    public int getRank(int player) {
+        if (leaderboard != null) {
+            return leaderboard.getRank(player);
+        }
+        int score = scoreCards[player].getScore();
+        int rank = 1;
+        for (int i = 0; i < numPlayers; i++) {
+            if (scoreCards[i].getScore() > score) {
+                rank++;
             }
         }
-        return -1;
+        return rank;
+    }
+
+    /**
+     * Returns the leaderboard of this game, which ranks the players and
+     * lists the best of them. Games other than battle royales build it
+     * the first time it is asked for, and keep it up to date from then on.
+     * @return the leaderboard
+     */
+    public Leaderboard getLeaderboard() {
+        if (leaderboard == null) {
+            leaderboard = new Leaderboard(numPlayers);
+            for (int i = 0; i < numPlayers; i++) {
+                leaderboard.update(i, scoreCards[i].getScore());
+            }
+        }
+        return leaderboard;
+    }
+
+    /**
+     * Returns the highest score of any player, by scanning every card.
+     * @return the top score
+     */
+    private int getHighScore() {
+        int highScore = Integer.MIN_VALUE;
+        for (int i = 0; i < numPlayers; i++) {
+            highScore = Math.max(highScore, scoreCards[i].getScore());
+        }
+        return highScore;
     }
          
 }
\ No newline at end of file
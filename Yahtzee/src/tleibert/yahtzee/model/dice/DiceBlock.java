@@ -1,34 +1,54 @@
 package tleibert.yahtzee.model.dice;
 
 /**
- * Represents the 5 dice used in Yahtzee
- * 
+ * Represents the 5 dice used in Yahtzee. The dice are stored in
+ * a single long, see {@link PackedDice}.
+ *
  * @author Trevor Leibert
  */
 public class DiceBlock {
     /** number of dice used in Yahtzee */
     public static final int NUM_DICE = 5;
 
-    /** array of Die objects */
-    private Die[] dice;
+    /** packed values of the dice */
+    private long dice;
+
+    /** source of the random rolls */
+    private final RandomSource random;
 
     /**
-     * Constructor for the DiceBlock class. Each DiceBlock has five dice.
+     * Constructor for the DiceBlock class. Each DiceBlock has five dice,
+     * rolled with {@link ThreadLocalRandomSource}.
      */
     public DiceBlock() {
-        dice = new Die[NUM_DICE];
-        for (int i = 0; i < dice.length; i++) {
-            dice[i] = new Die();
+        this(ThreadLocalRandomSource.INSTANCE);
+    }
+
+    /**
+     * Constructs a DiceBlock that rolls with the given random source.
+     * @param random source of the random rolls
+     */
+    public DiceBlock(RandomSource random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Random source must not be null");
         }
+        dice = PackedDice.EMPTY;
+        this.random = random;
+    }
+
+    /**
+     * Returns the random source the dice are rolled with.
+     * @return the random source
+     */
+    public RandomSource getRandomSource() {
+        return random;
     }
 
     /**
      * Sets the value of each Die in this DiceBlock to zero.
      */
     public void resetDice() {
-        for (int i = 0; i < dice.length; i++) {
-            dice[i].reset();
-        }
+        dice = PackedDice.EMPTY;
     }
 
     /**
@@ -36,8 +56,8 @@ public class DiceBlock {
      * at the start of a player's turn.
      */
     public void initialRoll() {
-        for (int i = 0; i < dice.length; i++) {
-            dice[i].roll();
+        for (int i = 0; i < NUM_DICE; i++) {
+            dice = PackedDice.withFace(dice, i, random.nextFace());
         }
     }
 
@@ -48,37 +68,100 @@ public class DiceBlock {
      *                 for use for a player's second and third rolls.
      */
     public void rollSelected(boolean[] selected) {
-        for (int i = 0; i < dice.length; i++) {
+        for (int i = 0; i < NUM_DICE; i++) {
             if (selected[i]) {
-                dice[i].roll();
+                dice = PackedDice.withFace(dice, i, random.nextFace());
             }
         }
     }
 
-    /** 
+    /**
+     * Rolls every die that is not kept. Works like {@link #rollSelected(boolean[])}
+     * without needing an array.
+     * @param keepMask bit i set if die i is kept, all other dice are rolled
+     */
+    public void rollExcept(int keepMask) {
+        for (int i = 0; i < NUM_DICE; i++) {
+            if ((keepMask & (1 << i)) == 0) {
+                dice = PackedDice.withFace(dice, i, random.nextFace());
+            }
+        }
+    }
+
+    /**
+     * Returns the keep id of holding some of the dice, for looking up the
+     * chances of a reroll in {@link RerollTable}.
+     * @param keepMask bit i set if die i is kept
+     * @return the keep id
+     * @throws IllegalArgumentException if a kept die has not been rolled
+     */
+    public int getKeepId(int keepMask) {
+        return RerollTable.keepId(dice, keepMask);
+    }
+
+    /**
      * Returns an integer tally of the values of the dice in this DiceBlock
      * @return tally int array of the values of the dice in this DiceBlock
      */
     public int[] getTally() {
         int[] values = new int [Die.MAX_VALUE];
 
-        for (int i = 0; i < dice.length; i++) {
-            values[dice[i].getValue() - 1]++;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = PackedDice.count(dice, i + 1);
         }
 
         return values;
     }
 
+    /**
+     * Returns how many dice in this DiceBlock show the given value.
+     * @param face die value between one and six
+     * @return the number of dice showing that value
+     */
+    public int getCount(int face) {
+        return PackedDice.count(dice, face);
+    }
+
     /**
      * Returns the sum of the values of the dice in this DiceBlock
      * @return the sum of the dice values.
      */
     public int getSumOfDice() {
-        int sum = 0;
-        for (int i = 0; i < dice.length; i++) {
-            sum += dice[i].getValue();
-        }
-        return sum;
+        return PackedDice.sum(dice);
+    }
+
+    /**
+     * Returns the canonical id of the hand showing in this DiceBlock.
+     * The order of the dice does not matter, see {@link HandIndex}.
+     * @return hand id between 0 and 251, or -1 if not every die has been rolled.
+     */
+    public int getHandId() {
+        return PackedDice.canonicalId(dice);
+    }
+
+    /**
+     * Returns the value of one die in this DiceBlock.
+     * @param index index of the die, between 0 and 4
+     * @return the die value, or zero if it has not been rolled
+     */
+    public int getValue(int index) {
+        return PackedDice.face(dice, index);
+    }
+
+    /**
+     * Returns the packed representation of the dice in this DiceBlock.
+     * @return packed dice, see {@link PackedDice}
+     */
+    public long getPacked() {
+        return dice;
+    }
+
+    /**
+     * Sets the dice in this DiceBlock from a packed representation.
+     * @param packed packed dice, see {@link PackedDice}
+     */
+    public void setPacked(long packed) {
+        dice = packed;
     }
 
     /**
@@ -88,7 +171,7 @@ public class DiceBlock {
     public int[] toIntArray() {
         int[] array = new int[NUM_DICE];
         for (int i = 0; i < array.length; i++) {
-            array[i] = dice[i].getValue();
+            array[i] = PackedDice.face(dice, i);
         }
         return array;
     }
@@ -100,30 +183,19 @@ public class DiceBlock {
      * @param values values to set the dice to.
      */
     public void setDiceValues(int[] values) {
-        if (values.length != 5) {
-            throw new IllegalArgumentException("Must have five elements");
-        }
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] < 1 || values[i] > 6) {
-                throw new IllegalArgumentException("Values must be between one and six");
-            }
-        }
-
-        for (int i = 0; i < values.length; i++) {
-            dice[i].setValue(values[i]);
-        }
+        dice = PackedDice.of(values);
     }
 
     /**
-     * Returns a string representation of the dice in this DiceBlock. 
+     * Returns a string representation of the dice in this DiceBlock.
      * Intended primarily for testing.
      * @return string representing dice
      */
     public String toString() {
-        String s = "";
-        for (int i = 0; i < dice.length; i++) {
-            s += "[" + dice[i].getValue() + "]\n";
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < NUM_DICE; i++) {
+            s.append('[').append(PackedDice.face(dice, i)).append("]\n");
         }
-        return s;
+        return s.toString();
     }
 }
@@ -1,7 +1,5 @@
 package tleibert.yahtzee.model.dice;
 
-import java.util.Random;
-
 /**
  * Represents one six-sided Die used in Yahtzee
  * @author Trevor Leibert
@@ -14,23 +12,33 @@ public class Die {
 	/** value of Die */
     private int value;
 
-	/** Random number generator */
-    private Random rand;
+	/** source of the random rolls */
+    private RandomSource random;
 
 	/**
 	* Constructs Die object.
 	*/
     public Die() {
+        this(ThreadLocalRandomSource.INSTANCE);
+    }
+
+    /**
+     * Constructs Die object that rolls with the given random source.
+     * @param random source of the random rolls
+     */
+    public Die(RandomSource random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Random source must not be null");
+        }
         value = 0;
-        rand = new Random();
+        this.random = random;
     }
 
 	/**
 	* Rolls the Die
 	*/
     public void roll() {
-        
-        value = rand.nextInt(MAX_VALUE) + 1;
+        value = random.nextFace();
     }
 
 	/**
@@ -0,0 +1,140 @@
+package tleibert.yahtzee.model.dice;
+
+/**
+ * Assigns a canonical id to each of the 252 unordered outcomes of
+ * rolling five six-sided dice. Two hands get the same id if they hold
+ * the same multiset of values, no matter which die shows which value.
+ *
+ * Hands are identified by their tally key, which packs the count of each
+ * face value into three bits: bits 0-2 hold the number of ones, bits 3-5
+ * the number of twos, and so on up to the sixes in bits 15-17. Ids are
+ * handed out in lexicographic order of the sorted dice, so id 0 is
+ * 1-1-1-1-1 and id 251 is 6-6-6-6-6.
+ *
+ * @author Trevor Leibert
+ */
+public final class HandIndex {
+
+    /** number of distinct unordered five dice hands */
+    public static final int NUM_HANDS = 252;
+
+    /** number of bits used to store the count of one face value in a tally key */
+    public static final int TALLY_BITS = 3;
+
+    /** mask for the count of one face value in a tally key */
+    public static final int TALLY_MASK = (1 << TALLY_BITS) - 1;
+
+    /** number of possible tally keys */
+    public static final int NUM_TALLY_KEYS = 1 << (TALLY_BITS * 6);
+
+    /** maps tally keys to hand id + 1, zero marks keys that are not five dice hands */
+    private static final byte[] ID_BY_KEY = new byte[NUM_TALLY_KEYS];
+
+    /** tally key of each hand id */
+    private static final int[] KEY_BY_ID = new int[NUM_HANDS];
+
+    /** sum of the dice of each hand id */
+    private static final int[] SUM_BY_ID = new int[NUM_HANDS];
+
+    static {
+        int id = 0;
+        for (int a = 1; a <= 6; a++) {
+            for (int b = a; b <= 6; b++) {
+                for (int c = b; c <= 6; c++) {
+                    for (int d = c; d <= 6; d++) {
+                        for (int e = d; e <= 6; e++) {
+                            int key = faceKey(a) + faceKey(b) + faceKey(c)
+                                    + faceKey(d) + faceKey(e);
+                            KEY_BY_ID[id] = key;
+                            SUM_BY_ID[id] = a + b + c + d + e;
+                            ID_BY_KEY[key] = (byte) (id + 1);
+                            id++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * HandIndex only has static members.
+     */
+    private HandIndex() {
+    }
+
+    /**
+     * Returns the amount a single die showing the given value adds to a tally key.
+     * @param face die value between one and six
+     * @return the tally key of a single die
+     */
+    public static int faceKey(int face) {
+        return 1 << (TALLY_BITS * (face - 1));
+    }
+
+    /**
+     * Builds the tally key for a tally array.
+     * @param diceTally tally array with 6 elements, with the one at [0]
+     *                  representing the number of ones, and the one at [5]
+     *                  repersenting the number of sixes.
+     * @return the packed tally key
+     */
+    public static int tallyKey(int[] diceTally) {
+        int key = 0;
+        for (int i = 0; i < diceTally.length; i++) {
+            key += diceTally[i] << (TALLY_BITS * i);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the hand id for a tally key.
+     * @param tallyKey packed tally key
+     * @return the hand id, or -1 if the key does not describe exactly five dice
+     */
+    public static int idOf(int tallyKey) {
+        return (ID_BY_KEY[tallyKey] & 0xFF) - 1;
+    }
+
+    /**
+     * Returns the tally key of a hand.
+     * @param handId hand id between 0 and 251
+     * @return the packed tally key
+     */
+    public static int tallyKeyOf(int handId) {
+        return KEY_BY_ID[handId];
+    }
+
+    /**
+     * Returns how many dice in a hand show the given value.
+     * @param handId hand id between 0 and 251
+     * @param face die value between one and six
+     * @return the number of dice showing that value
+     */
+    public static int count(int handId, int face) {
+        return (KEY_BY_ID[handId] >>> (TALLY_BITS * (face - 1))) & TALLY_MASK;
+    }
+
+    /**
+     * Returns the sum of the dice in a hand.
+     * @param handId hand id between 0 and 251
+     * @return the sum of the dice values
+     */
+    public static int sum(int handId) {
+        return SUM_BY_ID[handId];
+    }
+
+    /**
+     * Writes the dice of a hand into the given array in ascending order.
+     * @param handId hand id between 0 and 251
+     * @param values array with at least five elements to fill
+     */
+    public static void faces(int handId, int[] values) {
+        int key = KEY_BY_ID[handId];
+        int i = 0;
+        for (int face = 1; face <= 6; face++) {
+            for (int n = (key >>> (TALLY_BITS * (face - 1))) & TALLY_MASK; n > 0; n--) {
+                values[i++] = face;
+            }
+        }
+    }
+}
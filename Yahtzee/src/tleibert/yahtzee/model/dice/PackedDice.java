@@ -0,0 +1,151 @@
+package tleibert.yahtzee.model.dice;
+
+/**
+ * Encodes the five dice of a {@link DiceBlock} in a single long, so hands
+ * can be stored and passed around without any objects.
+ *
+ * Layout of a packed value, from the lowest bit up:
+ * <ul>
+ * <li>bits 0-14: the value of each die, three bits per die. Zero means the
+ *     die has not been rolled.</li>
+ * <li>bits 15-32: the tally key of the rolled dice, as used by {@link HandIndex}</li>
+ * <li>bits 33-37: the sum of the rolled dice</li>
+ * </ul>
+ * The tally and the sum are kept up to date every time a die changes,
+ * so none of the accessors have to loop over the dice or allocate.
+ *
+ * @author Trevor Leibert
+ */
+public final class PackedDice {
+
+    /** packed value of five dice that have not been rolled */
+    public static final long EMPTY = 0L;
+
+    /** number of bits used to store the value of one die */
+    private static final int FACE_BITS = 3;
+
+    /** mask for the value of one die */
+    private static final long FACE_MASK = (1L << FACE_BITS) - 1;
+
+    /** position of the tally key */
+    private static final int TALLY_SHIFT = FACE_BITS * DiceBlock.NUM_DICE;
+
+    /** mask for the tally key once shifted down */
+    private static final long TALLY_MASK = HandIndex.NUM_TALLY_KEYS - 1;
+
+    /** position of the sum of the dice */
+    private static final int SUM_SHIFT = TALLY_SHIFT + HandIndex.TALLY_BITS * 6;
+
+    /** mask for the sum of the dice once shifted down */
+    private static final long SUM_MASK = (1L << 5) - 1;
+
+    /**
+     * PackedDice only has static members.
+     */
+    private PackedDice() {
+    }
+
+    /**
+     * Packs five die values.
+     * @param values five values between one and six
+     * @return the packed dice
+     */
+    public static long of(int[] values) {
+        if (values.length != DiceBlock.NUM_DICE) {
+            throw new IllegalArgumentException("Must have five elements");
+        }
+        long dice = EMPTY;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 1 || values[i] > Die.MAX_VALUE) {
+                throw new IllegalArgumentException("Values must be between one and six");
+            }
+            dice = withFace(dice, i, values[i]);
+        }
+        return dice;
+    }
+
+    /**
+     * Packs the dice of a hand in ascending order.
+     * @param handId hand id from {@link HandIndex}
+     * @return the packed dice
+     */
+    public static long ofHand(int handId) {
+        long dice = EMPTY;
+        int i = 0;
+        for (int face = 1; face <= 6; face++) {
+            for (int n = HandIndex.count(handId, face); n > 0; n--) {
+                dice = withFace(dice, i++, face);
+            }
+        }
+        return dice;
+    }
+
+    /**
+     * Returns the value of one die.
+     * @param dice packed dice
+     * @param index index of the die, between 0 and 4
+     * @return the die value, or zero if it has not been rolled
+     */
+    public static int face(long dice, int index) {
+        return (int) ((dice >>> (FACE_BITS * index)) & FACE_MASK);
+    }
+
+    /**
+     * Returns a copy of the packed dice with one die changed. The tally
+     * and sum are updated to match.
+     * @param dice packed dice
+     * @param index index of the die, between 0 and 4
+     * @param face new value of the die, between one and six, or zero
+     *             to mark the die as not rolled
+     * @return the updated packed dice
+     */
+    public static long withFace(long dice, int index, int face) {
+        int shift = FACE_BITS * index;
+        int old = (int) ((dice >>> shift) & FACE_MASK);
+        if (old != 0) {
+            dice -= ((long) HandIndex.faceKey(old) << TALLY_SHIFT) + ((long) old << SUM_SHIFT);
+        }
+        if (face != 0) {
+            dice += ((long) HandIndex.faceKey(face) << TALLY_SHIFT) + ((long) face << SUM_SHIFT);
+        }
+        return (dice & ~(FACE_MASK << shift)) | ((long) face << shift);
+    }
+
+    /**
+     * Returns how many dice show the given value.
+     * @param dice packed dice
+     * @param face die value between one and six
+     * @return the number of dice showing that value
+     */
+    public static int count(long dice, int face) {
+        return (int) (dice >>> (TALLY_SHIFT + HandIndex.TALLY_BITS * (face - 1))) & HandIndex.TALLY_MASK;
+    }
+
+    /**
+     * Returns the sum of the rolled dice.
+     * @param dice packed dice
+     * @return the sum of the dice values
+     */
+    public static int sum(long dice) {
+        return (int) ((dice >>> SUM_SHIFT) & SUM_MASK);
+    }
+
+    /**
+     * Returns the tally key of the rolled dice.
+     * @param dice packed dice
+     * @return the packed tally key, see {@link HandIndex}
+     */
+    public static int tallyKey(long dice) {
+        return (int) ((dice >>> TALLY_SHIFT) & TALLY_MASK);
+    }
+
+    /**
+     * Returns the canonical id of the hand, which does not depend on
+     * the order of the dice.
+     * @param dice packed dice
+     * @return hand id between 0 and 251, or -1 if not every die has been rolled
+     */
+    public static int canonicalId(long dice) {
+        return HandIndex.idOf(tallyKey(dice));
+    }
+}
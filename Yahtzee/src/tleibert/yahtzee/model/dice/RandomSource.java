@@ -0,0 +1,35 @@
+package tleibert.yahtzee.model.dice;
+
+/**
+ * Supplies the random numbers used to roll dice. Passing a RandomSource
+ * to {@link DiceBlock} or {@link tleibert.yahtzee.model.YahtzeeGame} picks
+ * how dice are rolled:
+ * <ul>
+ * <li>{@link ThreadLocalRandomSource} for fast rolls on any thread, with no
+ *     shared state between threads</li>
+ * <li>{@link SplittableRandomSource} for parallel simulations, where each
+ *     thread takes its own split of one seeded source</li>
+ * <li>{@link SeededRandomSource} for games that must be replayed exactly
+ *     from their seed</li>
+ * </ul>
+ *
+ * @author Trevor Leibert
+ */
+public interface RandomSource {
+
+    /**
+     * Returns a uniformly distributed number from zero up to, but not
+     * including, the bound.
+     * @param bound upper bound, must be positive
+     * @return the random number
+     */
+    int nextInt(int bound);
+
+    /**
+     * Returns the value of a freshly rolled die.
+     * @return a number between one and six
+     */
+    default int nextFace() {
+        return nextInt(Die.MAX_VALUE) + 1;
+    }
+}
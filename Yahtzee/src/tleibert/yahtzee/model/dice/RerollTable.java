@@ -0,0 +1,297 @@
+package tleibert.yahtzee.model.dice;
+
+/**
+ * Exact probabilities of rerolling dice, precomputed once. A keep is the
+ * multiset of dice held before a reroll, anywhere from no dice to all
+ * five, which gives 462 distinct keeps. For every keep this table lists
+ * each hand the reroll can end in with its probability, so the chances of
+ * {@link DiceBlock#rollSelected(boolean[])} can be read instead of
+ * enumerating the 6^k ways k dice can land.
+ *
+ * Keeps use the same tally keys as {@link HandIndex}, and keep ids are
+ * ordered by the number of dice held, so keeps of five dice, which do not
+ * change when rolled, have the highest ids. The outcomes of all keeps are
+ * stored in one sparse table: the outcomes of keep k are the entries from
+ * {@link #outcomeStart(int)} up to, but not including, {@link #outcomeEnd(int)}.
+ * Each hand also lists the distinct keeps that can be held from it.
+ *
+ * <pre>
+ * int keep = RerollTable.keepId(dice.getPacked(), keepMask);
+ * for (int i = RerollTable.outcomeStart(keep); i &lt; RerollTable.outcomeEnd(keep); i++) {
+ *     ... RerollTable.outcomeHand(i), RerollTable.outcomeProbability(i) ...
+ * }
+ * </pre>
+ *
+ * @author Trevor Leibert
+ */
+public final class RerollTable {
+
+    /** number of distinct multisets of zero to five dice */
+    public static final int NUM_KEEPS = 462;
+
+    /** keep id of holding no dice, whose outcomes are the initial roll */
+    public static final int EMPTY_KEEP = 0;
+
+    /** keeps of fewer than five dice have ids below this, and all five dice keeps are at or above it */
+    public static final int FIRST_FULL_KEEP = NUM_KEEPS - HandIndex.NUM_HANDS;
+
+    /** maps tally keys to keep id + 1, zero marks keys of more than five dice */
+    private static final short[] ID_BY_KEY = new short[HandIndex.NUM_TALLY_KEYS];
+
+    /** tally key of each keep */
+    private static final int[] KEY_BY_ID = new int[NUM_KEEPS];
+
+    /** number of dice held by each keep */
+    private static final int[] SIZE_BY_ID = new int[NUM_KEEPS];
+
+    /** first outcome of each keep, the outcomes of keep k end at OUTCOME_START[k + 1] */
+    private static final int[] OUTCOME_START = new int[NUM_KEEPS + 1];
+
+    /** hand id of each outcome */
+    private static final int[] OUTCOME_HAND;
+
+    /** probability of each outcome */
+    private static final double[] OUTCOME_PROB;
+
+    /** first keep of each hand, the keeps of hand h end at HAND_KEEP_START[h + 1] */
+    private static final int[] HAND_KEEP_START = new int[HandIndex.NUM_HANDS + 1];
+
+    /** distinct keeps that can be held from each hand */
+    private static final int[] HAND_KEEPS;
+
+    static {
+        // every tally of up to five dice, in order of the number of dice
+        int count = 0;
+        for (int size = 0; size <= DiceBlock.NUM_DICE; size++) {
+            count = addTallies(size, 1, 0, count);
+        }
+
+        int[] factorial = {1, 1, 2, 6, 24, 120};
+        int[] hands = new int[NUM_KEEPS * HandIndex.NUM_HANDS];
+        double[] probs = new double[hands.length];
+        int outcomes = 0;
+        for (int keep = 0; keep < NUM_KEEPS; keep++) {
+            OUTCOME_START[keep] = outcomes;
+            int rolled = DiceBlock.NUM_DICE - SIZE_BY_ID[keep];
+            double total = Math.pow(6, rolled);
+            // the keeps of exactly the rolled size are the possible results of the roll
+            for (int roll = 0; roll < NUM_KEEPS; roll++) {
+                int rollKey = KEY_BY_ID[roll];
+                if (SIZE_BY_ID[roll] == rolled) {
+                    int ways = factorial[rolled];
+                    for (int face = 1; face <= 6; face++) {
+                        ways /= factorial[countOf(rollKey, face)];
+                    }
+                    hands[outcomes] = HandIndex.idOf(KEY_BY_ID[keep] + rollKey);
+                    probs[outcomes] = ways / total;
+                    outcomes++;
+                }
+            }
+        }
+        OUTCOME_START[NUM_KEEPS] = outcomes;
+        OUTCOME_HAND = new int[outcomes];
+        OUTCOME_PROB = new double[outcomes];
+        System.arraycopy(hands, 0, OUTCOME_HAND, 0, outcomes);
+        System.arraycopy(probs, 0, OUTCOME_PROB, 0, outcomes);
+
+        // a keep fits in a hand if it holds no more of any value than the hand
+        int[] keeps = new int[HandIndex.NUM_HANDS * (1 << DiceBlock.NUM_DICE)];
+        int k = 0;
+        for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+            HAND_KEEP_START[hand] = k;
+            int handKey = HandIndex.tallyKeyOf(hand);
+            for (int keep = 0; keep < NUM_KEEPS; keep++) {
+                boolean fits = true;
+                for (int face = 1; face <= 6 && fits; face++) {
+                    fits = countOf(KEY_BY_ID[keep], face) <= countOf(handKey, face);
+                }
+                if (fits) {
+                    keeps[k++] = keep;
+                }
+            }
+        }
+        HAND_KEEP_START[HandIndex.NUM_HANDS] = k;
+        HAND_KEEPS = new int[k];
+        System.arraycopy(keeps, 0, HAND_KEEPS, 0, k);
+    }
+
+    /**
+     * RerollTable only has static members.
+     */
+    private RerollTable() {
+    }
+
+    /**
+     * Returns the keep id for a tally key of up to five dice.
+     * @param tallyKey packed tally key, see {@link HandIndex}
+     * @return the keep id, or -1 if the key holds more than five dice
+     */
+    public static int keepId(int tallyKey) {
+        return ID_BY_KEY[tallyKey] - 1;
+    }
+
+    /**
+     * Returns the keep id of holding some of the dice showing.
+     * @param packedDice the dice, see {@link PackedDice}
+     * @param keepMask bit i set if die i is kept
+     * @return the keep id
+     * @throws IllegalArgumentException if a kept die has not been rolled
+     */
+    public static int keepId(long packedDice, int keepMask) {
+        int key = 0;
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            if ((keepMask & (1 << i)) != 0) {
+                int face = PackedDice.face(packedDice, i);
+                if (face < 1 || face > 6) {
+                    throw new IllegalArgumentException("Dice have not been rolled");
+                }
+                key += HandIndex.faceKey(face);
+            }
+        }
+        return keepId(key);
+    }
+
+    /**
+     * Returns the tally key of a keep.
+     * @param keepId keep id
+     * @return the packed tally key
+     */
+    public static int tallyKey(int keepId) {
+        return KEY_BY_ID[keepId];
+    }
+
+    /**
+     * Returns the number of dice a keep holds.
+     * @param keepId keep id
+     * @return number of dice held
+     */
+    public static int size(int keepId) {
+        return SIZE_BY_ID[keepId];
+    }
+
+    /**
+     * Returns how many dice of a keep show the given value.
+     * @param keepId keep id
+     * @param face die value between one and six
+     * @return the number of dice showing that value
+     */
+    public static int count(int keepId, int face) {
+        return countOf(KEY_BY_ID[keepId], face);
+    }
+
+    /**
+     * Returns the first outcome of a keep.
+     * @param keepId keep id
+     * @return index of the first outcome
+     */
+    public static int outcomeStart(int keepId) {
+        return OUTCOME_START[keepId];
+    }
+
+    /**
+     * Returns the end of the outcomes of a keep.
+     * @param keepId keep id
+     * @return index just past the last outcome
+     */
+    public static int outcomeEnd(int keepId) {
+        return OUTCOME_START[keepId + 1];
+    }
+
+    /**
+     * Returns the hand an outcome ends in.
+     * @param outcome index of the outcome
+     * @return the hand id
+     */
+    public static int outcomeHand(int outcome) {
+        return OUTCOME_HAND[outcome];
+    }
+
+    /**
+     * Returns the probability of an outcome.
+     * @param outcome index of the outcome
+     * @return the probability
+     */
+    public static double outcomeProbability(int outcome) {
+        return OUTCOME_PROB[outcome];
+    }
+
+    /**
+     * Returns the probability that rerolling the dice not kept ends in the
+     * given hand.
+     * @param packedDice the dice showing, see {@link PackedDice}
+     * @param keepMask bit i set if die i is kept
+     * @param handId hand id of the result
+     * @return the probability, zero if the hand cannot be reached
+     * @throws IllegalArgumentException if a kept die has not been rolled
+     */
+    public static double probability(long packedDice, int keepMask, int handId) {
+        int keep = keepId(packedDice, keepMask);
+        for (int i = OUTCOME_START[keep]; i < OUTCOME_START[keep + 1]; i++) {
+            if (OUTCOME_HAND[i] == handId) {
+                return OUTCOME_PROB[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the first keep that can be held from a hand.
+     * @param handId hand id
+     * @return index of the first keep of the hand
+     */
+    public static int handKeepStart(int handId) {
+        return HAND_KEEP_START[handId];
+    }
+
+    /**
+     * Returns the end of the keeps that can be held from a hand.
+     * @param handId hand id
+     * @return index just past the last keep of the hand
+     */
+    public static int handKeepEnd(int handId) {
+        return HAND_KEEP_START[handId + 1];
+    }
+
+    /**
+     * Returns one of the keeps that can be held from a hand.
+     * @param index index between {@link #handKeepStart(int)} and {@link #handKeepEnd(int)}
+     * @return the keep id
+     */
+    public static int handKeep(int index) {
+        return HAND_KEEPS[index];
+    }
+
+    /**
+     * Adds every tally with the given number of dice to the id tables,
+     * filling in the faces from the given one upwards.
+     * @param dice number of dice still to place
+     * @param face lowest face value that may still be used
+     * @param key tally key built so far
+     * @param next next free keep id
+     * @return the next free keep id after adding the tallies
+     */
+    private static int addTallies(int dice, int face, int key, int next) {
+        if (dice == 0) {
+            KEY_BY_ID[next] = key;
+            ID_BY_KEY[key] = (short) (next + 1);
+            for (int f = 1; f <= 6; f++) {
+                SIZE_BY_ID[next] += countOf(key, f);
+            }
+            return next + 1;
+        }
+        for (int f = face; f <= 6; f++) {
+            next = addTallies(dice - 1, f, key + HandIndex.faceKey(f), next);
+        }
+        return next;
+    }
+
+    /**
+     * Returns how many dice of a tally key show the given value.
+     * @param tallyKey packed tally key
+     * @param face die value between one and six
+     * @return the count for that value
+     */
+    private static int countOf(int tallyKey, int face) {
+        return (tallyKey >>> (HandIndex.TALLY_BITS * (face - 1))) & HandIndex.TALLY_MASK;
+    }
+}
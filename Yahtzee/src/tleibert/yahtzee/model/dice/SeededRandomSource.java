@@ -0,0 +1,102 @@
+package tleibert.yahtzee.model.dice;
+
+/**
+ * Deterministic RandomSource for replaying games. It runs the SplitMix64
+ * generator, which is written out here rather than borrowed from the JDK,
+ * so a seed stored today gives the same dice on every future Java version.
+ * It is not thread safe.
+ *
+ * @author Trevor Leibert
+ */
+public final class SeededRandomSource implements RandomSource {
+
+    /** SplitMix64 increment */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** number of values of a 31 bit random number */
+    private static final long RANGE = 1L << 31;
+
+    /** seed the stream started from */
+    private long seed;
+
+    /** current generator state */
+    private long state;
+
+    /**
+     * Constructs a source from a seed.
+     * @param seed the seed
+     */
+    public SeededRandomSource(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Restarts the stream from a new seed.
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    /**
+     * Returns the seed the stream started from.
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Restarts the stream from its seed, so the same numbers come out again.
+     */
+    public void reset() {
+        state = seed;
+    }
+
+    /**
+     * Returns the current state of the generator, so the stream can be
+     * saved and carried on later with {@link #setState(long)}.
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Carries the stream on from a saved state, keeping the seed it
+     * started from.
+     * @param state a state returned by {@link #getState()}
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Returns the next 64 random bits.
+     * @return random bits
+     */
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+        // scale 31 random bits to the bound, rejecting the few products
+        // that would make some values more likely than others
+        long m = (nextLong() >>> 33) * bound;
+        if ((m & (RANGE - 1)) < bound) {
+            long threshold = RANGE % bound;
+            while ((m & (RANGE - 1)) < threshold) {
+                m = (nextLong() >>> 33) * bound;
+            }
+        }
+        return (int) (m >>> 31);
+    }
+}
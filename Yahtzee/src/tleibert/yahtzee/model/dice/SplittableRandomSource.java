@@ -0,0 +1,52 @@
+package tleibert.yahtzee.model.dice;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomSource backed by a {@link SplittableRandom}. It is not thread safe;
+ * parallel work should {@link #split()} one source per thread, which gives
+ * independent streams that are still fully determined by the first seed.
+ *
+ * @author Trevor Leibert
+ */
+public final class SplittableRandomSource implements RandomSource {
+
+    /** the generator */
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a source with an unpredictable seed.
+     */
+    public SplittableRandomSource() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs a source from a seed.
+     * @param seed the seed
+     */
+    public SplittableRandomSource(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructs a source over a generator.
+     * @param random the generator
+     */
+    private SplittableRandomSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns a new source whose stream does not overlap with this one.
+     * @return the split source
+     */
+    public SplittableRandomSource split() {
+        return new SplittableRandomSource(random.split());
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
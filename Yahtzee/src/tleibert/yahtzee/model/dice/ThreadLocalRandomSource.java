@@ -0,0 +1,27 @@
+package tleibert.yahtzee.model.dice;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RandomSource backed by {@link ThreadLocalRandom}. Every thread rolls from
+ * its own generator, so one instance can be shared by any number of
+ * threads without contention. The rolls cannot be replayed.
+ *
+ * @author Trevor Leibert
+ */
+public final class ThreadLocalRandomSource implements RandomSource {
+
+    /** the shared instance */
+    public static final ThreadLocalRandomSource INSTANCE = new ThreadLocalRandomSource();
+
+    /**
+     * Use {@link #INSTANCE}.
+     */
+    private ThreadLocalRandomSource() {
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+}
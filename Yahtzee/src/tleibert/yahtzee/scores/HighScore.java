@@ -0,0 +1,116 @@
+package tleibert.yahtzee.scores;
+
+/**
+ * One player's result in a finished game, as kept by a {@link HighScoreStore}.
+ *
+ * @author Trevor Leibert
+ */
+public final class HighScore {
+
+    /** position of the result in the store */
+    private final long recordNumber;
+
+    /** id of the game, as given when it was recorded */
+    private final long gameId;
+
+    /** time the result was recorded, in milliseconds since the epoch */
+    private final long timeMillis;
+
+    /** final score */
+    private final int score;
+
+    /** index of the player in the game */
+    private final int player;
+
+    /** number of players in the game */
+    private final int numPlayers;
+
+    /** rank of the player in the game, 1 for a winner */
+    private final int rank;
+
+    /**
+     * Constructs a HighScore.
+     * @param recordNumber position of the result in the store
+     * @param gameId id of the game
+     * @param timeMillis time the result was recorded
+     * @param score final score
+     * @param player index of the player in the game
+     * @param numPlayers number of players in the game
+     * @param rank rank of the player in the game
+     */
+    HighScore(long recordNumber, long gameId, long timeMillis, int score, int player, int numPlayers, int rank) {
+        this.recordNumber = recordNumber;
+        this.gameId = gameId;
+        this.timeMillis = timeMillis;
+        this.score = score;
+        this.player = player;
+        this.numPlayers = numPlayers;
+        this.rank = rank;
+    }
+
+    /**
+     * Returns the position of the result in the store, which orders results
+     * by when they were recorded.
+     * @return the record number
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Returns the id of the game, as given when it was recorded.
+     * @return the game id
+     */
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Returns the time the result was recorded.
+     * @return milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns the final score.
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the index of the player in the game.
+     * @return the player
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the number of players in the game.
+     * @return number of players
+     */
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    /**
+     * Returns the rank of the player in the game. Tied players share a rank.
+     * @return the rank, 1 for a winner
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Describes the result, for printing.
+     * @return the description
+     */
+    public String toString() {
+        return score + " by player " + (player + 1) + " of " + numPlayers + " in game " + gameId
+                + (rank == 1 ? ", won" : ", ranked " + rank);
+    }
+}
@@ -0,0 +1,822 @@
+package tleibert.yahtzee.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Keeps the results of finished games on disk, and answers which are the
+ * best, where a score places, and which score a percentile reaches,
+ * without reading the results into the heap.
+ *
+ * A store is a directory of two files. The log, {@value #LOG_FILE}, is a
+ * 32 byte header followed by one 32 byte record per result, appended
+ * through memory mapped chunks of {@link #CHUNK_BYTES} like a
+ * {@link tleibert.yahtzee.journal.GameJournal}, all little endian:
+ * <pre>
+ *  0  long   game id
+ *  8  long   time in milliseconds since the epoch
+ * 16  int    previous record with the same score, -1 for none
+ * 20  short  score
+ * 22  short  player
+ * 24  short  number of players - 1
+ * 26  short  rank - 1
+ * 28  3 bytes unused
+ * 31  byte   1, written last, zero past the end of the log
+ * </pre>
+ * The link to the previous record with the same score chains every
+ * score's results together on disk, newest first, so the log is only ever
+ * appended to. The index, {@value #INDEX_FILE}, is a 32 byte header and
+ * the record numbers of the first results of the log, sorted by score
+ * from the highest down, and by record number among equal scores. A
+ * result is found in the index if it is old enough, and by following its
+ * score's chain otherwise.
+ *
+ * Opening a store reads the log once from start to end, and keeps only
+ * the number of results on each score, and the newest result on each,
+ * in the heap. Once enough results have been added past the end of the
+ * index, a new index is written in the background, merging the old one
+ * with the new results, and swapped in.
+ *
+ * Results are ordered by score from the highest down, and among equal
+ * scores the one recorded first comes first. A store is thread safe.
+ *
+ * @author Trevor Leibert
+ */
+public class HighScoreStore implements Closeable {
+
+    /** file holding the results */
+    public static final String LOG_FILE = "scores.log";
+
+    /** file holding the sorted index */
+    public static final String INDEX_FILE = "scores.idx";
+
+    /** first eight bytes of the log, "YAHTZHSL" */
+    public static final long LOG_MAGIC = 0x4C53485A54484159L;
+
+    /** first eight bytes of the index, "YAHTZHSI" */
+    public static final long INDEX_MAGIC = 0x4953485A54484159L;
+
+    /** version of the file formats */
+    public static final int FORMAT_VERSION = 1;
+
+    /** size of the headers, and of every record of the log, in bytes */
+    public static final int RECORD_BYTES = 32;
+
+    /** the log is mapped and grown this many bytes at a time */
+    public static final int CHUNK_BYTES = 1 << 24;
+
+    /** default number of results past the end of the index that starts a compaction */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1 << 16;
+
+    /** highest score that can be stored */
+    public static final int MAX_SCORE = ScoreCard.MAX_SCORE;
+
+    /** most players a game can have for its results to be stored */
+    public static final int MAX_PLAYERS = 1 << 16;
+
+    /** offset of the time in a record */
+    private static final int TIME_OFFSET = 8;
+
+    /** offset of the previous record with the same score in a record */
+    private static final int PREVIOUS_OFFSET = 16;
+
+    /** offset of the score in a record */
+    private static final int SCORE_OFFSET = 20;
+
+    /** offset of the player in a record */
+    private static final int PLAYER_OFFSET = 22;
+
+    /** offset of the number of players in a record */
+    private static final int PLAYERS_OFFSET = 24;
+
+    /** offset of the rank in a record */
+    private static final int RANK_OFFSET = 26;
+
+    /** offset of the byte marking a complete record */
+    private static final int MARK_OFFSET = 31;
+
+    /** records in one chunk of the log */
+    private static final int RECORDS_PER_CHUNK = CHUNK_BYTES / RECORD_BYTES;
+
+    /** marks the end of a chain */
+    private static final int NONE = -1;
+
+    /** size of the buffer the index is written through */
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    /** directory of the store */
+    private final Path directory;
+
+    /** the log file */
+    private final FileChannel log;
+
+    /** mapped chunks of the log; the first starts with the header. Replaced, never changed, when the log grows */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /** number of results in the log */
+    private long records;
+
+    /** number of results on each score */
+    private final long[] counts = new long[MAX_SCORE + 1];
+
+    /** newest result on each score, or NONE */
+    private final int[] newest = new int[MAX_SCORE + 1];
+
+    /** the sorted index, or null if there is none */
+    private IntBuffer index;
+
+    /** number of results in the index, which are the first of the log */
+    private long indexed;
+
+    /** number of results on each score in the index */
+    private long[] indexCounts = new long[MAX_SCORE + 1];
+
+    /** position in the index of the first result on each score */
+    private long[] indexStarts = new long[MAX_SCORE + 1];
+
+    /** number of results past the end of the index that starts a compaction */
+    private final int compactThreshold;
+
+    /** writes new indexes in the background */
+    private final ExecutorService compactor;
+
+    /** whether a compaction has been started in the background and not finished */
+    private boolean compacting;
+
+    /** whether the store is closed */
+    private boolean closed;
+
+    /**
+     * Opens a store with the default compaction threshold, creating it if
+     * it does not exist.
+     * @param directory directory of the store
+     * @throws IOException if the store cannot be opened, or is not a store
+     */
+    public HighScoreStore(Path directory) throws IOException {
+        this(directory, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * Opens a store, creating it if it does not exist.
+     * @param directory directory of the store
+     * @param compactThreshold number of results past the end of the index
+     *                         that starts writing a new index
+     * @throws IOException if the store cannot be opened, or is not a store
+     */
+    public HighScoreStore(Path directory, int compactThreshold) throws IOException {
+        if (compactThreshold < 1) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.directory = directory;
+        this.compactThreshold = compactThreshold;
+        Files.createDirectories(directory);
+        log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = log.size() == 0;
+            mapChunk();
+            MappedByteBuffer header = chunks[0];
+            if (created) {
+                header.putLong(0, LOG_MAGIC);
+                header.putInt(8, FORMAT_VERSION);
+                header.putInt(12, RECORD_BYTES);
+            } else if (header.getLong(0) != LOG_MAGIC || header.getInt(8) != FORMAT_VERSION
+                    || header.getInt(12) != RECORD_BYTES) {
+                throw new IOException(directory + " is not a high score store");
+            }
+            while (chunks.length * (long) CHUNK_BYTES < log.size()) {
+                mapChunk();
+            }
+            readIndex();
+            scan();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "yahtzee-high-score-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactIfDue();
+    }
+
+    /**
+     * Adds the result of every player of a finished game.
+     * @param game the game
+     * @param gameId id to store the game under
+     * @throws IllegalArgumentException if the game is not over
+     */
+    public void recordGame(YahtzeeGame game, long gameId) {
+        if (!game.getIsOver()) {
+            throw new IllegalArgumentException("Game is not over");
+        }
+        int[] scores = game.getScores();
+        int[] ranks = new int[scores.length];
+        for (int player = 0; player < ranks.length; player++) {
+            ranks[player] = game.getRank(player);
+        }
+        recordGame(gameId, scores, ranks);
+    }
+
+    /**
+     * Adds the result of every player of a finished game, given as the
+     * final scores and ranks, so a game can be recorded away from the
+     * thread that owns it.
+     * @param gameId id to store the game under
+     * @param scores final score of each player
+     * @param ranks rank of each player, 1 for a winner
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void recordGame(long gameId, int[] scores, int[] ranks) {
+        if (scores.length != ranks.length) {
+            throw new IllegalArgumentException("Need a rank for every score");
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (int player = 0; player < scores.length; player++) {
+                record(gameId, now, scores[player], player, scores.length, ranks[player]);
+            }
+        }
+    }
+
+    /**
+     * Adds the result of every player of a finished game under a new game
+     * id, one more than the id of the newest result in the store, so
+     * games recorded by one program get ids that follow on from each
+     * other across runs.
+     * @param scores final score of each player
+     * @param ranks rank of each player, 1 for a winner
+     * @return the id the game was stored under
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public synchronized long recordGame(int[] scores, int[] ranks) {
+        long gameId = records == 0 ? 0 : chunkOf(records - 1).getLong(offsetOf(records - 1)) + 1;
+        recordGame(gameId, scores, ranks);
+        return gameId;
+    }
+
+    /**
+     * Adds one result.
+     * @param gameId id of the game
+     * @param timeMillis time of the result, in milliseconds since the epoch
+     * @param score final score
+     * @param player index of the player in the game
+     * @param numPlayers number of players in the game
+     * @param rank rank of the player in the game, 1 for a winner
+     * @return the record number of the result
+     */
+    public synchronized long record(long gameId, long timeMillis, int score, int player, int numPlayers,
+            int rank) {
+        if (closed) {
+            throw new IllegalStateException("Store is closed");
+        }
+        if (score < 0 || score > MAX_SCORE) {
+            throw new IllegalArgumentException("Invalid score");
+        }
+        if (numPlayers < 1 || numPlayers > MAX_PLAYERS || player < 0 || player >= numPlayers
+                || rank < 1 || rank > numPlayers) {
+            throw new IllegalArgumentException("Invalid player");
+        }
+        if (records == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Store is full");
+        }
+        if (records + 1 >= (long) chunks.length * RECORDS_PER_CHUNK) {
+            try {
+                mapChunk();
+            } catch (IOException e) {
+                throw new IllegalStateException("Store cannot grow", e);
+            }
+        }
+        long record = records;
+        MappedByteBuffer chunk = chunkOf(record);
+        int at = offsetOf(record);
+        chunk.putLong(at, gameId);
+        chunk.putLong(at + TIME_OFFSET, timeMillis);
+        chunk.putInt(at + PREVIOUS_OFFSET, newest[score]);
+        chunk.putShort(at + SCORE_OFFSET, (short) score);
+        chunk.putShort(at + PLAYER_OFFSET, (short) player);
+        chunk.putShort(at + PLAYERS_OFFSET, (short) (numPlayers - 1));
+        chunk.putShort(at + RANK_OFFSET, (short) (rank - 1));
+        chunk.put(at + MARK_OFFSET, (byte) 1);
+        records++;
+        counts[score]++;
+        newest[score] = (int) record;
+        compactIfDue();
+        return record;
+    }
+
+    /**
+     * Returns the number of results stored.
+     * @return number of results
+     */
+    public synchronized long size() {
+        return records;
+    }
+
+    /**
+     * Returns the number of results on a score.
+     * @param score the score
+     * @return number of results
+     */
+    public synchronized long getCount(int score) {
+        return score < 0 || score > MAX_SCORE ? 0 : counts[score];
+    }
+
+    /**
+     * Returns the number of results with a higher score than the given one.
+     * @param score the score
+     * @return number of results above it
+     */
+    public synchronized long countAbove(int score) {
+        long above = 0;
+        for (int s = MAX_SCORE; s > score && s >= 0; s--) {
+            above += counts[s];
+        }
+        return above;
+    }
+
+    /**
+     * Returns the place a score would take among the stored results: one
+     * more than the number of results with a higher score.
+     * @param score the score
+     * @return the place, 1 for the best
+     */
+    public long getPlace(int score) {
+        return countAbove(score) + 1;
+    }
+
+    /**
+     * Returns the fraction of results with a lower score than the given one.
+     * @param score the score
+     * @return the fraction, between 0 and 1, or NaN if nothing is stored
+     */
+    public synchronized double getFractionBelow(int score) {
+        long below = records - countAbove(score - 1);
+        return records == 0 ? Double.NaN : (double) below / records;
+    }
+
+    /**
+     * Returns the lowest score that at least the given fraction of results
+     * did not exceed.
+     * @param fraction fraction of results, between 0 and 1
+     * @return the score at that percentile, or -1 if nothing is stored
+     */
+    public synchronized int getPercentile(double fraction) {
+        if (records == 0) {
+            return -1;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * records));
+        long seen = 0;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            seen += counts[score];
+            if (seen >= target) {
+                return score;
+            }
+        }
+        return MAX_SCORE;
+    }
+
+    /**
+     * Returns the result in the given place.
+     * @param place place of the result, 1 for the best
+     * @return the result
+     * @throws IllegalArgumentException if there is no such place
+     */
+    public synchronized HighScore getAt(long place) {
+        if (place < 1 || place > records) {
+            throw new IllegalArgumentException("Invalid place");
+        }
+        long above = 0;
+        int score = MAX_SCORE;
+        while (above + counts[score] < place) {
+            above += counts[score];
+            score--;
+        }
+        return read(recordOf(score, place - above - 1));
+    }
+
+    /**
+     * Lists the best results, best first.
+     * @param k number of results wanted
+     * @return the best k results, or every result if there are fewer
+     */
+    public synchronized List<HighScore> top(int k) {
+        List<HighScore> top = new ArrayList<>();
+        for (int score = MAX_SCORE; score >= 0 && top.size() < k; score--) {
+            if (counts[score] == 0) {
+                continue;
+            }
+            long fromIndex = Math.min(indexCounts[score], k - top.size());
+            for (long i = 0; i < fromIndex; i++) {
+                top.add(read(index.get((int) (indexStarts[score] + i))));
+            }
+            if (top.size() < k && counts[score] > indexCounts[score]) {
+                int[] chain = chain(score, newest[score], indexed);
+                for (int i = 0; i < chain.length && top.size() < k; i++) {
+                    top.add(read(chain[i]));
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the result with the given record number.
+     * @param recordNumber record number
+     * @return the result
+     */
+    public synchronized HighScore get(long recordNumber) {
+        if (recordNumber < 0 || recordNumber >= records) {
+            throw new IllegalArgumentException("Invalid record number");
+        }
+        return read(recordNumber);
+    }
+
+    /**
+     * Returns the number of results in the sorted index. The rest are
+     * found by following their score's chain until the next compaction.
+     * @return number of indexed results
+     */
+    public synchronized long getIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Writes a new index of every result stored, and waits for it.
+     * @throws IOException if the index cannot be written
+     */
+    public void compact() throws IOException {
+        Future<?> done;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Store is closed");
+            }
+            done = compactor.submit(() -> {
+                compactNow();
+                return null;
+            });
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for compaction", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Compaction failed", e.getCause());
+        }
+    }
+
+    /**
+     * Forces every result added so far to disk.
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Waits for a compaction in progress, then flushes and closes the store.
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            // a compaction is never interrupted, so a half written index is never left behind
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            log.close();
+        }
+    }
+
+    /**
+     * Reads the index, if there is one that fits the log.
+     * @throws IOException if the index cannot be read
+     */
+    private void readIndex() throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < RECORD_BYTES) {
+                return;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            long covered = mapped.getLong(16);
+            if (mapped.getLong(0) != INDEX_MAGIC || mapped.getInt(8) != FORMAT_VERSION
+                    || size != RECORD_BYTES + covered * Integer.BYTES) {
+                // stale or damaged, the next compaction replaces it
+                return;
+            }
+            mapped.position(RECORD_BYTES);
+            index = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            indexed = covered;
+        }
+    }
+
+    /**
+     * Reads the log from start to end, counting the results on each score
+     * and finding the newest on each. Results past the last complete one
+     * are dropped.
+     * @throws IOException if the index covers more results than the log holds
+     */
+    private void scan() throws IOException {
+        Arrays.fill(newest, NONE);
+        long[] covered = new long[MAX_SCORE + 1];
+        long record = 0;
+        long capacity = (long) chunks.length * RECORDS_PER_CHUNK - 1;
+        while (record < capacity) {
+            MappedByteBuffer chunk = chunkOf(record);
+            int at = offsetOf(record);
+            if (chunk.get(at + MARK_OFFSET) != 1) {
+                break;
+            }
+            int score = chunk.getShort(at + SCORE_OFFSET);
+            if (score < 0 || score > MAX_SCORE) {
+                throw new IOException("Damaged record " + record + " in " + directory);
+            }
+            counts[score]++;
+            if (record < indexed) {
+                covered[score]++;
+            }
+            newest[score] = (int) record;
+            record++;
+        }
+        records = record;
+        if (indexed > records) {
+            index = null;
+            indexed = 0;
+            Arrays.fill(covered, 0);
+        }
+        setIndexCounts(covered);
+    }
+
+    /**
+     * Sets the number of results on each score in the index, and works out
+     * where each score starts.
+     * @param covered number of results on each score in the index
+     */
+    private void setIndexCounts(long[] covered) {
+        long[] starts = new long[MAX_SCORE + 1];
+        long start = 0;
+        for (int score = MAX_SCORE; score >= 0; score--) {
+            starts[score] = start;
+            start += covered[score];
+        }
+        indexCounts = covered;
+        indexStarts = starts;
+    }
+
+    /**
+     * Returns the record number of a result on a score.
+     * @param score the score
+     * @param n position among the results on the score, 0 for the first recorded
+     * @return the record number
+     */
+    private long recordOf(int score, long n) {
+        if (n < indexCounts[score]) {
+            return index.get((int) (indexStarts[score] + n));
+        }
+        // the chain runs newest first, so count back from the newest
+        long back = counts[score] - 1 - n;
+        int record = newest[score];
+        for (long i = 0; i < back; i++) {
+            record = chunkOf(record).getInt(offsetOf(record) + PREVIOUS_OFFSET);
+        }
+        return record;
+    }
+
+    /**
+     * Lists the results on a score from the given one back to the first
+     * one not before a record number, first recorded first.
+     * @param score the score
+     * @param from newest result to list
+     * @param oldest lowest record number to list
+     * @return the record numbers
+     */
+    private int[] chain(int score, int from, long oldest) {
+        int length = 0;
+        for (int record = from; record != NONE && record >= oldest;
+                record = chunkOf(record).getInt(offsetOf(record) + PREVIOUS_OFFSET)) {
+            length++;
+        }
+        int[] chain = new int[length];
+        int i = length;
+        for (int record = from; i > 0; record = chunkOf(record).getInt(offsetOf(record) + PREVIOUS_OFFSET)) {
+            chain[--i] = record;
+        }
+        return chain;
+    }
+
+    /**
+     * Reads a result.
+     * @param record record number
+     * @return the result
+     */
+    private HighScore read(long record) {
+        MappedByteBuffer chunk = chunkOf(record);
+        int at = offsetOf(record);
+        return new HighScore(record, chunk.getLong(at), chunk.getLong(at + TIME_OFFSET),
+                chunk.getShort(at + SCORE_OFFSET), Short.toUnsignedInt(chunk.getShort(at + PLAYER_OFFSET)),
+                Short.toUnsignedInt(chunk.getShort(at + PLAYERS_OFFSET)) + 1,
+                Short.toUnsignedInt(chunk.getShort(at + RANK_OFFSET)) + 1);
+    }
+
+    /**
+     * Starts a compaction in the background if enough results have been
+     * added past the end of the index and none is running.
+     */
+    private void compactIfDue() {
+        if (compacting || closed || records - indexed < compactThreshold) {
+            return;
+        }
+        compacting = true;
+        compactor.execute(() -> {
+            try {
+                compactNow();
+            } catch (IOException | RuntimeException e) {
+                // the old index is still valid; the next result tries again
+                synchronized (this) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a new index of every result stored so far and swaps it in.
+     * Only runs on the compactor, so only one index is written at a time.
+     * @throws IOException if the index cannot be written
+     */
+    private void compactNow() throws IOException {
+        Snapshot snapshot;
+        synchronized (this) {
+            snapshot = new Snapshot();
+        }
+        IntBuffer newIndex = writeIndex(snapshot);
+        synchronized (this) {
+            index = newIndex;
+            indexed = snapshot.records;
+            setIndexCounts(snapshot.counts);
+            compacting = false;
+            compactIfDue();
+        }
+    }
+
+    /**
+     * Writes a new index of the results of a snapshot, merging the old
+     * index with the results added since, and moves it into place.
+     * @param snapshot the results to index
+     * @return the new index
+     * @throws IOException if the index cannot be written
+     */
+    private IntBuffer writeIndex(Snapshot snapshot) throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(INDEX_MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putInt(RECORD_BYTES);
+            buffer.putLong(snapshot.records);
+            buffer.putLong(0);
+            for (int score = MAX_SCORE; score >= 0; score--) {
+                for (long i = 0; i < snapshot.indexCounts[score]; i++) {
+                    putInt(out, buffer, snapshot.index.get((int) (snapshot.indexStarts[score] + i)));
+                }
+                if (snapshot.counts[score] > snapshot.indexCounts[score]) {
+                    for (int record : chain(score, snapshot.newest[score], snapshot.indexed)) {
+                        putInt(out, buffer, record);
+                    }
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, RECORD_BYTES,
+                    in.size() - RECORD_BYTES);
+            return mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    /**
+     * Adds an int to the write buffer, writing the buffer out when full.
+     * @param out file to write to
+     * @param buffer the write buffer
+     * @param value the int
+     * @throws IOException if the file cannot be written
+     */
+    private static void putInt(FileChannel out, ByteBuffer buffer, int value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        buffer.putInt(value);
+    }
+
+    /**
+     * Maps the next chunk of the log, growing the file.
+     * @throws IOException if the file cannot be mapped
+     */
+    private void mapChunk() throws IOException {
+        MappedByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+        grown[chunks.length] = log.map(FileChannel.MapMode.READ_WRITE, (long) chunks.length * CHUNK_BYTES,
+                CHUNK_BYTES);
+        grown[chunks.length].order(ByteOrder.LITTLE_ENDIAN);
+        chunks = grown;
+    }
+
+    /**
+     * Returns the chunk holding a record.
+     * @param record record number
+     * @return the chunk
+     */
+    private MappedByteBuffer chunkOf(long record) {
+        return chunks[(int) ((record + 1) / RECORDS_PER_CHUNK)];
+    }
+
+    /**
+     * Returns the offset of a record in its chunk.
+     * @param record record number
+     * @return the offset
+     */
+    private static int offsetOf(long record) {
+        return (int) ((record + 1) % RECORDS_PER_CHUNK) * RECORD_BYTES;
+    }
+
+    /**
+     * The results of the store at one moment, for a compaction to index
+     * while results are still being added.
+     */
+    private class Snapshot {
+
+        /** number of results */
+        private final long records = HighScoreStore.this.records;
+
+        /** number of results on each score */
+        private final long[] counts = HighScoreStore.this.counts.clone();
+
+        /** newest result on each score */
+        private final int[] newest = HighScoreStore.this.newest.clone();
+
+        /** the index */
+        private final IntBuffer index = HighScoreStore.this.index;
+
+        /** number of results in the index */
+        private final long indexed = HighScoreStore.this.indexed;
+
+        /** number of results on each score in the index */
+        private final long[] indexCounts = HighScoreStore.this.indexCounts;
+
+        /** position in the index of the first result on each score */
+        private final long[] indexStarts = HighScoreStore.this.indexStarts;
+    }
+}
@@ -0,0 +1,467 @@
+package tleibert.yahtzee.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.scores.HighScoreStore;
+
+/**
+ * Serves many Yahtzee games at once over a line based TCP protocol. Every
+ * connection is handled on its own thread, virtual where the JVM has them,
+ * and may play any number of games. Games are spread over {@link Shard}s,
+ * each owned by a single thread, so the games need no locks, and moves
+ * reach a shard through a lock free queue.
+ *
+ * Every request is one line of words separated by spaces, and every reply
+ * is one line starting with {@code OK} or {@code ERR}:
+ * <pre>
+ * NEW players [seed]     OK game firstPlayer
+ * ROLL game keepMask     OK dice rollsLeft
+ * SCORE game type        OK points nextPlayer over
+ * STATE game             OK player rolls dice score...
+ * END game               OK winner score...
+ * QUIT                   OK
+ * </pre>
+ * Players, dice and types are numbered as in {@link YahtzeeGame}; dice are
+ * sent as five digits, 0 for a die that has not been rolled. Games given
+ * a seed replay exactly. A connection can only play the games it started,
+ * and they end when it closes. Finished games are kept in a
+ * {@link HighScoreStore}, if one is set, once the final move is answered,
+ * under a game id the store assigns.
+ *
+ * @author Trevor Leibert
+ */
+public class GameServer implements Closeable {
+
+    /** default port to listen on */
+    public static final int DEFAULT_PORT = 7013;
+
+    /** reply that ends a connection */
+    private static final String BYE = "OK";
+
+    /** the listening socket */
+    private final ServerSocket serverSocket;
+
+    /** runs the accept loop and one task per connection */
+    private final ExecutorService connections;
+
+    /** owners of the games */
+    private final Shard[] shards;
+
+    /** open connections, so closing the server can close them */
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    /** id of the next game */
+    private final AtomicLong nextGameId = new AtomicLong();
+
+    /** keeps the results of finished games, or null */
+    private volatile HighScoreStore highScores;
+
+    /**
+     * Constructs a GameServer listening on the loopback interface. It does
+     * not accept connections until {@link #start()} is called.
+     * @param port port to listen on, or 0 for any free port
+     * @param numShards number of threads owning games
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port, int numShards) throws IOException {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("Need at least one shard");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        connections = Threads.newPerTaskExecutor("yahtzee-connection");
+        shards = new Shard[numShards];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Sets where the results of finished games are kept. The store must
+     * stay open until the server is closed.
+     * @param highScores store for the results, or null to keep none
+     */
+    public void setHighScoreStore(HighScoreStore highScores) {
+        this.highScores = highScores;
+    }
+
+    /**
+     * Starts accepting connections in the background.
+     */
+    public void start() {
+        connections.execute(this::acceptLoop);
+    }
+
+    /**
+     * Stops the server, closing every connection and dropping every game.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        for (Shard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // closed, or a connection failed before it was accepted
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until it closes.
+     * @param socket the connection
+     */
+    private void serve(Socket socket) {
+        Set<Long> games = new HashSet<>();
+        List<FinishedGame> finished = new ArrayList<>();
+        sockets.add(socket);
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            s.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line, games, finished);
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+                recordHighScores(finished);
+                if (reply == BYE) {
+                    break;
+                }
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            // the client went away, or the server is closing
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sockets.remove(socket);
+            recordHighScores(finished);
+            for (long gameId : games) {
+                shardOf(gameId).remove(gameId);
+            }
+        }
+    }
+
+    /**
+     * Answers one request.
+     * @param line the request
+     * @param games ids of the games started by this connection
+     * @param finished games that ended, to be recorded once the reply is sent
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String handle(String line, Set<Long> games, List<FinishedGame> finished)
+            throws InterruptedException {
+        String[] words = line.trim().split(" +");
+        try {
+            switch (words[0]) {
+                case "NEW":
+                    return newGame(words, games);
+                case "ROLL":
+                    return roll(gameId(words, games), intArg(words, 2));
+                case "SCORE":
+                    return score(gameId(words, games), intArg(words, 2), finished);
+                case "STATE":
+                    return state(gameId(words, games));
+                case "END":
+                    long gameId = gameId(words, games);
+                    String reply = end(gameId);
+                    games.remove(gameId);
+                    return reply;
+                case "QUIT":
+                    return BYE;
+                default:
+                    return "ERR Unknown command";
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERR Bad arguments";
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERR " + e.getMessage();
+        } catch (RejectedExecutionException e) {
+            // the server is closing, which ends the connection
+            throw e;
+        } catch (RuntimeException e) {
+            // a bug in one move must not cost the client its other games
+            return "ERR Internal error";
+        }
+    }
+
+    /**
+     * Keeps the results of games that ended in the high score store. This
+     * runs on the connection's thread after the reply is sent, so a slow or
+     * failing store never holds up a shard or a move.
+     * @param finished games that ended, emptied afterwards
+     */
+    private void recordHighScores(List<FinishedGame> finished) {
+        HighScoreStore store = highScores;
+        for (FinishedGame game : finished) {
+            if (store != null) {
+                try {
+                    // the store gives the game an id, since the server's ids start again every run
+                    store.recordGame(game.scores, game.ranks);
+                } catch (RuntimeException e) {
+                    // the store is full or closed; the game itself is unaffected
+                }
+            }
+        }
+        finished.clear();
+    }
+
+    /**
+     * Starts a game.
+     * @param words the request
+     * @param games ids of the games started by this connection
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String newGame(String[] words, Set<Long> games) throws InterruptedException {
+        int players = intArg(words, 1);
+        boolean seeded = words.length > 2;
+        long seed = seeded ? Long.parseLong(words[2]) : 0;
+        long gameId = nextGameId.getAndIncrement();
+        String reply = shardOf(gameId).call(all -> {
+            YahtzeeGame game = seeded ? new YahtzeeGame(players, seed) : new YahtzeeGame(players);
+            all.put(gameId, game);
+            return "OK " + gameId + " " + game.getSelectedPlayer();
+        });
+        games.add(gameId);
+        return reply;
+    }
+
+    /**
+     * Rolls the dice of a game.
+     * @param gameId id of the game
+     * @param keepMask dice to keep
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String roll(long gameId, int keepMask) throws InterruptedException {
+        return shardOf(gameId).call(all -> {
+            YahtzeeGame game = find(all, gameId);
+            game.rollDice(keepMask);
+            StringBuilder reply = new StringBuilder("OK ");
+            appendDice(reply, game.getDiceBlock());
+            return reply.append(' ').append(YahtzeeGame.MAX_ROLLS - game.getNumRolls()).toString();
+        });
+    }
+
+    /**
+     * Scores the dice of a game.
+     * @param gameId id of the game
+     * @param scoringType type to score
+     * @param finished gets the results of the game if this move ends it
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String score(long gameId, int scoringType, List<FinishedGame> finished)
+            throws InterruptedException {
+        FinishedGame[] result = new FinishedGame[1];
+        String reply = shardOf(gameId).call(all -> {
+            YahtzeeGame game = find(all, gameId);
+            int points = game.scoreTurn(scoringType);
+            if (game.getIsOver() && highScores != null) {
+                result[0] = new FinishedGame(game);
+            }
+            return "OK " + points + " " + game.getSelectedPlayer() + " " + (game.getIsOver() ? 1 : 0);
+        });
+        if (result[0] != null) {
+            finished.add(result[0]);
+        }
+        return reply;
+    }
+
+    /**
+     * Describes a game.
+     * @param gameId id of the game
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String state(long gameId) throws InterruptedException {
+        return shardOf(gameId).call(all -> {
+            YahtzeeGame game = find(all, gameId);
+            StringBuilder reply = new StringBuilder("OK ");
+            reply.append(game.getSelectedPlayer()).append(' ').append(game.getNumRolls()).append(' ');
+            appendDice(reply, game.getDiceBlock());
+            appendScores(reply, game);
+            return reply.toString();
+        });
+    }
+
+    /**
+     * Ends a game and forgets it.
+     * @param gameId id of the game
+     * @return the reply
+     * @throws InterruptedException if interrupted while waiting for a shard
+     */
+    private String end(long gameId) throws InterruptedException {
+        return shardOf(gameId).call(all -> {
+            YahtzeeGame game = find(all, gameId);
+            all.remove(gameId);
+            StringBuilder reply = new StringBuilder("OK ");
+            reply.append(game.getWinner());
+            appendScores(reply, game);
+            return reply.toString();
+        });
+    }
+
+    /**
+     * Looks up a game, on its shard's thread.
+     * @param games games of the shard
+     * @param gameId id of the game
+     * @return the game
+     * @throws IllegalArgumentException if there is no such game
+     */
+    private static YahtzeeGame find(Map<Long, YahtzeeGame> games, long gameId) {
+        YahtzeeGame game = games.get(gameId);
+        if (game == null) {
+            throw new IllegalArgumentException("No such game");
+        }
+        return game;
+    }
+
+    /**
+     * Appends the dice as five digits.
+     * @param reply reply to append to
+     * @param dice the dice
+     */
+    private static void appendDice(StringBuilder reply, DiceBlock dice) {
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            reply.append((char) ('0' + dice.getValue(i)));
+        }
+    }
+
+    /**
+     * Appends the score of every player.
+     * @param reply reply to append to
+     * @param game the game
+     */
+    private static void appendScores(StringBuilder reply, YahtzeeGame game) {
+        for (ScoreCard card : game.getScoreCards()) {
+            reply.append(' ').append(card.getScore());
+        }
+    }
+
+    /**
+     * Returns the shard owning a game.
+     * @param gameId id of the game
+     * @return the shard
+     */
+    private Shard shardOf(long gameId) {
+        return shards[(int) Math.floorMod(gameId, (long) shards.length)];
+    }
+
+    /**
+     * Parses the game id of a request. Game ids are handed out in order,
+     * so a connection may only name the games it started itself.
+     * @param words the request
+     * @param games ids of the games started by this connection
+     * @return the game id
+     * @throws IllegalArgumentException if the connection did not start the game
+     */
+    private static long gameId(String[] words, Set<Long> games) {
+        long gameId = Long.parseLong(words[1]);
+        if (!games.contains(gameId)) {
+            throw new IllegalArgumentException("No such game");
+        }
+        return gameId;
+    }
+
+    /**
+     * Parses an int argument of a request.
+     * @param words the request
+     * @param index index of the argument
+     * @return the argument
+     */
+    private static int intArg(String[] words, int index) {
+        return Integer.parseInt(words[index]);
+    }
+
+    /**
+     * Runs a server until the process is killed.
+     * @param args optionally the port, then the number of shards
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int numShards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = new GameServer(port, numShards);
+        System.out.printf("Listening on port %d with %d shards, %s threads%n", server.getPort(), numShards,
+                Threads.hasVirtualThreads() ? "virtual" : "platform");
+        // connection threads are daemons, so the main thread does the accepting
+        server.acceptLoop();
+    }
+
+    /**
+     * The results of a game that ended, copied on its shard's thread so
+     * they can be recorded on another.
+     */
+    private static final class FinishedGame {
+
+        /** final score of each player */
+        private final int[] scores;
+
+        /** rank of each player */
+        private final int[] ranks;
+
+        /**
+         * Copies the results of a game, on its shard's thread.
+         * @param game the game, which is over
+         */
+        FinishedGame(YahtzeeGame game) {
+            scores = game.getScores();
+            ranks = new int[scores.length];
+            for (int player = 0; player < ranks.length; player++) {
+                ranks[player] = game.getRank(player);
+            }
+        }
+    }
+}
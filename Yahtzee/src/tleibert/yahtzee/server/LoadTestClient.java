@@ -0,0 +1,273 @@
+package tleibert.yahtzee.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+
+/**
+ * Load test for {@link GameServer}. It opens a number of connections, and
+ * each connection keeps a number of scripted games going at once, making
+ * one move in each game in turn. The moves of a game and the dice the
+ * server rolls both follow from the game's seed, so a run can be replayed
+ * exactly; the checksum of the final scores shows that it was.
+ *
+ * Usage: {@code LoadTestClient [host [port [connections [gamesInFlight [gamesPerConnection [seed]]]]]]}
+ *
+ * @author Trevor Leibert
+ */
+public class LoadTestClient {
+
+    /** number of players in each scripted game */
+    private static final int PLAYERS = 2;
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = (1 << DiceBlock.NUM_DICE) - 1;
+
+    /**
+     * LoadTestClient is only run from main.
+     */
+    private LoadTestClient() {
+    }
+
+    /**
+     * One scripted game, as seen by the client.
+     */
+    private static class ScriptedGame {
+
+        /** id of the game on the server */
+        private long gameId;
+
+        /** chooses the moves */
+        private final SplittableRandom moves;
+
+        /** player whose turn it is */
+        private int player;
+
+        /** rolls made this turn */
+        private int rolls;
+
+        /** rolls to make this turn */
+        private int rollsWanted;
+
+        /** next scoring type each player scores, in order */
+        private final int[] nextType = new int[PLAYERS];
+
+        /** whether the game is over */
+        private boolean over;
+
+        /**
+         * Constructs a ScriptedGame.
+         * @param seed seed of the moves and of the server's dice
+         */
+        ScriptedGame(long seed) {
+            moves = new SplittableRandom(seed);
+        }
+
+        /**
+         * Returns the next request of the script.
+         * @return the request
+         */
+        String nextRequest() {
+            if (rolls == 0) {
+                rollsWanted = 1 + moves.nextInt(YahtzeeGame.MAX_ROLLS);
+            }
+            if (rolls < rollsWanted) {
+                return "ROLL " + gameId + " " + (rolls == 0 ? 0 : moves.nextInt(KEEP_ALL + 1));
+            }
+            return "SCORE " + gameId + " " + nextType[player];
+        }
+
+        /**
+         * Follows the reply to the last request.
+         * @param reply the reply
+         */
+        void accept(String reply) {
+            if (!reply.startsWith("OK")) {
+                throw new IllegalStateException("Game " + gameId + ": " + reply);
+            }
+            if (rolls < rollsWanted) {
+                rolls++;
+                return;
+            }
+            String[] words = reply.split(" ");
+            nextType[player]++;
+            player = Integer.parseInt(words[2]);
+            rolls = 0;
+            over = "1".equals(words[3]);
+        }
+    }
+
+    /**
+     * Plays the games of one connection.
+     */
+    private static class Connection implements Callable<Connection> {
+
+        /** host of the server */
+        private final String host;
+
+        /** port of the server */
+        private final int port;
+
+        /** games kept going at once */
+        private final int gamesInFlight;
+
+        /** games to play in total */
+        private final int gamesToPlay;
+
+        /** seed of the first game; later games count up from it */
+        private final long seed;
+
+        /** latencies of every request */
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        /** sum of the final scores of every game */
+        private long checksum;
+
+        /**
+         * Constructs a Connection.
+         * @param host host of the server
+         * @param port port of the server
+         * @param gamesInFlight games kept going at once
+         * @param gamesToPlay games to play in total
+         * @param seed seed of the first game
+         */
+        Connection(String host, int port, int gamesInFlight, int gamesToPlay, long seed) {
+            this.host = host;
+            this.port = port;
+            this.gamesInFlight = gamesInFlight;
+            this.gamesToPlay = gamesToPlay;
+            this.seed = seed;
+        }
+
+        @Override
+        public Connection call() throws IOException {
+            try (Socket socket = new Socket(host, port);
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    Writer out = new BufferedWriter(
+                            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+                socket.setTcpNoDelay(true);
+                List<ScriptedGame> games = new ArrayList<>();
+                int started = 0;
+                while (started < gamesToPlay || !games.isEmpty()) {
+                    while (games.size() < gamesInFlight && started < gamesToPlay) {
+                        long gameSeed = seed + started++;
+                        ScriptedGame game = new ScriptedGame(gameSeed);
+                        String[] words = request(in, out, "NEW " + PLAYERS + " " + gameSeed).split(" ");
+                        game.gameId = Long.parseLong(words[1]);
+                        game.player = Integer.parseInt(words[2]);
+                        games.add(game);
+                    }
+                    for (int i = games.size() - 1; i >= 0; i--) {
+                        ScriptedGame game = games.get(i);
+                        game.accept(request(in, out, game.nextRequest()));
+                        if (game.over) {
+                            String[] words = request(in, out, "END " + game.gameId).split(" ");
+                            for (int j = 2; j < words.length; j++) {
+                                checksum += Long.parseLong(words[j]);
+                            }
+                            games.remove(i);
+                        }
+                    }
+                }
+                request(in, out, "QUIT");
+            }
+            return this;
+        }
+
+        /**
+         * Sends a request and waits for its reply, timing the round trip.
+         * @param in reads the replies
+         * @param out writes the requests
+         * @param request the request
+         * @return the reply
+         * @throws IOException if the connection fails
+         */
+        private String request(BufferedReader in, Writer out, String request) throws IOException {
+            long start = System.nanoTime();
+            out.write(request);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            latencies.record(System.nanoTime() - start);
+            if (reply == null) {
+                throw new IOException("Server closed the connection");
+            }
+            return reply;
+        }
+    }
+
+    /**
+     * Runs a load test and prints the throughput, latency percentiles and
+     * checksum. Without a host argument an in-process server is started.
+     * @param args see the class description
+     * @throws Exception if the test fails
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : null;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int gamesInFlight = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int gamesPerConnection = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+        GameServer server = null;
+        if (host == null || "-".equals(host)) {
+            server = new GameServer(0, Runtime.getRuntime().availableProcessors());
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        ExecutorService pool = Threads.newPerTaskExecutor("yahtzee-load");
+        try {
+            long start = System.nanoTime();
+            List<Future<Connection>> futures = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                long connectionSeed = seed + (long) i * gamesPerConnection;
+                futures.add(pool.submit(new Connection(host, port, gamesInFlight, gamesPerConnection, connectionSeed)));
+            }
+            LatencyHistogram latencies = new LatencyHistogram();
+            long checksum = 0;
+            for (Future<Connection> future : futures) {
+                Connection connection = future.get();
+                latencies.merge(connection.latencies);
+                checksum += connection.checksum;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d connections, %d games in flight, %d games, %s threads%n", connections,
+                    connections * gamesInFlight, (long) connections * gamesPerConnection,
+                    Threads.hasVirtualThreads() ? "virtual" : "platform");
+            System.out.printf("%d requests in %.2f s, %.0f requests/s%n",
+                    latencies.getCount(), seconds, latencies.getCount() / seconds);
+            System.out.printf("latency us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+                    latencies.getPercentile(0.5) / 1000, latencies.getPercentile(0.9) / 1000,
+                    latencies.getPercentile(0.99) / 1000, latencies.getPercentile(0.999) / 1000,
+                    latencies.getMax() / 1000);
+            System.out.printf("checksum %d%n", checksum);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load test failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package tleibert.yahtzee.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Owns a share of the games on the server. Every game lives in exactly one
+ * shard, and only the shard's single thread ever reads or changes it, so
+ * neither the games nor the map holding them need any locks.
+ *
+ * Connection threads hand commands to the shard through a lock free queue
+ * and park until the reply is in. Each connection thread reuses one call
+ * object for every command, so a move allocates no future; the owner
+ * thread parks when the queue is empty, and is only unparked by a command
+ * that finds it parked.
+ *
+ * @author Trevor Leibert
+ */
+final class Shard {
+
+    /** call object of each connection thread, reused for every command */
+    private static final ThreadLocal<Call> CALLS = ThreadLocal.withInitial(() -> new Call(Thread.currentThread()));
+
+    /** commands waiting for the owner thread */
+    private final Queue<Call> inbox = new ConcurrentLinkedQueue<>();
+
+    /** the thread that owns the games */
+    private final Thread owner;
+
+    /** games of this shard by id, only touched by the owner thread */
+    private final Map<Long, YahtzeeGame> games = new HashMap<>();
+
+    /** whether the owner is parked, or about to park, waiting for commands */
+    private volatile boolean idle;
+
+    /** whether the shard is shut down */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a Shard and starts its owner thread.
+     * @param index number of the shard, for the thread name
+     */
+    Shard(int index) {
+        owner = new Thread(this::run, "yahtzee-shard-" + index);
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * Runs a command on the owner thread and waits for its reply.
+     * @param command command to run, given the games of this shard
+     * @return the reply of the command
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RejectedExecutionException if the shard is shut down
+     */
+    String call(Function<Map<Long, YahtzeeGame>, String> command) throws InterruptedException {
+        Call call = CALLS.get();
+        call.start(command);
+        submit(call);
+        while (!call.done) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                // the connection ends, so the call object is never reused
+                CALLS.remove();
+                throw new InterruptedException();
+            }
+        }
+        return call.result();
+    }
+
+    /**
+     * Removes a game without waiting, for example when its connection closes.
+     * @param gameId id of the game
+     */
+    void remove(long gameId) {
+        Call call = new Call(null);
+        call.start(all -> {
+            all.remove(gameId);
+            return null;
+        });
+        try {
+            submit(call);
+        } catch (RejectedExecutionException e) {
+            // the shard is shut down, so its games are gone already
+        }
+    }
+
+    /**
+     * Stops the owner thread. The games are dropped, and commands not yet
+     * run are rejected.
+     */
+    void shutdown() {
+        stopped = true;
+        LockSupport.unpark(owner);
+    }
+
+    /**
+     * Queues a call for the owner thread, waking it if it is parked.
+     * @param call the call
+     * @throws RejectedExecutionException if the shard is shut down
+     */
+    private void submit(Call call) {
+        inbox.offer(call);
+        if (stopped && inbox.remove(call)) {
+            // the owner may have drained the queue already; otherwise it will reject the call itself
+            throw new RejectedExecutionException("Shard is shut down");
+        }
+        if (idle) {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    /**
+     * Runs commands on the owner thread until the shard is shut down.
+     */
+    private void run() {
+        while (!stopped) {
+            Call call = inbox.poll();
+            if (call != null) {
+                call.run(games);
+                continue;
+            }
+            idle = true;
+            // a command queued before idle was set is seen here; one queued after it unparks this thread
+            if (inbox.isEmpty() && !stopped) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        }
+        games.clear();
+        for (Call call = inbox.poll(); call != null; call = inbox.poll()) {
+            call.reject();
+        }
+    }
+
+    /**
+     * A command handed to the owner thread, and its reply.
+     */
+    private static final class Call {
+
+        /** thread waiting for the reply, or null if nobody waits */
+        private final Thread caller;
+
+        /** the command */
+        private Function<Map<Long, YahtzeeGame>, String> command;
+
+        /** reply of the command, set before done */
+        private String reply;
+
+        /** what the command threw, or null, set before done */
+        private Throwable failure;
+
+        /** whether the reply is in */
+        private volatile boolean done;
+
+        /**
+         * Constructs a Call.
+         * @param caller thread waiting for the reply, or null if nobody waits
+         */
+        Call(Thread caller) {
+            this.caller = caller;
+        }
+
+        /**
+         * Gets the call ready for a new command.
+         * @param command the command
+         */
+        void start(Function<Map<Long, YahtzeeGame>, String> command) {
+            this.command = command;
+            reply = null;
+            failure = null;
+            done = false;
+        }
+
+        /**
+         * Runs the command on the owner thread and wakes the caller.
+         * @param games the games of the shard
+         */
+        void run(Map<Long, YahtzeeGame> games) {
+            try {
+                reply = command.apply(games);
+            } catch (Throwable e) {
+                // a failing command must not stop the owner thread
+                failure = e;
+            }
+            finish();
+        }
+
+        /**
+         * Fails the call because the shard is shut down, and wakes the caller.
+         */
+        void reject() {
+            failure = new RejectedExecutionException("Shard is shut down");
+            finish();
+        }
+
+        /**
+         * Returns the reply, or throws what the command threw.
+         * @return the reply
+         */
+        String result() {
+            command = null;
+            if (failure == null) {
+                return reply;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new IllegalStateException(failure);
+        }
+
+        /**
+         * Marks the reply as in and wakes the caller.
+         */
+        private void finish() {
+            done = true;
+            if (caller != null) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+}
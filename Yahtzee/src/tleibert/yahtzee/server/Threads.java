@@ -0,0 +1,65 @@
+package tleibert.yahtzee.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the executors the server and the load test client run on.
+ *
+ * @author Trevor Leibert
+ */
+final class Threads {
+
+    /**
+     * Threads only has static members.
+     */
+    private Threads() {
+    }
+
+    /**
+     * Returns an executor that starts a new thread for every task. On a JVM
+     * with virtual threads every task gets a virtual thread, so a blocked
+     * connection costs almost nothing. Older JVMs get a cached pool of
+     * daemon platform threads instead. The lookup is reflective because
+     * the project still targets Java 11.
+     * @param name prefix for the names of platform threads
+     * @return the executor
+     */
+    static ExecutorService newPerTaskExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(daemonFactory(name));
+        }
+    }
+
+    /**
+     * Returns whether {@link #newPerTaskExecutor(String)} gives virtual threads.
+     * @return true if virtual threads are available
+     */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a factory of numbered daemon threads.
+     * @param name prefix of the thread names
+     * @return the factory
+     */
+    private static java.util.concurrent.ThreadFactory daemonFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,554 @@
+package tleibert.yahtzee.session;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Keeps the games that have been played recently in memory, and spills
+ * the rest to a file, so a server can hold games whose players come back
+ * days later without keeping every {@link YahtzeeGame} in the heap. A
+ * spilled game costs a small entry in the heap and a 64 byte record on
+ * disk, and is read back the next time it is played.
+ *
+ * Which games stay is decided by a CLOCK sweep, an approximation of least
+ * recently used that also favors games played often: every move raises
+ * a game's use count, up to {@link #MAX_USES}, and the sweep lowers it,
+ * spilling games it finds at zero. A move only touches its own game, so
+ * nothing is shared between games but a counter. Spilling runs on a
+ * background thread whenever more than the capacity of games are in
+ * memory; it locks one game at a time, and only while that game is
+ * written, so moves of other games never wait for it.
+ *
+ * Games must be replayable: their dice come from a
+ * {@link SeededRandomSource}, whose state is spilled with them, so a game
+ * read back rolls the same dice it would have. The spill file is scratch
+ * space, and is deleted when the cache is closed. Records are little
+ * endian:
+ * <pre>
+ *  0  long   seed of the dice
+ *  8  long   state of the dice generator
+ * 16  long   dice, see {@link PackedDice}
+ * 24  long[4] card of each player, see {@link tleibert.yahtzee.model.CardState}
+ * 56  byte   number of players
+ * 57  byte   player to move
+ * 58  byte   rolls this turn
+ * 59  byte   turns taken
+ * </pre>
+ *
+ * @author Trevor Leibert
+ */
+public class SessionCache implements Closeable {
+
+    /** size of a spilled game in bytes */
+    public static final int RECORD_BYTES = 64;
+
+    /** highest use count of a game, the number of sweeps it survives unplayed */
+    public static final int MAX_USES = 3;
+
+    /** offset of the generator state in a record */
+    private static final int STATE_OFFSET = 8;
+
+    /** offset of the dice in a record */
+    private static final int DICE_OFFSET = 16;
+
+    /** offset of the first card in a record */
+    private static final int CARDS_OFFSET = 24;
+
+    /** offset of the number of players in a record */
+    private static final int PLAYERS_OFFSET = 56;
+
+    /** offset of the player to move in a record */
+    private static final int PLAYER_OFFSET = 57;
+
+    /** offset of the rolls in a record */
+    private static final int ROLLS_OFFSET = 58;
+
+    /** offset of the turns in a record */
+    private static final int TURNS_OFFSET = 59;
+
+    /** marks a game without a record */
+    private static final int NO_SLOT = -1;
+
+    /** number of games kept in memory before games are spilled */
+    private final int capacity;
+
+    /** the spill file */
+    private final FileChannel spill;
+
+    /** every game, in memory or spilled */
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    /** games in memory, in the order the sweep visits them */
+    private final ConcurrentLinkedQueue<Session> clock = new ConcurrentLinkedQueue<>();
+
+    /** number of games in memory */
+    private final AtomicInteger resident = new AtomicInteger();
+
+    /** id of the next game */
+    private final AtomicLong nextId = new AtomicLong();
+
+    /** number of games read back from the spill file */
+    private final AtomicLong faults = new AtomicLong();
+
+    /** number of games spilled */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** number of records written */
+    private final AtomicLong writes = new AtomicLong();
+
+    /** runs the sweep */
+    private final ExecutorService spiller;
+
+    /** whether a sweep has been started and not finished */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /** record buffer of the sweep */
+    private final ByteBuffer spillBuffer = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    /** records of removed games, to be reused */
+    private int[] freeSlots = new int[0];
+
+    /** number of records in freeSlots */
+    private int numFreeSlots;
+
+    /** number of records ever used */
+    private int usedSlots;
+
+    /** whether the cache is closed */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a SessionCache.
+     * @param spillFile file to spill games to; it is replaced if it exists
+     * @param capacity number of games to keep in memory
+     * @throws IOException if the spill file cannot be created
+     */
+    public SessionCache(Path spillFile, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+        spiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "yahtzee-session-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a game in the cache.
+     * @param players number of players
+     * @param seed seed of the dice
+     * @return id of the game
+     */
+    public long newGame(int players, long seed) {
+        return add(new YahtzeeGame(players, seed));
+    }
+
+    /**
+     * Hands a game to the cache. From now on it must only be played
+     * through {@link #apply(long, Function)}.
+     * @param game the game
+     * @return id of the game
+     * @throws IllegalArgumentException if the game has a listener or a
+     *         strategy, which cannot be spilled, more than
+     *         {@link YahtzeeGame#MAX_PLAYERS} players, or dice that do not
+     *         come from a {@link SeededRandomSource}
+     */
+    public long add(YahtzeeGame game) {
+        if (closed) {
+            throw new IllegalStateException("Cache is closed");
+        }
+        if (game.getNumPlayers() > YahtzeeGame.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Too many players to spill");
+        }
+        if (!(game.getDiceBlock().getRandomSource() instanceof SeededRandomSource)) {
+            throw new IllegalArgumentException("Dice must come from a SeededRandomSource");
+        }
+        if (game.getGameListener() != null) {
+            throw new IllegalArgumentException("Game has a listener");
+        }
+        for (int player = 0; player < game.getNumPlayers(); player++) {
+            if (game.getStrategy(player) != null) {
+                throw new IllegalArgumentException("Game has a strategy");
+            }
+        }
+        Session session = new Session(nextId.getAndIncrement(), game);
+        sessions.put(session.id, session);
+        admit(session);
+        return session.id;
+    }
+
+    /**
+     * Makes a move in a game, reading it back first if it was spilled.
+     * Only moves of the same game wait for each other. The function must
+     * not keep the game, which may be spilled once it returns.
+     * @param id id of the game
+     * @param move the move, given the game
+     * @param <T> type of the result of the move
+     * @return the result of the move
+     * @throws IllegalArgumentException if there is no such game
+     * @throws IllegalStateException if the game cannot be read back
+     */
+    public <T> T apply(long id, Function<YahtzeeGame, T> move) {
+        return play(id, move, true);
+    }
+
+    /**
+     * Reads a game without changing it, reading it back first if it was
+     * spilled. A game that is only read is not written again when it is
+     * spilled.
+     * @param id id of the game
+     * @param read reads the game
+     * @param <T> type of the result
+     * @return the result
+     * @throws IllegalArgumentException if there is no such game
+     * @throws IllegalStateException if the game cannot be read back
+     */
+    public <T> T read(long id, Function<YahtzeeGame, T> read) {
+        return play(id, read, false);
+    }
+
+    /**
+     * Removes a game from the cache.
+     * @param id id of the game
+     * @throws IllegalArgumentException if there is no such game
+     */
+    public void remove(long id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No such game");
+        }
+        synchronized (session) {
+            session.removed = true;
+            if (session.game != null) {
+                session.game = null;
+                resident.decrementAndGet();
+            }
+            if (session.slot != NO_SLOT) {
+                freeSlot(session.slot);
+                session.slot = NO_SLOT;
+            }
+        }
+    }
+
+    /**
+     * Returns whether an id names a game in the cache.
+     * @param id id of the game
+     * @return true if the game is in memory or spilled
+     */
+    public boolean contains(long id) {
+        return sessions.containsKey(id);
+    }
+
+    /**
+     * Returns the number of games in the cache.
+     * @return number of games, in memory or spilled
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of games in memory. It rises above the capacity
+     * for as long as the sweep takes to catch up.
+     * @return number of games in memory
+     */
+    public int getResident() {
+        return resident.get();
+    }
+
+    /**
+     * Returns the number of games kept in memory before games are spilled.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of times a spilled game has been read back.
+     * @return number of faults
+     */
+    public long getFaults() {
+        return faults.get();
+    }
+
+    /**
+     * Returns the number of times a game has been spilled.
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of records written. Games spilled again without
+     * having changed are not written again.
+     * @return number of records written
+     */
+    public long getSpillWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Waits for the sweep, then closes the cache and deletes the spill file.
+     * @throws IOException if the spill file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        spiller.shutdown();
+        try {
+            spiller.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spill.close();
+    }
+
+    /**
+     * Runs a function on a game, reading it back first if it was spilled.
+     * @param id id of the game
+     * @param function the function
+     * @param changes whether the function may change the game
+     * @param <T> type of the result
+     * @return the result
+     */
+    private <T> T play(long id, Function<YahtzeeGame, T> function, boolean changes) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No such game");
+        }
+        boolean faulted = false;
+        try {
+            synchronized (session) {
+                if (session.removed) {
+                    throw new IllegalArgumentException("No such game");
+                }
+                if (session.game == null) {
+                    if (closed) {
+                        throw new IllegalStateException("Cache is closed");
+                    }
+                    session.game = load(session.slot);
+                    faulted = true;
+                    faults.incrementAndGet();
+                }
+                if (session.uses < MAX_USES) {
+                    session.uses++;
+                }
+                session.dirty |= changes;
+                return function.apply(session.game);
+            }
+        } finally {
+            // a game read back is in memory even if the function threw, so it has to be counted
+            if (faulted) {
+                admit(session);
+            }
+        }
+    }
+
+    /**
+     * Counts a game brought into memory, and starts a sweep if there are
+     * too many.
+     * @param session the game
+     */
+    private void admit(Session session) {
+        clock.add(session);
+        if (resident.incrementAndGet() > capacity && !closed && sweeping.compareAndSet(false, true)) {
+            spiller.execute(this::sweep);
+        }
+    }
+
+    /**
+     * Spills games until no more than the capacity are in memory.
+     */
+    private void sweep() {
+        while (true) {
+            while (resident.get() > capacity && !closed) {
+                Session session = clock.poll();
+                if (session == null) {
+                    break;
+                }
+                if (!visit(session)) {
+                    // the spill file failed; keep everything in memory until the next game comes in
+                    sweeping.set(false);
+                    return;
+                }
+            }
+            sweeping.set(false);
+            // a game admitted after the check above may have found the sweep still running
+            if (resident.get() <= capacity || closed || !sweeping.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Visits a game on the clock: spills it if it has not been played since
+     * its use count ran out, and puts it back with one use less otherwise.
+     * @param session the game
+     * @return false if the game could not be spilled
+     */
+    private boolean visit(Session session) {
+        synchronized (session) {
+            if (session.removed || session.game == null) {
+                return true;
+            }
+            if (session.uses > 0) {
+                session.uses--;
+                clock.add(session);
+                return true;
+            }
+            if (session.dirty || session.slot == NO_SLOT) {
+                try {
+                    if (session.slot == NO_SLOT) {
+                        session.slot = allocateSlot();
+                    }
+                    write(session.slot, session.game);
+                } catch (IOException e) {
+                    clock.add(session);
+                    return false;
+                }
+                session.dirty = false;
+                writes.incrementAndGet();
+            }
+            session.game = null;
+            resident.decrementAndGet();
+            evictions.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Writes a game to its record. Only called by the sweep.
+     * @param slot the record
+     * @param game the game
+     * @throws IOException if the record cannot be written
+     */
+    private void write(int slot, YahtzeeGame game) throws IOException {
+        SeededRandomSource random = (SeededRandomSource) game.getDiceBlock().getRandomSource();
+        ScoreCard[] cards = game.getScoreCards();
+        ByteBuffer buffer = spillBuffer;
+        buffer.clear();
+        buffer.putLong(0, random.getSeed());
+        buffer.putLong(STATE_OFFSET, random.getState());
+        buffer.putLong(DICE_OFFSET, game.getDiceBlock().getPacked());
+        for (int player = 0; player < YahtzeeGame.MAX_PLAYERS; player++) {
+            buffer.putLong(CARDS_OFFSET + player * Long.BYTES, player < cards.length ? cards[player].pack() : 0);
+        }
+        buffer.put(PLAYERS_OFFSET, (byte) game.getNumPlayers());
+        buffer.put(PLAYER_OFFSET, (byte) game.getSelectedPlayer());
+        buffer.put(ROLLS_OFFSET, (byte) game.getNumRolls());
+        buffer.put(TURNS_OFFSET, (byte) game.getNumTurns());
+        long position = (long) slot * RECORD_BYTES;
+        while (buffer.hasRemaining()) {
+            position += spill.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads a game back from its record.
+     * @param slot the record
+     * @return the game
+     * @throws IllegalStateException if the record cannot be read
+     */
+    private YahtzeeGame load(int slot) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = (long) slot * RECORD_BYTES;
+        try {
+            while (buffer.hasRemaining()) {
+                int read = spill.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Record " + slot + " is missing");
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Game cannot be read back", e);
+        }
+        SeededRandomSource random = new SeededRandomSource(buffer.getLong(0));
+        random.setState(buffer.getLong(STATE_OFFSET));
+        long[] cards = new long[buffer.get(PLAYERS_OFFSET)];
+        for (int player = 0; player < cards.length; player++) {
+            cards[player] = buffer.getLong(CARDS_OFFSET + player * Long.BYTES);
+        }
+        return YahtzeeGame.restore(cards, buffer.get(PLAYER_OFFSET), buffer.get(ROLLS_OFFSET),
+                buffer.get(TURNS_OFFSET), buffer.getLong(DICE_OFFSET), random);
+    }
+
+    /**
+     * Picks a record for a game spilled for the first time.
+     * @return the record
+     */
+    private synchronized int allocateSlot() {
+        return numFreeSlots > 0 ? freeSlots[--numFreeSlots] : usedSlots++;
+    }
+
+    /**
+     * Makes the record of a removed game free for reuse.
+     * @param slot the record
+     */
+    private synchronized void freeSlot(int slot) {
+        if (numFreeSlots == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeSlots.length * 2));
+        }
+        freeSlots[numFreeSlots++] = slot;
+    }
+
+    /**
+     * One game of the cache. Its fields are guarded by the Session itself.
+     */
+    private static final class Session {
+
+        /** id of the game */
+        private final long id;
+
+        /** the game, or null while it is spilled or after it is removed */
+        private YahtzeeGame game;
+
+        /** record of the game in the spill file, or NO_SLOT */
+        private int slot = NO_SLOT;
+
+        /** whether the game may have changed since it was last written */
+        private boolean dirty = true;
+
+        /** moves since the sweep last passed, up to MAX_USES */
+        private int uses = 1;
+
+        /** whether the game has been removed */
+        private boolean removed;
+
+        /**
+         * Constructs a Session.
+         * @param id id of the game
+         * @param game the game
+         */
+        Session(long id, YahtzeeGame game) {
+            this.id = id;
+            this.game = game;
+        }
+    }
+}
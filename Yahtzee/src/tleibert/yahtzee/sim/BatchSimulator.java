@@ -0,0 +1,303 @@
+package tleibert.yahtzee.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.GreedyStrategy;
+import tleibert.yahtzee.model.HeuristicStrategy;
+import tleibert.yahtzee.model.Strategy;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.model.dice.PackedDice;
+
+/**
+ * Plays single player games like {@link Simulator}, but many at a time:
+ * each thread keeps a batch of games in parallel arrays and moves every
+ * game of the batch through one phase before the next, rolling all the
+ * dice, then asking the strategy about every game, then scoring every
+ * game. No DiceBlock or ScoreCard is used.
+ *
+ * The dice of a game are the 15 face bits of {@link PackedDice}. A roll
+ * draws one number below 6^5 from the game's own SplitMix64 generator,
+ * looks up the five faces it stands for, and blends them in under a mask
+ * of the kept dice, so rolling has no branches; hands and packed dice are
+ * looked up from the face bits in tables. The same seed, number of games,
+ * threads and batch size always give the same result.
+ *
+ * @author Trevor Leibert
+ */
+public class BatchSimulator {
+
+    /** default number of games a thread plays at once */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /** number of equally likely rolls of five dice, 6^5 */
+    private static final int NUM_ROLLS = 7776;
+
+    /** number of keep masks of five dice */
+    private static final int NUM_MASKS = 1 << DiceBlock.NUM_DICE;
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = NUM_MASKS - 1;
+
+    /** bits of one die's face */
+    private static final int FACE_BITS = 3;
+
+    /** number of values of the face bits of five dice */
+    private static final int NUM_FACE_CODES = 1 << (FACE_BITS * DiceBlock.NUM_DICE);
+
+    /** SplitMix64 increment */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** face bits of each of the NUM_ROLLS rolls */
+    private static final int[] FACES_BY_ROLL = new int[NUM_ROLLS];
+
+    /** face bits held by each keep mask */
+    private static final int[] KEEP_BITS = new int[NUM_MASKS];
+
+    /** packed dice of each value of the face bits */
+    private static final long[] PACKED_BY_FACES = new long[NUM_FACE_CODES];
+
+    /** hand id of each value of the face bits */
+    private static final short[] HAND_BY_FACES = new short[NUM_FACE_CODES];
+
+    static {
+        for (int roll = 0; roll < NUM_ROLLS; roll++) {
+            long dice = PackedDice.EMPTY;
+            for (int die = 0, rest = roll; die < DiceBlock.NUM_DICE; die++, rest /= Die.MAX_VALUE) {
+                dice = PackedDice.withFace(dice, die, rest % Die.MAX_VALUE + 1);
+            }
+            int faces = (int) dice & (NUM_FACE_CODES - 1);
+            FACES_BY_ROLL[roll] = faces;
+            PACKED_BY_FACES[faces] = dice;
+            HAND_BY_FACES[faces] = (short) PackedDice.canonicalId(dice);
+        }
+        for (int mask = 0; mask < NUM_MASKS; mask++) {
+            for (int die = 0; die < DiceBlock.NUM_DICE; die++) {
+                if ((mask & (1 << die)) != 0) {
+                    KEEP_BITS[mask] |= ((1 << FACE_BITS) - 1) << (FACE_BITS * die);
+                }
+            }
+        }
+    }
+
+    /** makes one strategy for each thread */
+    private final Supplier<? extends Strategy> strategies;
+
+    /** number of threads to play on */
+    private final int threads;
+
+    /** number of games a thread plays at once */
+    private final int batchSize;
+
+    /**
+     * Constructs a BatchSimulator using every available processor and the
+     * default batch size.
+     * @param strategies makes one strategy for each thread
+     */
+    public BatchSimulator(Supplier<? extends Strategy> strategies) {
+        this(strategies, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a BatchSimulator.
+     * @param strategies makes one strategy for each thread
+     * @param threads number of threads to play on
+     * @param batchSize number of games a thread plays at once
+     */
+    public BatchSimulator(Supplier<? extends Strategy> strategies, int threads, int batchSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.strategies = strategies;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Plays the given number of games and collects their statistics.
+     * @param games number of games to play
+     * @param seed seed for the random number generators
+     * @return the statistics of the games played
+     */
+    public SimulationResult run(long games, long seed) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            SplittableRandom root = new SplittableRandom(seed);
+            List<Future<SimulationResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long share = games / threads + (i < games % threads ? 1 : 0);
+                futures.add(pool.submit(new Worker(share, root.split())));
+            }
+            SimulationResult result = new SimulationResult();
+            for (Future<SimulationResult> future : futures) {
+                result.merge(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one thread's share of the games, a batch at a time.
+     */
+    private class Worker implements Callable<SimulationResult> {
+
+        /** number of games to play */
+        private final long games;
+
+        /** seeds the generators of the games */
+        private final SplittableRandom random;
+
+        /** decides how to play */
+        private final Strategy strategy = strategies.get();
+
+        /** statistics of the games played */
+        private final SimulationResult result = new SimulationResult();
+
+        /** generator state of each game */
+        private final long[] seeds = new long[batchSize];
+
+        /** face bits of the dice of each game */
+        private final int[] faces = new int[batchSize];
+
+        /** dice each game keeps on its next roll */
+        private final int[] keepMasks = new int[batchSize];
+
+        /** card of each game */
+        private final long[] cards = new long[batchSize];
+
+        /** roll drawn by each game */
+        private final int[] rolls = new int[batchSize];
+
+        /**
+         * Constructs a Worker.
+         * @param games number of games to play
+         * @param random seeds the generators of the games
+         */
+        Worker(long games, SplittableRandom random) {
+            this.games = games;
+            this.random = random;
+        }
+
+        @Override
+        public SimulationResult call() {
+            for (long played = 0; played < games; played += batchSize) {
+                playBatch((int) Math.min(batchSize, games - played));
+            }
+            return result;
+        }
+
+        /**
+         * Plays a batch of games from start to end, following the rules of
+         * {@link Simulator}.
+         * @param n number of games in the batch
+         */
+        private void playBatch(int n) {
+            for (int i = 0; i < n; i++) {
+                seeds[i] = random.nextLong();
+                cards[i] = CardState.EMPTY;
+            }
+            for (int turn = 0; turn < YahtzeeGame.NUM_TURNS_PER_PLAYER; turn++) {
+                for (int i = 0; i < n; i++) {
+                    keepMasks[i] = 0;
+                }
+                roll(n);
+                for (int rerolls = 2; rerolls > 0; rerolls--) {
+                    decide(n, rerolls);
+                    roll(n);
+                }
+                score(n);
+            }
+            for (int i = 0; i < n; i++) {
+                result.recordGame(CardState.score(cards[i]), CardState.hadBonusScore(cards[i]));
+            }
+        }
+
+        /**
+         * Rolls the dice of every game that are not kept. Games keeping
+         * every die draw a roll too, which changes nothing.
+         * @param n number of games in the batch
+         */
+        private void roll(int n) {
+            for (int i = 0; i < n; i++) {
+                long z = seeds[i] += GOLDEN_GAMMA;
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                z ^= z >>> 31;
+                // high half of the unsigned product, a number below NUM_ROLLS
+                rolls[i] = (int) (Math.multiplyHigh(z, NUM_ROLLS) + ((z >> 63) & NUM_ROLLS));
+            }
+            for (int i = 0; i < n; i++) {
+                int keep = KEEP_BITS[keepMasks[i]];
+                faces[i] = faces[i] & keep | FACES_BY_ROLL[rolls[i]] & ~keep;
+            }
+        }
+
+        /**
+         * Asks the strategy which dice every game keeps. A game that has
+         * kept every die stands for the rest of the turn.
+         * @param n number of games in the batch
+         * @param rerolls rolls left this turn
+         */
+        private void decide(int n, int rerolls) {
+            for (int i = 0; i < n; i++) {
+                if (keepMasks[i] != KEEP_ALL) {
+                    keepMasks[i] = strategy.chooseKeep(PACKED_BY_FACES[faces[i]], rerolls, cards[i]) & KEEP_ALL;
+                }
+            }
+        }
+
+        /**
+         * Scores the dice of every game in the type the strategy chooses.
+         * @param n number of games in the batch
+         */
+        private void score(int n) {
+            for (int i = 0; i < n; i++) {
+                int type = strategy.chooseScoringType(PACKED_BY_FACES[faces[i]], cards[i]);
+                int handId = HAND_BY_FACES[faces[i]];
+                result.recordTurn(type, CardState.turnPoints(cards[i], handId, type));
+                cards[i] = CardState.score(cards[i], handId, type);
+            }
+        }
+    }
+
+    /**
+     * Runs a simulation and prints the results.
+     * @param args number of games, then optionally the number of threads,
+     *             the seed, the strategy: greedy (the default) or heuristic,
+     *             and the batch size
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        Supplier<Strategy> strategies = args.length > 3 && args[3].equals("heuristic")
+                ? HeuristicStrategy::new : GreedyStrategy::new;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_BATCH_SIZE;
+
+        long start = System.nanoTime();
+        SimulationResult result = new BatchSimulator(strategies, threads, batchSize).run(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(result);
+        System.out.printf("%.2f s, %.0f games/s%n", seconds, games / seconds);
+    }
+}
@@ -0,0 +1,423 @@
+package tleibert.yahtzee.sim;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import tleibert.yahtzee.engine.OptimalStrategy;
+import tleibert.yahtzee.engine.StrategyFile;
+import tleibert.yahtzee.engine.StrategyTable;
+import tleibert.yahtzee.model.CardState;
+import tleibert.yahtzee.model.GreedyStrategy;
+import tleibert.yahtzee.model.HeuristicStrategy;
+import tleibert.yahtzee.model.Strategy;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.HandIndex;
+import tleibert.yahtzee.model.dice.PackedDice;
+import tleibert.yahtzee.model.dice.RerollTable;
+
+/**
+ * Works out the exact probability of every final score of a game played
+ * from a ScoreCard to the end under a fixed {@link Strategy}, without
+ * simulating, so tail probabilities such as the chance of reaching 300
+ * are exact instead of slow to converge.
+ *
+ * The points still to come depend on a card only through what it has
+ * left to score, not through its total, so the solver works on cards
+ * with their score cleared, and assumes the strategy decides without
+ * looking at the total, as every strategy in this project does. It first
+ * finds every card the strategy can reach, turn by turn: the chances of
+ * each final hand of a turn follow from the strategy's keeps and
+ * {@link RerollTable}, and each final hand leads to one next card and a
+ * number of points. The moves of each card, its next cards and points
+ * with their chances, are kept, so the strategy is only asked once per
+ * card. Then, from the last turn back, it finds for each card the
+ * distribution of the points still to come, which is the sum of the next
+ * cards' distributions shifted by the points of each move. Only the range
+ * of points with a nonzero chance is stored, and only two turns of
+ * distributions are held at once. The cards of a turn are split across
+ * threads.
+ *
+ * The strategy is asked about the dice of a hand in sorted order, and so
+ * must decide by the values of the dice, not their order.
+ *
+ * @author Trevor Leibert
+ */
+public class DistributionSolver {
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = (1 << DiceBlock.NUM_DICE) - 1;
+
+    /** number of cards a thread takes from a turn at a time */
+    private static final int BLOCK = 64;
+
+    /** chance of each hand on the first roll of a turn */
+    private static final double[] FIRST_ROLL = new double[HandIndex.NUM_HANDS];
+
+    static {
+        for (int j = RerollTable.outcomeStart(RerollTable.EMPTY_KEEP);
+                j < RerollTable.outcomeEnd(RerollTable.EMPTY_KEEP); j++) {
+            FIRST_ROLL[RerollTable.outcomeHand(j)] += RerollTable.outcomeProbability(j);
+        }
+    }
+
+    /** makes one strategy for each thread */
+    private final Supplier<? extends Strategy> strategies;
+
+    /** number of threads to solve on */
+    private final int threads;
+
+    /**
+     * Constructs a DistributionSolver using every available processor.
+     * @param strategies makes one strategy for each thread
+     */
+    public DistributionSolver(Supplier<? extends Strategy> strategies) {
+        this(strategies, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a DistributionSolver.
+     * @param strategies makes one strategy for each thread
+     * @param threads number of threads to solve on
+     */
+    public DistributionSolver(Supplier<? extends Strategy> strategies, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.strategies = strategies;
+        this.threads = threads;
+    }
+
+    /**
+     * Works out the distribution of the final score of a card played to
+     * the end.
+     * @param cardState the card, see {@link CardState}
+     * @return the distribution of the final score
+     * @throws IllegalArgumentException if the card is invalid, or the
+     *         strategy chooses a used scoring type
+     */
+    public ScoreDistribution solve(long cardState) {
+        if (!CardState.isValid(cardState)) {
+            throw new IllegalArgumentException("Invalid card state");
+        }
+        int firstTurn = CardState.turnsTaken(cardState);
+        if (firstTurn >= YahtzeeGame.NUM_TURNS_PER_PLAYER) {
+            return new ScoreDistribution(CardState.score(cardState), new double[] {1});
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Worker[] workers = new Worker[threads];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker();
+            }
+
+            // every card the strategy can reach at the start of each turn, and its moves
+            Layer[] layers = new Layer[YahtzeeGame.NUM_TURNS_PER_PLAYER + 1];
+            layers[firstTurn] = new Layer(new long[] {CardState.withoutScore(cardState)});
+            for (int turn = firstTurn; turn < YahtzeeGame.NUM_TURNS_PER_PLAYER; turn++) {
+                Layer layer = layers[turn];
+                AtomicInteger next = new AtomicInteger();
+                List<Future<Set<Long>>> found = new ArrayList<>();
+                for (Worker worker : workers) {
+                    found.add(pool.submit(() -> worker.successors(layer, next)));
+                }
+                Set<Long> successors = new HashSet<>();
+                for (Future<Set<Long>> future : found) {
+                    successors.addAll(future.get());
+                }
+                layers[turn + 1] = new Layer(successors.stream().mapToLong(Long::longValue).sorted().toArray());
+            }
+
+            // points still to come, from the last turn back
+            Layer after = layers[YahtzeeGame.NUM_TURNS_PER_PLAYER];
+            for (int i = 0; i < after.cards.length; i++) {
+                after.points[i] = new double[] {1};
+            }
+            for (int turn = YahtzeeGame.NUM_TURNS_PER_PLAYER - 1; turn >= firstTurn; turn--) {
+                Layer layer = layers[turn];
+                Layer following = after;
+                AtomicInteger next = new AtomicInteger();
+                List<Future<Object>> done = new ArrayList<>();
+                for (Worker worker : workers) {
+                    done.add(pool.submit(() -> worker.distributions(layer, following, next)));
+                }
+                for (Future<Object> future : done) {
+                    future.get();
+                }
+                // the distributions of the next turn are no longer needed
+                layers[turn + 1] = null;
+                after = layer;
+            }
+            return new ScoreDistribution(CardState.score(cardState) + after.lowest[0], after.points[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Solving interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw new IllegalStateException("Solving failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The cards reachable at the start of one turn, the moves of each, and
+     * the distribution of the points still to come from each.
+     */
+    private static class Layer {
+
+        /** the cards, without their scores, sorted */
+        private final long[] cards;
+
+        /** lowest number of points still to come from each card */
+        private final int[] lowest;
+
+        /** chance of each number of points from lowest up, for each card */
+        private final double[][] points;
+
+        /**
+         * moves of each card, packed as next card without its score << 16 | points,
+         * sorted; dropped once the card's distribution is known
+         */
+        private final long[][] moves;
+
+        /** chance of each move of each card */
+        private final double[][] chances;
+
+        /**
+         * Constructs a Layer.
+         * @param cards the cards, without their scores, sorted
+         */
+        Layer(long[] cards) {
+            this.cards = cards;
+            lowest = new int[cards.length];
+            points = new double[cards.length][];
+            moves = new long[cards.length][];
+            chances = new double[cards.length][];
+        }
+    }
+
+    /**
+     * Plays the turns of cards for one thread, with its own strategy and
+     * scratch arrays.
+     */
+    private class Worker {
+
+        /** decides how to play */
+        private final Strategy strategy = strategies.get();
+
+        /** chance of each hand before a roll */
+        private final double[] before = new double[HandIndex.NUM_HANDS];
+
+        /** chance of each hand after a roll */
+        private final double[] after = new double[HandIndex.NUM_HANDS];
+
+        /** chance of each hand that was kept whole */
+        private final double[] stood = new double[HandIndex.NUM_HANDS];
+
+        /** move of each final hand, packed as in {@link Layer#moves} */
+        private final long[] handMoves = new long[HandIndex.NUM_HANDS];
+
+        /** moves of a card, sorted, while they are merged */
+        private final long[] sorted = new long[HandIndex.NUM_HANDS];
+
+        /** index in the following layer of the next card of each move */
+        private final int[] nextIndex = new int[HandIndex.NUM_HANDS];
+
+        /**
+         * Works out the moves of the cards of a layer, and finds the cards
+         * they lead to, taking blocks of cards until none are left.
+         * @param layer the cards at the start of the turn
+         * @param next index of the next card no thread has taken
+         * @return the cards at the start of the next turn
+         */
+        Set<Long> successors(Layer layer, AtomicInteger next) {
+            Set<Long> found = new HashSet<>();
+            long[] cards = layer.cards;
+            for (int start = next.getAndAdd(BLOCK); start < cards.length; start = next.getAndAdd(BLOCK)) {
+                for (int i = start; i < Math.min(cards.length, start + BLOCK); i++) {
+                    findMoves(layer, i);
+                    for (long move : layer.moves[i]) {
+                        found.add(move >>> 16);
+                    }
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Works out the moves of one card, merging final hands that lead to
+         * the same card and points.
+         * @param layer the layer of the card
+         * @param index index of the card in the layer
+         */
+        private void findMoves(Layer layer, int index) {
+            long card = layer.cards[index];
+            playTurn(card);
+            int numMoves = 0;
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                if (after[hand] > 0) {
+                    long nextCard = CardState.score(card, hand, scoringType(card, hand));
+                    handMoves[hand] = CardState.withoutScore(nextCard) << 16 | CardState.score(nextCard);
+                    sorted[numMoves++] = handMoves[hand];
+                }
+            }
+            Arrays.sort(sorted, 0, numMoves);
+            int merged = 0;
+            for (int i = 0; i < numMoves; i++) {
+                if (merged == 0 || sorted[merged - 1] != sorted[i]) {
+                    sorted[merged++] = sorted[i];
+                }
+            }
+            long[] moves = Arrays.copyOf(sorted, merged);
+            double[] chances = new double[merged];
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                if (after[hand] > 0) {
+                    chances[Arrays.binarySearch(moves, handMoves[hand])] += after[hand];
+                }
+            }
+            layer.moves[index] = moves;
+            layer.chances[index] = chances;
+        }
+
+        /**
+         * Works out the distributions of the cards of a layer from those of
+         * the next, taking blocks of cards until none are left.
+         * @param layer the cards at the start of the turn
+         * @param following the cards at the start of the next turn, solved
+         * @param next index of the next card no thread has taken
+         * @return nothing
+         */
+        Object distributions(Layer layer, Layer following, AtomicInteger next) {
+            for (int start = next.getAndAdd(BLOCK); start < layer.cards.length; start = next.getAndAdd(BLOCK)) {
+                for (int i = start; i < Math.min(layer.cards.length, start + BLOCK); i++) {
+                    distribution(layer, i, following);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Works out the distribution of the points still to come from one card.
+         * @param layer the layer of the card
+         * @param index index of the card in the layer
+         * @param following the next layer, solved
+         */
+        private void distribution(Layer layer, int index, Layer following) {
+            long[] moves = layer.moves[index];
+            double[] chances = layer.chances[index];
+
+            // shift and add the distributions of the next cards
+            int low = Integer.MAX_VALUE;
+            int high = Integer.MIN_VALUE;
+            for (int m = 0; m < moves.length; m++) {
+                int next = Arrays.binarySearch(following.cards, moves[m] >>> 16);
+                int gain = (int) (moves[m] & 0xFFFF);
+                nextIndex[m] = next;
+                low = Math.min(low, gain + following.lowest[next]);
+                high = Math.max(high, gain + following.lowest[next] + following.points[next].length - 1);
+            }
+            double[] points = new double[high - low + 1];
+            for (int m = 0; m < moves.length; m++) {
+                int next = nextIndex[m];
+                int shift = (int) (moves[m] & 0xFFFF) + following.lowest[next] - low;
+                double chance = chances[m];
+                double[] from = following.points[next];
+                for (int j = 0; j < from.length; j++) {
+                    points[shift + j] += chance * from[j];
+                }
+            }
+            layer.lowest[index] = low;
+            layer.points[index] = points;
+            layer.moves[index] = null;
+            layer.chances[index] = null;
+        }
+
+        /**
+         * Works out the chance of each final hand of a turn, leaving it in after.
+         * @param card the card at the start of the turn
+         */
+        private void playTurn(long card) {
+            System.arraycopy(FIRST_ROLL, 0, before, 0, before.length);
+            Arrays.fill(stood, 0);
+            for (int rerolls = 2; rerolls > 0; rerolls--) {
+                Arrays.fill(after, 0);
+                for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                    double chance = before[hand];
+                    if (chance == 0) {
+                        continue;
+                    }
+                    long dice = PackedDice.ofHand(hand);
+                    int keepMask = strategy.chooseKeep(dice, rerolls, card) & KEEP_ALL;
+                    if (keepMask == KEEP_ALL) {
+                        stood[hand] += chance;
+                        continue;
+                    }
+                    int keepId = RerollTable.keepId(dice, keepMask);
+                    for (int j = RerollTable.outcomeStart(keepId); j < RerollTable.outcomeEnd(keepId); j++) {
+                        after[RerollTable.outcomeHand(j)] += chance * RerollTable.outcomeProbability(j);
+                    }
+                }
+                System.arraycopy(after, 0, before, 0, before.length);
+            }
+            for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+                after[hand] += stood[hand];
+            }
+        }
+
+        /**
+         * Asks the strategy where to score a hand.
+         * @param card the card
+         * @param hand the hand
+         * @return the scoring type
+         * @throws IllegalArgumentException if the strategy chooses a used type
+         */
+        private int scoringType(long card, int hand) {
+            int type = strategy.chooseScoringType(PackedDice.ofHand(hand), card);
+            if ((CardState.availableMask(card) & (1 << type)) == 0) {
+                throw new IllegalArgumentException("Strategy chose a used scoring type");
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Works out the distribution of the final score of a new game and prints it.
+     * @param args the strategy: greedy (the default), heuristic, or the path
+     *             of a strategy file for the optimal strategy; then
+     *             optionally the number of threads
+     * @throws IOException if the strategy file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        String name = args.length > 0 ? args[0] : "greedy";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Supplier<? extends Strategy> strategies;
+        if (name.equals("greedy")) {
+            strategies = GreedyStrategy::new;
+        } else if (name.equals("heuristic")) {
+            strategies = HeuristicStrategy::new;
+        } else {
+            StrategyTable table = StrategyFile.map(Paths.get(name));
+            strategies = () -> new OptimalStrategy(table);
+        }
+
+        long start = System.nanoTime();
+        ScoreDistribution distribution = new DistributionSolver(strategies, threads).solve(CardState.EMPTY);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(distribution);
+        System.out.printf("%.2f s%n", seconds);
+    }
+}
@@ -0,0 +1,124 @@
+package tleibert.yahtzee.sim;
+
+/**
+ * The exact probability of every final score of a game played from some
+ * ScoreCard to the end under a fixed strategy, as worked out by a
+ * {@link DistributionSolver}.
+ *
+ * @author Trevor Leibert
+ */
+public final class ScoreDistribution {
+
+    /** lowest final score with a nonzero probability */
+    private final int minScore;
+
+    /** probability of each final score from minScore up */
+    private final double[] probabilities;
+
+    /**
+     * Constructs a ScoreDistribution.
+     * @param minScore lowest final score with a nonzero probability
+     * @param probabilities probability of each final score from minScore up
+     */
+    ScoreDistribution(int minScore, double[] probabilities) {
+        this.minScore = minScore;
+        this.probabilities = probabilities;
+    }
+
+    /**
+     * Returns the lowest final score that can happen.
+     * @return the lowest score
+     */
+    public int getMinScore() {
+        return minScore;
+    }
+
+    /**
+     * Returns the highest final score that can happen.
+     * @return the highest score
+     */
+    public int getMaxScore() {
+        return minScore + probabilities.length - 1;
+    }
+
+    /**
+     * Returns the probability of a final score.
+     * @param score final score
+     * @return the probability
+     */
+    public double getProbability(int score) {
+        return score < minScore || score > getMaxScore() ? 0 : probabilities[score - minScore];
+    }
+
+    /**
+     * Returns the probability of a final score of at least the given one.
+     * @param score final score
+     * @return the probability
+     */
+    public double getProbabilityAtLeast(int score) {
+        double sum = 0;
+        for (int i = probabilities.length - 1; i >= 0 && minScore + i >= score; i--) {
+            sum += probabilities[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the expected final score.
+     * @return the mean
+     */
+    public double getMean() {
+        double mean = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            mean += probabilities[i] * (minScore + i);
+        }
+        return mean;
+    }
+
+    /**
+     * Returns the standard deviation of the final score.
+     * @return the standard deviation
+     */
+    public double getStandardDeviation() {
+        double mean = getMean();
+        double variance = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            double d = minScore + i - mean;
+            variance += probabilities[i] * d * d;
+        }
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Returns the lowest final score that the given fraction of games do
+     * not exceed.
+     * @param fraction fraction of games, between 0 and 1
+     * @return the score at that percentile
+     */
+    public int getPercentile(double fraction) {
+        double seen = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            seen += probabilities[i];
+            if (seen >= fraction && probabilities[i] > 0) {
+                return minScore + i;
+            }
+        }
+        return getMaxScore();
+    }
+
+    /**
+     * Returns a summary of the distribution, for printing.
+     * @return the summary
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("mean %.5f, sd %.5f, scores %d to %d%n",
+                getMean(), getStandardDeviation(), getMinScore(), getMaxScore()));
+        s.append(String.format("percentiles 10%% %d, 50%% %d, 90%% %d, 99%% %d%n",
+                getPercentile(0.1), getPercentile(0.5), getPercentile(0.9), getPercentile(0.99)));
+        for (int score = 200; score <= 500; score += 100) {
+            s.append(String.format("P(score >= %d) = %.6e%n", score, getProbabilityAtLeast(score)));
+        }
+        return s.toString();
+    }
+}
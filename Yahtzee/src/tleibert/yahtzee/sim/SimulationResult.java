@@ -0,0 +1,209 @@
+package tleibert.yahtzee.sim;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.ScoreTable;
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Collects the statistics of a batch of simulated games: a histogram of the
+ * final scores, their mean and variance, and how each scoring type was used.
+ * Each simulation thread fills in its own result, and the results are
+ * merged at the end.
+ *
+ * @author Trevor Leibert
+ */
+public class SimulationResult {
+
+    /** highest possible final score: a Yahtzee followed by a bonus Yahtzee every turn */
+    public static final int MAX_SCORE = ScoreCard.MAX_SCORE;
+
+    /** number of games with each final score */
+    private final long[] histogram = new long[MAX_SCORE + 1];
+
+    /** number of games recorded */
+    private long games;
+
+    /** mean final score */
+    private double mean;
+
+    /** sum of squared differences from the mean, for the variance */
+    private double m2;
+
+    /** number of games in which the upper score bonus was awarded */
+    private long bonuses;
+
+    /** number of turns scored in each scoring type */
+    private final long[] categoryTurns = new long[ScoreTable.NUM_CATEGORIES];
+
+    /** number of turns scored in each scoring type for more than zero points */
+    private final long[] categoryHits = new long[ScoreTable.NUM_CATEGORIES];
+
+    /** total points scored in each scoring type */
+    private final long[] categoryPoints = new long[ScoreTable.NUM_CATEGORIES];
+
+    /**
+     * Records one turn.
+     * @param scoringType scoring type the turn was scored in
+     * @param points points the turn was worth
+     */
+    public void recordTurn(int scoringType, int points) {
+        categoryTurns[scoringType]++;
+        if (points > 0) {
+            categoryHits[scoringType]++;
+        }
+        categoryPoints[scoringType] += points;
+    }
+
+    /**
+     * Records the end of one game.
+     * @param score final score
+     * @param hadBonusScore whether the upper score bonus was awarded
+     */
+    public void recordGame(int score, boolean hadBonusScore) {
+        histogram[score]++;
+        games++;
+        double delta = score - mean;
+        mean += delta / games;
+        m2 += delta * (score - mean);
+        if (hadBonusScore) {
+            bonuses++;
+        }
+    }
+
+    /**
+     * Adds the games recorded in another result to this one.
+     * @param other result to add
+     */
+    public void merge(SimulationResult other) {
+        if (other.games == 0) {
+            return;
+        }
+        long total = games + other.games;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * games * other.games / total;
+        mean += delta * other.games / total;
+        games = total;
+        bonuses += other.bonuses;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        for (int i = 0; i < categoryTurns.length; i++) {
+            categoryTurns[i] += other.categoryTurns[i];
+            categoryHits[i] += other.categoryHits[i];
+            categoryPoints[i] += other.categoryPoints[i];
+        }
+    }
+
+    /**
+     * Returns the number of games recorded.
+     * @return number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the mean final score.
+     * @return mean score
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the sample variance of the final scores.
+     * @return variance of the score
+     */
+    public double getVariance() {
+        return games > 1 ? m2 / (games - 1) : 0;
+    }
+
+    /**
+     * Returns the standard deviation of the final scores.
+     * @return standard deviation of the score
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the number of games that ended with the given score.
+     * @param score final score
+     * @return number of games
+     */
+    public long getCount(int score) {
+        return score < 0 || score > MAX_SCORE ? 0 : histogram[score];
+    }
+
+    /**
+     * Returns the lowest score that at least the given fraction of games
+     * did not exceed.
+     * @param fraction fraction of games, between 0 and 1
+     * @return the score at that percentile
+     */
+    public int getPercentile(double fraction) {
+        long target = (long) Math.ceil(fraction * games);
+        long seen = 0;
+        for (int score = 0; score < histogram.length; score++) {
+            seen += histogram[score];
+            if (seen >= target && seen > 0) {
+                return score;
+            }
+        }
+        return MAX_SCORE;
+    }
+
+    /**
+     * Returns the fraction of games in which the upper score bonus was awarded.
+     * @return bonus rate
+     */
+    public double getBonusRate() {
+        return games == 0 ? 0 : (double) bonuses / games;
+    }
+
+    /**
+     * Returns the average number of turns per game scored in a scoring type.
+     * @param scoringType scoring type
+     * @return turns per game
+     */
+    public double getFillRate(int scoringType) {
+        return games == 0 ? 0 : (double) categoryTurns[scoringType] / games;
+    }
+
+    /**
+     * Returns the fraction of turns scored in a scoring type that were worth
+     * more than zero points.
+     * @param scoringType scoring type
+     * @return hit rate
+     */
+    public double getHitRate(int scoringType) {
+        return categoryTurns[scoringType] == 0 ? 0
+                : (double) categoryHits[scoringType] / categoryTurns[scoringType];
+    }
+
+    /**
+     * Returns the average points per game scored in a scoring type.
+     * @param scoringType scoring type
+     * @return points per game
+     */
+    public double getMeanPoints(int scoringType) {
+        return games == 0 ? 0 : (double) categoryPoints[scoringType] / games;
+    }
+
+    /**
+     * Returns a summary of the results, for printing.
+     * @return the summary
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("games %d, mean %.3f, sd %.3f, bonus %.2f%%%n",
+                games, getMean(), getStandardDeviation(), 100 * getBonusRate()));
+        s.append(String.format("percentiles 10%% %d, 50%% %d, 90%% %d, 99%% %d%n",
+                getPercentile(0.1), getPercentile(0.5), getPercentile(0.9), getPercentile(0.99)));
+        for (int i = 0; i < ScoreTable.NUM_CATEGORIES; i++) {
+            s.append(String.format("%-16s fill %.3f  hit %6.2f%%  points %7.3f%n",
+                    YahtzeeGame.SCORING_TYPES[i], getFillRate(i), 100 * getHitRate(i), getMeanPoints(i)));
+        }
+        return s.toString();
+    }
+}
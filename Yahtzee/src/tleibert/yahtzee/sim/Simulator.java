@@ -0,0 +1,174 @@
+package tleibert.yahtzee.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import tleibert.yahtzee.model.GreedyStrategy;
+import tleibert.yahtzee.model.HeuristicStrategy;
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.Strategy;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.SplittableRandomSource;
+
+/**
+ * Plays complete single player games without a GUI, as fast as possible,
+ * to measure how a {@link Strategy} scores. The games are split across
+ * threads, and every thread has its own split of one seeded random source,
+ * dice, ScoreCard, strategy and result, so the threads share nothing until
+ * their results are merged.
+ *
+ * @author Trevor Leibert
+ */
+public class Simulator {
+
+    /** keep mask holding every die */
+    private static final int KEEP_ALL = (1 << DiceBlock.NUM_DICE) - 1;
+
+    /** makes one strategy for each thread */
+    private final Supplier<? extends Strategy> strategies;
+
+    /** number of threads to play on */
+    private final int threads;
+
+    /**
+     * Constructs a Simulator using every available processor.
+     * @param strategies makes one strategy for each thread
+     */
+    public Simulator(Supplier<? extends Strategy> strategies) {
+        this(strategies, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a Simulator.
+     * @param strategies makes one strategy for each thread
+     * @param threads number of threads to play on
+     */
+    public Simulator(Supplier<? extends Strategy> strategies, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.strategies = strategies;
+        this.threads = threads;
+    }
+
+    /**
+     * Plays the given number of games and collects their statistics.
+     * The same seed, number of games and number of threads always give
+     * the same result.
+     * @param games number of games to play
+     * @param seed seed for the random number generators
+     * @return the statistics of the games played
+     */
+    public SimulationResult run(long games, long seed) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            SplittableRandomSource root = new SplittableRandomSource(seed);
+            List<Future<SimulationResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long share = games / threads + (i < games % threads ? 1 : 0);
+                futures.add(pool.submit(new Worker(share, root.split())));
+            }
+            SimulationResult result = new SimulationResult();
+            for (Future<SimulationResult> future : futures) {
+                result.merge(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one thread's share of the games.
+     */
+    private class Worker implements Callable<SimulationResult> {
+
+        /** number of games to play */
+        private final long games;
+
+        /** dice, reused for every turn */
+        private final DiceBlock dice;
+
+        /** ScoreCard, reset for every game */
+        private final ScoreCard card = new ScoreCard();
+
+        /** decides how to play */
+        private final Strategy strategy = strategies.get();
+
+        /** statistics of the games played */
+        private final SimulationResult result = new SimulationResult();
+
+        /**
+         * Constructs a Worker.
+         * @param games number of games to play
+         * @param random random source for this thread
+         */
+        Worker(long games, SplittableRandomSource random) {
+            this.games = games;
+            this.dice = new DiceBlock(random);
+        }
+
+        @Override
+        public SimulationResult call() {
+            for (long i = 0; i < games; i++) {
+                playGame();
+            }
+            return result;
+        }
+
+        /**
+         * Plays one game, following the rules of {@link YahtzeeGame}: a box
+         * is used up once scored, except that the Yahtzee box stays open
+         * after a Yahtzee. The ScoreCard keeps track of the open boxes.
+         */
+        private void playGame() {
+            card.reset();
+            for (int turn = 0; turn < YahtzeeGame.NUM_TURNS_PER_PLAYER; turn++) {
+                dice.initialRoll();
+                long cardState = card.pack();
+                for (int rerolls = 2; rerolls > 0; rerolls--) {
+                    int keepMask = strategy.chooseKeep(dice.getPacked(), rerolls, cardState);
+                    if (keepMask == KEEP_ALL) {
+                        break;
+                    }
+                    dice.rollExcept(keepMask);
+                }
+                int category = strategy.chooseScoringType(dice.getPacked(), cardState);
+                int points = card.score(dice, category);
+                result.recordTurn(category, points);
+            }
+            result.recordGame(card.getScore(), card.getHadBonusScore());
+        }
+    }
+
+    /**
+     * Runs a simulation and prints the results.
+     * @param args number of games, then optionally the number of threads,
+     *             the seed, and the strategy: greedy (the default) or heuristic
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        Supplier<Strategy> strategies = args.length > 3 && args[3].equals("heuristic")
+                ? HeuristicStrategy::new : GreedyStrategy::new;
+
+        long start = System.nanoTime();
+        SimulationResult result = new Simulator(strategies, threads).run(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(result);
+        System.out.printf("%.2f s, %.0f games/s%n", seconds, games / seconds);
+    }
+}
@@ -0,0 +1,280 @@
+package tleibert.yahtzee.sim;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import tleibert.yahtzee.engine.OptimalStrategy;
+import tleibert.yahtzee.engine.StrategyFile;
+import tleibert.yahtzee.engine.StrategyTable;
+import tleibert.yahtzee.model.GreedyStrategy;
+import tleibert.yahtzee.model.HeuristicStrategy;
+import tleibert.yahtzee.model.Strategy;
+import tleibert.yahtzee.model.YahtzeeGame;
+import tleibert.yahtzee.model.dice.SeededRandomSource;
+
+/**
+ * Plays {@link Strategy} entrants against each other in full
+ * {@link YahtzeeGame}s and rates them. Every deal is played at every
+ * table: each way of seating a choice of the entrants in the seats, in
+ * every order, so no entrant gains from its seat.
+ *
+ * The dice use common random numbers. A deal fixes the dice of every
+ * turn of every seat: the random source is reseeded at the start of each
+ * turn from the deal, the round and the seat. So every table of a deal
+ * starts every turn from the same dice, whoever sits in the seat, and
+ * the differences between entrants come from their decisions rather than
+ * their luck, which takes far fewer games to show.
+ *
+ * The deals are split into blocks, which are played in parallel. Each
+ * task has its own strategies, random source and result, so the threads
+ * share nothing until the results are merged, and the work scales with
+ * the number of processors.
+ *
+ * @author Trevor Leibert
+ */
+public class Tournament {
+
+    /**
+     * number of blocks the deals are split into: enough for the confidence
+     * intervals, and for threads that finish early to take another, and
+     * the same for any number of threads so the result is too
+     */
+    private static final int NUM_BLOCKS = 256;
+
+    /** names of the entrants */
+    private final List<String> names = new ArrayList<>();
+
+    /** makes one strategy of each entrant for each task */
+    private final List<Supplier<? extends Strategy>> entrants = new ArrayList<>();
+
+    /** number of seats at each table */
+    private final int seats;
+
+    /** number of threads to play on */
+    private final int threads;
+
+    /**
+     * Constructs a Tournament using every available processor.
+     * @param seats number of seats at each table
+     */
+    public Tournament(int seats) {
+        this(seats, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a Tournament.
+     * @param seats number of seats at each table, between
+     *              {@link YahtzeeGame#MIN_PLAYERS} and {@link YahtzeeGame#MAX_PLAYERS}
+     * @param threads number of threads to play on
+     */
+    public Tournament(int seats, int threads) {
+        if (seats < YahtzeeGame.MIN_PLAYERS || seats > YahtzeeGame.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Invalid number of seats");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.seats = seats;
+        this.threads = threads;
+    }
+
+    /**
+     * Adds an entrant.
+     * @param name name to report the entrant under
+     * @param strategies makes the strategy of the entrant, once per task
+     */
+    public void addEntrant(String name, Supplier<? extends Strategy> strategies) {
+        names.add(name);
+        entrants.add(strategies);
+    }
+
+    /**
+     * Plays every table of the given number of deals and rates the
+     * entrants. The same seed and number of deals always give the same
+     * result, whatever the number of threads.
+     * @param deals number of deals to play
+     * @param seed seed of the dice
+     * @return the ratings and statistics of the entrants
+     */
+    public TournamentResult run(long deals, long seed) {
+        if (entrants.size() < seats) {
+            throw new IllegalArgumentException("Need at least as many entrants as seats");
+        }
+        int[][] tables = tables();
+        String[] entrantNames = names.toArray(new String[0]);
+        long blocks = Math.min(deals, NUM_BLOCKS);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TournamentResult>> futures = new ArrayList<>();
+            for (long b = 0; b < blocks; b++) {
+                long first = deals * b / blocks;
+                long last = deals * (b + 1) / blocks;
+                futures.add(pool.submit(new Block(entrantNames, tables, first, last, seed)));
+            }
+            TournamentResult result = new TournamentResult(entrantNames);
+            for (Future<TournamentResult> future : futures) {
+                result.merge(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tournament failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists every table: every ordered choice of distinct entrants for the seats.
+     * @return the entrant in each seat, for each table
+     */
+    private int[][] tables() {
+        List<int[]> tables = new ArrayList<>();
+        addTables(new int[seats], 0, 0, tables);
+        return tables.toArray(new int[0][]);
+    }
+
+    /**
+     * Fills in the remaining seats of a table in every possible way.
+     * @param table entrants seated so far
+     * @param seat next seat to fill
+     * @param used bit i set if entrant i is seated
+     * @param tables list to add the finished tables to
+     */
+    private void addTables(int[] table, int seat, long used, List<int[]> tables) {
+        if (seat == table.length) {
+            tables.add(table.clone());
+            return;
+        }
+        for (int entrant = 0; entrant < entrants.size(); entrant++) {
+            if ((used & (1L << entrant)) == 0) {
+                table[seat] = entrant;
+                addTables(table, seat + 1, used | 1L << entrant, tables);
+            }
+        }
+    }
+
+    /**
+     * Returns the seed of the dice of one turn.
+     * @param seed seed of the tournament
+     * @param deal deal number
+     * @param round round of the game, from 0
+     * @param seat seat whose turn it is
+     * @return the seed
+     */
+    static long turnSeed(long seed, long deal, int round, int seat) {
+        long key = deal * YahtzeeGame.NUM_TURNS_PER_PLAYER + round;
+        key = key * YahtzeeGame.MAX_PLAYERS + seat;
+        // murmur3 finalizer, so streams of nearby turns do not overlap
+        long z = seed ^ (key * 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Plays one block of deals.
+     */
+    private class Block implements Callable<TournamentResult> {
+
+        /** names of the entrants */
+        private final String[] entrantNames;
+
+        /** the entrant in each seat, for each table */
+        private final int[][] tables;
+
+        /** first deal to play */
+        private final long first;
+
+        /** deal after the last one to play */
+        private final long last;
+
+        /** seed of the tournament */
+        private final long seed;
+
+        /**
+         * Constructs a Block.
+         * @param entrantNames names of the entrants
+         * @param tables the entrant in each seat, for each table
+         * @param first first deal to play
+         * @param last deal after the last one to play
+         * @param seed seed of the tournament
+         */
+        Block(String[] entrantNames, int[][] tables, long first, long last, long seed) {
+            this.entrantNames = entrantNames;
+            this.tables = tables;
+            this.first = first;
+            this.last = last;
+            this.seed = seed;
+        }
+
+        @Override
+        public TournamentResult call() {
+            Strategy[] strategies = new Strategy[entrants.size()];
+            for (int i = 0; i < strategies.length; i++) {
+                strategies[i] = entrants.get(i).get();
+            }
+            SeededRandomSource random = new SeededRandomSource(seed);
+            TournamentResult result = new TournamentResult(entrantNames);
+            int[] scores = new int[seats];
+            for (long deal = first; deal < last; deal++) {
+                for (int[] table : tables) {
+                    YahtzeeGame game = new YahtzeeGame(seats, 0, random);
+                    for (int seat = 0; seat < seats; seat++) {
+                        game.setStrategy(seat, strategies[table[seat]]);
+                    }
+                    for (int round = 0; round < YahtzeeGame.NUM_TURNS_PER_PLAYER; round++) {
+                        for (int seat = 0; seat < seats; seat++) {
+                            random.setSeed(turnSeed(seed, deal, round, seat));
+                            game.playTurn();
+                        }
+                    }
+                    for (int seat = 0; seat < seats; seat++) {
+                        scores[seat] = game.getScoreCards()[seat].getScore();
+                    }
+                    result.recordGame(table, scores);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Runs a tournament of the greedy and heuristic strategies, and of the
+     * optimal strategy if a strategy file is given, and prints the ratings.
+     * @param args number of deals, then optionally the number of seats,
+     *             the number of threads, the seed and a strategy file
+     * @throws IOException if the strategy file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        long deals = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        int seats = args.length > 1 ? Integer.parseInt(args[1]) : YahtzeeGame.MIN_PLAYERS;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        Tournament tournament = new Tournament(seats, threads);
+        tournament.addEntrant("greedy", GreedyStrategy::new);
+        tournament.addEntrant("heuristic", HeuristicStrategy::new);
+        if (args.length > 4) {
+            StrategyTable table = StrategyFile.map(Paths.get(args[4]));
+            tournament.addEntrant("optimal", () -> new OptimalStrategy(table));
+        }
+
+        long start = System.nanoTime();
+        TournamentResult result = tournament.run(deals, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(result);
+        System.out.printf("%d games in %.2f s, %.0f games/s%n", result.getGames(), seconds,
+                result.getGames() / seconds);
+    }
+}
@@ -0,0 +1,409 @@
+package tleibert.yahtzee.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the games of a {@link Tournament} and rates the entrants. Each
+ * game counts as one match between every two players at the table, won by
+ * the higher score, with a tie worth half a win to each. The ratings are
+ * fitted to those matches with the Bradley-Terry model and put on the Elo
+ * scale, where 400 points more means ten times the odds of winning.
+ *
+ * The games are recorded in blocks, one per task of the tournament, and
+ * merged at the end. Games in a block share their dice with the games of
+ * other entrants, so they are not independent of each other, but blocks
+ * are. The confidence intervals are worked out from the spread between
+ * blocks: with the jackknife, leaving out one block at a time, for the
+ * ratings, and from the block means for the scores.
+ *
+ * @author Trevor Leibert
+ */
+public class TournamentResult {
+
+    /** rating of an entrant who wins exactly as often as they lose */
+    public static final double BASE_RATING = 1500;
+
+    /** rating difference that means ten times the odds of winning */
+    public static final double RATING_SCALE = 400;
+
+    /** normal quantile of a two-sided 95% confidence interval */
+    private static final double Z_95 = 1.96;
+
+    /** drawn virtual matches added between every two entrants, so a winless entrant still has a rating */
+    private static final double PRIOR_MATCHES = 1;
+
+    /** the fit stops once no rating moves by more than this, in log odds */
+    private static final double TOLERANCE = 1e-10;
+
+    /** the fit stops after this many rounds even if it has not settled */
+    private static final int MAX_ITERATIONS = 10_000;
+
+    /** names of the entrants */
+    private final String[] names;
+
+    /** the recorded games, block by block */
+    private final List<Block> blocks = new ArrayList<>();
+
+    /** ratings of the entrants, or null if games were recorded since they were fitted */
+    private double[] ratings;
+
+    /** half widths of the 95% confidence intervals of the ratings */
+    private double[] ratingErrors;
+
+    /**
+     * Constructs an empty TournamentResult with a single block.
+     * @param names names of the entrants
+     */
+    public TournamentResult(String[] names) {
+        this.names = names.clone();
+        blocks.add(new Block(names.length));
+    }
+
+    /**
+     * Records one game in the last block.
+     * @param entrants entrant sitting in each seat
+     * @param scores final score of each seat
+     */
+    public void recordGame(int[] entrants, int[] scores) {
+        Block block = blocks.get(blocks.size() - 1);
+        block.tables++;
+        for (int a = 0; a < entrants.length; a++) {
+            block.games[entrants[a]]++;
+            block.scoreSum[entrants[a]] += scores[a];
+            for (int b = a + 1; b < entrants.length; b++) {
+                int x = entrants[a];
+                int y = entrants[b];
+                block.matches[x][y]++;
+                block.matches[y][x]++;
+                if (scores[a] > scores[b]) {
+                    block.wins[x][y]++;
+                } else if (scores[a] < scores[b]) {
+                    block.wins[y][x]++;
+                } else {
+                    block.wins[x][y] += 0.5;
+                    block.wins[y][x] += 0.5;
+                }
+            }
+        }
+        ratings = null;
+    }
+
+    /**
+     * Adds the blocks of another result to this one.
+     * @param other result to add, for the same entrants
+     */
+    public void merge(TournamentResult other) {
+        if (!Arrays.equals(names, other.names)) {
+            throw new IllegalArgumentException("Results are for different entrants");
+        }
+        blocks.removeIf(block -> block.tables == 0);
+        for (Block block : other.blocks) {
+            if (block.tables > 0) {
+                blocks.add(block);
+            }
+        }
+        if (blocks.isEmpty()) {
+            blocks.add(new Block(names.length));
+        }
+        ratings = null;
+    }
+
+    /**
+     * Returns the number of entrants.
+     * @return number of entrants
+     */
+    public int getNumEntrants() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of an entrant.
+     * @param entrant index of the entrant
+     * @return the name
+     */
+    public String getName(int entrant) {
+        return names[entrant];
+    }
+
+    /**
+     * Returns the number of games played, counting each table once.
+     * @return number of games
+     */
+    public long getGames() {
+        long games = 0;
+        for (Block block : blocks) {
+            games += block.tables;
+        }
+        return games;
+    }
+
+    /**
+     * Returns the number of games an entrant played.
+     * @param entrant index of the entrant
+     * @return number of games
+     */
+    public long getGames(int entrant) {
+        long games = 0;
+        for (Block block : blocks) {
+            games += block.games[entrant];
+        }
+        return games;
+    }
+
+    /**
+     * Returns the mean final score of an entrant.
+     * @param entrant index of the entrant
+     * @return the mean score
+     */
+    public double getMeanScore(int entrant) {
+        double sum = 0;
+        for (Block block : blocks) {
+            sum += block.scoreSum[entrant];
+        }
+        return sum / getGames(entrant);
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of the mean
+     * score of an entrant.
+     * @param entrant index of the entrant
+     * @return the half width, NaN if there are fewer than two blocks
+     */
+    public double getScoreError(int entrant) {
+        int count = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (Block block : blocks) {
+            if (block.games[entrant] > 0) {
+                double blockMean = block.scoreSum[entrant] / block.games[entrant];
+                count++;
+                double delta = blockMean - mean;
+                mean += delta / count;
+                m2 += delta * (blockMean - mean);
+            }
+        }
+        return count < 2 ? Double.NaN : Z_95 * Math.sqrt(m2 / (count - 1) / count);
+    }
+
+    /**
+     * Returns the share of its matches against another entrant that an
+     * entrant won, with ties counted as half.
+     * @param entrant index of the entrant
+     * @param opponent index of the opponent
+     * @return the share of wins, NaN if they never met
+     */
+    public double getWinRate(int entrant, int opponent) {
+        double wins = 0;
+        for (Block block : blocks) {
+            wins += block.wins[entrant][opponent];
+        }
+        return wins / matches(entrant, opponent);
+    }
+
+    /**
+     * Returns the Elo rating of an entrant.
+     * @param entrant index of the entrant
+     * @return the rating, averaging {@link #BASE_RATING} over the entrants
+     */
+    public double getRating(int entrant) {
+        fit();
+        return ratings[entrant];
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of the rating
+     * of an entrant.
+     * @param entrant index of the entrant
+     * @return the half width, NaN if there are fewer than two blocks
+     */
+    public double getRatingError(int entrant) {
+        fit();
+        return ratingErrors[entrant];
+    }
+
+    /**
+     * Returns a table of the entrants, best rated first, for printing.
+     * @return the table
+     */
+    public String toString() {
+        fit();
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(ratings[b], ratings[a]));
+
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("%-20s %16s %18s %10s%n", "Entrant", "Elo (95%)", "Mean score (95%)", "Games"));
+        for (int i : order) {
+            s.append(String.format("%-20s %8.1f +- %5.1f %9.2f +- %5.2f %10d%n", names[i], ratings[i],
+                    ratingErrors[i], getMeanScore(i), getScoreError(i), getGames(i)));
+        }
+        s.append(String.format("%nWin rate of row against column%n%-20s", ""));
+        for (int j : order) {
+            s.append(String.format(" %10.10s", names[j]));
+        }
+        s.append(String.format("%n"));
+        for (int i : order) {
+            s.append(String.format("%-20s", names[i]));
+            for (int j : order) {
+                s.append(i == j ? String.format(" %10s", "-") : String.format(" %9.2f%%", 100 * getWinRate(i, j)));
+            }
+            s.append(String.format("%n"));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the number of matches between two entrants.
+     * @param entrant index of the entrant
+     * @param opponent index of the opponent
+     * @return number of matches
+     */
+    private double matches(int entrant, int opponent) {
+        double matches = 0;
+        for (Block block : blocks) {
+            matches += block.matches[entrant][opponent];
+        }
+        return matches;
+    }
+
+    /**
+     * Fits the ratings and their confidence intervals, unless they are
+     * already fitted.
+     */
+    private void fit() {
+        if (ratings != null) {
+            return;
+        }
+        int n = names.length;
+        double[][] wins = new double[n][n];
+        double[][] matches = new double[n][n];
+        for (Block block : blocks) {
+            add(wins, block.wins, 1);
+            add(matches, block.matches, 1);
+        }
+        double[] fitted = fit(wins, matches);
+
+        // jackknife: refit leaving out one block at a time
+        double[] errors = new double[n];
+        int count = blocks.size();
+        if (count < 2) {
+            Arrays.fill(errors, Double.NaN);
+        } else {
+            double[][] left = new double[count][];
+            double[] mean = new double[n];
+            for (int b = 0; b < count; b++) {
+                Block block = blocks.get(b);
+                add(wins, block.wins, -1);
+                add(matches, block.matches, -1);
+                left[b] = fit(wins, matches);
+                add(wins, block.wins, 1);
+                add(matches, block.matches, 1);
+                for (int i = 0; i < n; i++) {
+                    mean[i] += left[b][i] / count;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                for (int b = 0; b < count; b++) {
+                    sum += (left[b][i] - mean[i]) * (left[b][i] - mean[i]);
+                }
+                errors[i] = Z_95 * Math.sqrt(sum * (count - 1) / count);
+            }
+        }
+        ratings = fitted;
+        ratingErrors = errors;
+    }
+
+    /**
+     * Fits Bradley-Terry strengths to the matches with the minorization-
+     * maximization updates of Hunter (2004), and turns them into ratings.
+     * @param wins wins of each entrant against each other, ties as half
+     * @param matches matches between each two entrants
+     * @return the rating of each entrant
+     */
+    private static double[] fit(double[][] wins, double[][] matches) {
+        int n = wins.length;
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        double[] next = new double[n];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double logMean = 0;
+            for (int i = 0; i < n; i++) {
+                double won = 0;
+                double weight = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j != i) {
+                        won += wins[i][j] + PRIOR_MATCHES / 2;
+                        weight += (matches[i][j] + PRIOR_MATCHES) / (strength[i] + strength[j]);
+                    }
+                }
+                next[i] = won / weight;
+                logMean += Math.log(next[i]) / n;
+            }
+            double change = 0;
+            for (int i = 0; i < n; i++) {
+                double scaled = next[i] / Math.exp(logMean);
+                change = Math.max(change, Math.abs(Math.log(scaled / strength[i])));
+                strength[i] = scaled;
+            }
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+        double[] rating = new double[n];
+        for (int i = 0; i < n; i++) {
+            rating[i] = BASE_RATING + RATING_SCALE * Math.log10(strength[i]);
+        }
+        return rating;
+    }
+
+    /**
+     * Adds a multiple of one matrix to another.
+     * @param sum matrix to add to
+     * @param matrix matrix to add
+     * @param sign 1 to add, -1 to take away
+     */
+    private static void add(double[][] sum, double[][] matrix, int sign) {
+        for (int i = 0; i < sum.length; i++) {
+            for (int j = 0; j < sum[i].length; j++) {
+                sum[i][j] += sign * matrix[i][j];
+            }
+        }
+    }
+
+    /**
+     * The games recorded by one task of a tournament.
+     */
+    private static class Block {
+
+        /** number of games */
+        private long tables;
+
+        /** number of games each entrant played */
+        private final long[] games;
+
+        /** total final score of each entrant */
+        private final double[] scoreSum;
+
+        /** wins of each entrant against each other, ties as half */
+        private final double[][] wins;
+
+        /** matches between each two entrants */
+        private final double[][] matches;
+
+        /**
+         * Constructs an empty Block.
+         * @param entrants number of entrants
+         */
+        Block(int entrants) {
+            games = new long[entrants];
+            scoreSum = new double[entrants];
+            wins = new double[entrants][entrants];
+            matches = new double[entrants][entrants];
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package tleibert.yahtzee.view;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+import tleibert.yahtzee.engine.RerollAdvisor;
+import tleibert.yahtzee.engine.StrategyFile;
+import tleibert.yahtzee.engine.StrategySolver;
+import tleibert.yahtzee.engine.StrategyTable;
+import tleibert.yahtzee.engine.TurnHint;
+
+/**
+ * Works out hints for the GUI away from the Swing event dispatch thread.
+ * Every hint is computed on one shared background thread and handed back
+ * to the event dispatch thread with {@link SwingUtilities#invokeLater}.
+ * A new request cancels the one before it, and an answer that arrives
+ * after a newer request, or after {@link #cancel()}, is dropped, so the
+ * GUI only ever shows a hint for the dice it is showing.
+ *
+ * The strategy table is loaded when the first hint is asked for, from the
+ * file named by the {@value #STRATEGY_PROPERTY} system property, or by
+ * default {@value #DEFAULT_STRATEGY_FILE} in the user's cache directory
+ * (see {@link UserDirectories#cache()}). If there is no such file the
+ * table is solved, which takes a while, and saved there for next time.
+ * Hints asked for in the meantime wait for it on the background thread.
+ *
+ * Requests must be made on the event dispatch thread.
+ *
+ * @author Trevor Leibert
+ */
+class HintWorker {
+
+    /** system property naming the strategy file */
+    static final String STRATEGY_PROPERTY = "yahtzee.strategy";
+
+    /** name of the strategy file in the cache directory, used if the property is not set */
+    static final String DEFAULT_STRATEGY_FILE = "strategy.bin";
+
+    /**
+     * Receives the answers of a HintWorker on the event dispatch thread.
+     */
+    interface Listener {
+
+        /**
+         * Called with the hint for the latest request.
+         * @param hint the hint
+         */
+        void hintReady(TurnHint hint);
+
+        /**
+         * Called if the latest request could not be answered.
+         * @param message why there is no hint
+         */
+        void hintFailed(String message);
+    }
+
+    /** the background thread, shared by every window */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "yahtzee-hints");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** advisor over the strategy table, only used on the background thread */
+    private static RerollAdvisor advisor;
+
+    /** why the strategy table could not be loaded, only used on the background thread */
+    private static String loadError;
+
+    /** whether loading the strategy table has been started, only used on the event dispatch thread */
+    private static boolean loadStarted;
+
+    /** told about the answers */
+    private final Listener listener;
+
+    /** the request being worked on, or null */
+    private Future<?> pending;
+
+    /** number of the latest request; answers to older ones are dropped */
+    private long generation;
+
+    /**
+     * Constructs a HintWorker.
+     * @param listener told about the answers on the event dispatch thread
+     */
+    HintWorker(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks for a hint for the dice showing, cancelling the previous request.
+     * @param packedDice the dice showing
+     * @param rollsLeft rolls left this turn, 0 to 2
+     * @param cardState ScoreCard of the player, packed
+     */
+    void request(long packedDice, int rollsLeft, long cardState) {
+        cancel();
+        if (!loadStarted) {
+            loadStarted = true;
+            // never cancelled, so interrupting a hint cannot interrupt the file I/O
+            EXECUTOR.execute(HintWorker::loadStrategy);
+        }
+        long requested = generation;
+        pending = EXECUTOR.submit(() -> {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            TurnHint hint = null;
+            String error = loadError;
+            if (advisor != null) {
+                try {
+                    hint = advisor.hint(packedDice, rollsLeft, cardState);
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            TurnHint answer = hint;
+            String message = error;
+            SwingUtilities.invokeLater(() -> publish(requested, answer, message));
+        });
+    }
+
+    /**
+     * Cancels the latest request, so its answer is never shown.
+     */
+    void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    /**
+     * Hands an answer to the listener if it is still wanted.
+     * @param requested number of the request answered
+     * @param hint the hint, or null if there is none
+     * @param message why there is no hint
+     */
+    private void publish(long requested, TurnHint hint, String message) {
+        if (requested != generation) {
+            return;
+        }
+        pending = null;
+        if (hint != null) {
+            listener.hintReady(hint);
+        } else {
+            listener.hintFailed(message);
+        }
+    }
+
+    /**
+     * Reads the strategy table, or solves and saves it if it cannot be read.
+     */
+    private static void loadStrategy() {
+        String property = System.getProperty(STRATEGY_PROPERTY);
+        Path path = property != null ? Paths.get(property)
+                : UserDirectories.cache().resolve(DEFAULT_STRATEGY_FILE);
+        StrategyTable table = null;
+        if (Files.isReadable(path)) {
+            try {
+                table = StrategyFile.map(path);
+            } catch (IOException e) {
+                // stale or damaged, solve it again below
+            }
+        }
+        if (table == null) {
+            try {
+                table = StrategySolver.solve();
+            } catch (RuntimeException e) {
+                loadError = "Could not solve the strategy: " + e.getMessage();
+                return;
+            }
+            try {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                StrategyFile.write(table, path);
+            } catch (IOException e) {
+                // hints still work from memory, the next run solves again
+            }
+        }
+        advisor = new RerollAdvisor(table);
+    }
+}
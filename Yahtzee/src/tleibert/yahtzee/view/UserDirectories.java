@@ -0,0 +1,113 @@
+package tleibert.yahtzee.view;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Finds where the GUI keeps its files for the current user, following the
+ * conventions of each platform, so nothing is written into whatever
+ * directory the game happens to be started from.
+ *
+ * @author Trevor Leibert
+ */
+final class UserDirectories {
+
+    /** name of the game's directory inside the platform's directories */
+    private static final String APP_NAME = "yahtzee";
+
+    /**
+     * UserDirectories only has static members.
+     */
+    private UserDirectories() {
+    }
+
+    /**
+     * Returns the directory for files that can be made again if deleted:
+     * {@code $XDG_CACHE_HOME/yahtzee} or {@code ~/.cache/yahtzee} on Linux,
+     * {@code ~/Library/Caches/yahtzee} on macOS and
+     * {@code %LOCALAPPDATA%\yahtzee} on Windows. It may not exist yet.
+     * @return the cache directory
+     */
+    static Path cache() {
+        if (isWindows()) {
+            return localAppData().resolve(APP_NAME);
+        }
+        if (isMac()) {
+            return home().resolve("Library").resolve("Caches").resolve(APP_NAME);
+        }
+        return xdg("XDG_CACHE_HOME", home().resolve(".cache")).resolve(APP_NAME);
+    }
+
+    /**
+     * Returns the directory for files the user would miss if deleted:
+     * {@code $XDG_DATA_HOME/yahtzee} or {@code ~/.local/share/yahtzee} on
+     * Linux, {@code ~/Library/Application Support/yahtzee} on macOS and
+     * {@code %APPDATA%\yahtzee} on Windows. It may not exist yet.
+     * @return the data directory
+     */
+    static Path data() {
+        if (isWindows()) {
+            String value = System.getenv("APPDATA");
+            Path appData = value == null || value.isEmpty()
+                    ? home().resolve("AppData").resolve("Roaming") : Paths.get(value);
+            return appData.resolve(APP_NAME);
+        }
+        if (isMac()) {
+            return home().resolve("Library").resolve("Application Support").resolve(APP_NAME);
+        }
+        return xdg("XDG_DATA_HOME", home().resolve(".local").resolve("share")).resolve(APP_NAME);
+    }
+
+    /**
+     * Returns the directory a base directory is named by in an environment
+     * variable, or a default if the variable is not set.
+     * @param variable name of the environment variable
+     * @param fallback directory used if it is not set
+     * @return the base directory
+     */
+    private static Path xdg(String variable, Path fallback) {
+        String value = System.getenv(variable);
+        // the XDG spec says relative paths are invalid and must be ignored
+        if (value == null || value.isEmpty() || !Paths.get(value).isAbsolute()) {
+            return fallback;
+        }
+        return Paths.get(value);
+    }
+
+    /**
+     * Returns the local application data directory on Windows.
+     * @return the directory
+     */
+    private static Path localAppData() {
+        String value = System.getenv("LOCALAPPDATA");
+        if (value == null || value.isEmpty()) {
+            return home().resolve("AppData").resolve("Local");
+        }
+        return Paths.get(value);
+    }
+
+    /**
+     * Returns the user's home directory.
+     * @return the home directory
+     */
+    private static Path home() {
+        return Paths.get(System.getProperty("user.home"));
+    }
+
+    /**
+     * Returns whether the JVM runs on Windows.
+     * @return true on Windows
+     */
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+    }
+
+    /**
+     * Returns whether the JVM runs on macOS.
+     * @return true on macOS
+     */
+    private static boolean isMac() {
+        return System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("mac");
+    }
+}
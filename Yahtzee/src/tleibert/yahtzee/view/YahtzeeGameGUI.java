@@ -2,10 +2,20 @@ package tleibert.yahtzee.view;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
+import tleibert.yahtzee.engine.RerollAdvice;
+import tleibert.yahtzee.engine.TurnHint;
+import tleibert.yahtzee.model.ScoreCard;
 import tleibert.yahtzee.model.YahtzeeGame;
 import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+import tleibert.yahtzee.scores.HighScore;
+import tleibert.yahtzee.scores.HighScoreStore;
 
 import java.util.Arrays;
 /**
@@ -16,7 +26,7 @@ import java.util.Arrays;
  * @author Charlee Sherrill
  * 
  */
-public class YahtzeeGameGUI extends JFrame implements ActionListener {
+public class YahtzeeGameGUI extends JFrame implements ActionListener, HintWorker.Listener {
     
     /** default serializable id */
 	private static final long serialVersionUID = 1L;
@@ -38,6 +48,36 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
     public static final Font NORMAL = new Font("Courier", 0, 16);
 
     public static final int YAHTZEE_INDEX = 11;
+
+    /** marks a scoring button that shows no points */
+    private static final int NO_PREVIEW = -1;
+
+    /** rows of the hint panel */
+    private static final int HINT_ROWS = 20;
+
+    /** columns of the hint panel */
+    private static final int HINT_COLUMNS = 28;
+
+    /** system property naming the high score directory */
+    public static final String HIGH_SCORES_PROPERTY = "yahtzee.highscores";
+
+    /** name of the high score directory in the user's data directory, used if the property is not set */
+    public static final String DEFAULT_HIGH_SCORES = "highscores";
+
+    /** number of high scores shown when a game ends */
+    private static final int HIGH_SCORES_SHOWN = 5;
+
+    /** die face icons, decoded once and shared by every button; index 0 is the blank face */
+    private static final ImageIcon[] DIE_ICONS = loadDieIcons();
+
+    /**
+     * high scores shared by every window, opened by the first game to end
+     * and kept open until the program exits; guarded by the class lock
+     */
+    private static HighScoreStore highScores;
+
+    /** whether the high scores could not be opened, guarded by the class lock */
+    private static boolean highScoresFailed;
     
     //***************************************************************** */
     private JPanel buttonPanel;
@@ -55,6 +95,14 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
 
     private JTextField labelScores;
 
+    /** shows the hint for the dice showing */
+    private JTextArea hintArea;
+
+    /** works out hints in the background */
+    private HintWorker hints;
+
+    /** hint for the dice showing, or null while there is none */
+    private TurnHint hint;
 
     
     //****************************************************************************
@@ -73,15 +121,21 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
     /**number of players */
     private int numPlayers;
 
-    /** keeps track of which scoring buttons have been used by which players */
-    private boolean[][] enabledScoringButtons;
-
     /** stores which dice have been selected to be rerolled */
     private boolean[] selected;
 
     /** stores the dice for use in the game */
     private DiceBlock dice;
 
+    /** face value currently shown on each die button */
+    private int[] shownFaces;
+
+    /** points each scoring type would give for the dice showing */
+    private int[] previewPoints;
+
+    /** points shown on each scoring button, or NO_PREVIEW */
+    private int[] shownPoints;
+
     /** stores the selected scoring type */
     private int selectedScoring;
 
@@ -178,19 +232,13 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
             buttonPanel.add(button);
         }
         
+        previewPoints = new int[YahtzeeGame.SCORING_TYPES.length];
+        shownPoints = new int[YahtzeeGame.SCORING_TYPES.length];
+        Arrays.fill(shownPoints, NO_PREVIEW);
+
         // initialize the number of players
         numPlayers = Player_number;
 
-        // create a 2-d boolean array showing which scoring options are available to each player
-        // each column represents one player, and each row a different scoring type
-        // all scoring types are enabled at the start of the game
-        enabledScoringButtons = new boolean[YahtzeeGame.SCORING_TYPES.length][numPlayers];
-        for (int i = 0; i < enabledScoringButtons.length; i++) {
-            for (int j = 0; j < enabledScoringButtons[0].length; j++) {
-                enabledScoringButtons[i][j] = true;
-            }
-        }
-
         // set up dice buttons
         gridPanel = new JPanel(new GridLayout(1, DiceBlock.NUM_DICE));
 
@@ -202,12 +250,13 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
                 button.addActionListener(this);
 
                 // dice are initially set to be a blank die face, before they have been rolled
-                button.setIcon (new ImageIcon(getClass().getResource(PATH + "0" + EXTENSION)));
+                button.setIcon(DIE_ICONS[0]);
                 button.setEnabled(false);
                 diceButtons[i][j] = button;
                 gridPanel.add(button);
              }
         }
+        shownFaces = new int[DiceBlock.NUM_DICE];
 
         c.add(gridPanel,BorderLayout.CENTER);
         controlPanel = new JPanel(new GridLayout(1, 2));
@@ -238,14 +287,22 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
         c.add(headerPanel, BorderLayout.NORTH);
 
         c.add(buttonPanel, BorderLayout.EAST);
+
+        // hint panel, filled in after every roll
+        hintArea = new JTextArea(HINT_ROWS, HINT_COLUMNS);
+        hintArea.setEditable(false);
+        hintArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        c.add(new JScrollPane(hintArea), BorderLayout.WEST);
+        hints = new HintWorker(this);
         
         selected = new boolean[DiceBlock.NUM_DICE];
         for (int i = 0; i < selected.length; i++) {
             selected[i] = false;
         }
         numRolls = 0;
-        dice = new DiceBlock();
+        selectedScoring = -1;
         yahtzeeGame = new YahtzeeGame(Player_number);
+        dice = yahtzeeGame.getDiceBlock();
         currentPlayer = yahtzeeGame.getSelectedPlayer();
         
         //turnLabel.setEditable(false);
@@ -273,6 +330,7 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
                 selectedScoring = i;
                 selectedScoringLabel.setText(YahtzeeGame.SCORING_TYPES[i]);
                 controlButtons[0][1].setEnabled(true);
+                showHint();
             }
         }
         
@@ -281,27 +339,19 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
         for (int i = 0; i < diceButtons[0].length; i++) {
             if (e.getSource() == diceButtons[0][i]) {
                 toggleSelected(i);
+                showHint();
             }
         }
 
         // take turn button
         if (e.getSource() == controlButtons[0][1]) {
             int currentPlayer = yahtzeeGame.getSelectedPlayer();
-            int temp = yahtzeeGame.takeTurn(dice, selectedScoring);
+            int temp = yahtzeeGame.scoreTurn(selectedScoring);
+            hints.cancel();
+            hint = null;
+            hintArea.setText("");
             
-            // yahtzee can be clicked multiple times if a yahtzee is achieved
             if (temp >= 0) {
-                if (selectedScoring != YAHTZEE_INDEX) {
-                    enabledScoringButtons[selectedScoring][currentPlayer] = false;
-                } else {
-                    if (temp > 0) {
-
-                        enabledScoringButtons[YAHTZEE_INDEX][currentPlayer] = true;
-                    } else {
-                        enabledScoringButtons[YAHTZEE_INDEX][currentPlayer] = false;
-                    }
-                }
-
                 //turnLabel.setText("Player\n" + yahtzeeGame.getTurn() + "\nturn");
                 
                 // sets all dice to be zero and resets the roll counter for the beginning of the 
@@ -309,10 +359,9 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
 
                 dice.resetDice();
                 numRolls = 0;
-                int[] diceStates = dice.toIntArray();
+                updateDiceIcons();
+                updateScorePreview();
                 for (int i = 0; i < diceButtons[0].length; i++) {
-                    diceButtons[0][i].setIcon(new ImageIcon(getClass().getResource(PATH + diceStates[i] + EXTENSION)));
-
                     // deselect and disable all dice buttons until the first roll of the next
                     selected[i] = false;
                     diceButtons[0][i].setSelected(false);
@@ -347,13 +396,9 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
 
                 // display the winner at the end of the game, and ask if the player wants to play again
                 if (yahtzeeGame.getIsOver()) {
-                    JOptionPane.showMessageDialog(null, "Player " + (yahtzeeGame.getWinner() + 1) + " wins!");
-                    int choice = JOptionPane.showConfirmDialog(null, "Do you want to play again?", "Play again?", 2);
-                    if (choice == 0) {
-                        new YahtzeeGameGUI();
-                    } else {
-                    	System.exit(0);
-                    }
+                    // nothing is left to roll while the results are recorded
+                    controlButtons[0][0].setEnabled(false);
+                    recordHighScores();
                 }
             }
         }
@@ -364,7 +409,7 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
             // first roll rolls all the dice and enables selection of 
             // individual dice for reroll
             if (numRolls == 0) {
-                dice.initialRoll();
+                yahtzeeGame.rollDice(0);
                 numRolls++;
                 
                 for (int i = 0; i < diceButtons[0].length; i++) {
@@ -374,14 +419,22 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
                 // update current player
                 currentPlayer = yahtzeeGame.getSelectedPlayer();
 
-                // enable all scoring buttons that the current player has not locked out
+                // enable all scoring buttons that the current player has not used;
+                // yahtzee can be clicked multiple times if a yahtzee is achieved
+                ScoreCard card = yahtzeeGame.getScoreCards()[currentPlayer];
                 for (int i = 0; i < scoringButtons.length; i++) {
-                    scoringButtons[i][0].setEnabled(enabledScoringButtons[i][currentPlayer]);
+                    scoringButtons[i][0].setEnabled(!card.isUsed(i));
                 }
 
                 // for the second and third rolls, only the selected dice will be rolled
             } else if (numRolls > 0 && numRolls < 3) {
-                dice.rollSelected(selected);
+                int keepMask = 0;
+                for (int i = 0; i < selected.length; i++) {
+                    if (!selected[i]) {
+                        keepMask |= 1 << i;
+                    }
+                }
+                yahtzeeGame.rollDice(keepMask);
                 numRolls++;
                 // disable the roll button after the third roll
                 if (numRolls == 3) {
@@ -389,14 +442,224 @@ public class YahtzeeGameGUI extends JFrame implements ActionListener {
                 }
             }
 
-            // update the dice images
-            int[] diceStates = dice.toIntArray();
-            for (int i = 0; i < diceButtons[0].length; i++) {
-                diceButtons[0][i].setIcon(new ImageIcon(getClass().getResource(PATH + diceStates[i] + EXTENSION)));
+            // update the dice images and the points on the scoring buttons
+            updateDiceIcons();
+            updateScorePreview();
+            requestHint();
+
+        }
+
+    }
+
+    /**
+     * Asks for a hint for the dice just rolled. The answer arrives later
+     * through {@link #hintReady(TurnHint)}.
+     */
+    private void requestHint() {
+        hint = null;
+        hintArea.setText("Working out a hint...\n(the first one can take\na while)");
+        ScoreCard card = yahtzeeGame.getScoreCards()[yahtzeeGame.getSelectedPlayer()];
+        hints.request(dice.getPacked(), YahtzeeGame.MAX_ROLLS - numRolls, card.pack());
+    }
+
+    @Override
+    public void hintReady(TurnHint hint) {
+        this.hint = hint;
+        showHint();
+    }
+
+    @Override
+    public void hintFailed(String message) {
+        hintArea.setText("No hint: " + message);
+    }
+
+    /**
+     * Shows the hint for the dice showing, with what the dice and scoring
+     * type picked so far are expected to lose.
+     */
+    private void showHint() {
+        if (hint == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Expected final score %.1f%n%n", hint.getBestValue()));
+        if (hint.canReroll()) {
+            int keepMask = 0;
+            for (int i = 0; i < selected.length; i++) {
+                if (!selected[i]) {
+                    keepMask |= 1 << i;
+                }
+            }
+            text.append("Best: ").append(describeKeep(hint.getBestKeepMask())).append('\n');
+            text.append(String.format("Yours: %s (-%.2f)%n%n", describeKeep(keepMask), hint.getKeepLoss(keepMask)));
+            text.append("Keep            Loss\n");
+            RerollAdvice advice = hint.getRerollAdvice();
+            for (int i = 0; i < advice.getNumChoices(); i++) {
+                int mask = advice.getKeepMask(i);
+                text.append(String.format("%-15s %5.2f%n", describeKeep(mask), hint.getKeepLoss(mask)));
+            }
+            text.append('\n');
+        }
+        text.append("Score now: ").append(YahtzeeGame.SCORING_TYPES[hint.getBestScoringType()]).append('\n');
+        if (selectedScoring >= 0 && hint.isOpen(selectedScoring)) {
+            text.append(String.format("Yours: %s (-%.2f)%n", YahtzeeGame.SCORING_TYPES[selectedScoring],
+                    hint.getScoreLoss(selectedScoring)));
+        }
+        text.append("\nScore in        Loss\n");
+        for (int type = 0; type < YahtzeeGame.SCORING_TYPES.length; type++) {
+            if (hint.isOpen(type)) {
+                text.append(String.format("%-15s %5.2f%n", YahtzeeGame.SCORING_TYPES[type], hint.getScoreLoss(type)));
+            }
+        }
+        hintArea.setText(text.toString());
+        hintArea.setCaretPosition(0);
+    }
+
+    /**
+     * Describes a choice of dice to keep by the values kept.
+     * @param keepMask bit i set if die i is kept
+     * @return the description
+     */
+    private String describeKeep(int keepMask) {
+        if (keepMask == 0) {
+            return "roll all";
+        }
+        StringBuilder s = new StringBuilder("keep");
+        for (int i = 0; i < DiceBlock.NUM_DICE; i++) {
+            if ((keepMask & (1 << i)) != 0) {
+                s.append(' ').append(dice.getValue(i));
             }
+        }
+        return s.toString();
+    }
 
+    /**
+     * Shows the current dice on the dice buttons. Only the buttons whose
+     * value changed get a new icon.
+     */
+    private void updateDiceIcons() {
+        for (int i = 0; i < diceButtons[0].length; i++) {
+            int face = dice.getValue(i);
+            if (face != shownFaces[i]) {
+                diceButtons[0][i].setIcon(DIE_ICONS[face]);
+                shownFaces[i] = face;
+            }
         }
+    }
 
+    /**
+     * Shows on each open scoring button the points it would give for the
+     * dice showing, or just the name of the scoring type before the first
+     * roll. The points come from {@link ScoreCard#evaluate(DiceBlock, int[])},
+     * which leaves the ScoreCard as it is, and only the buttons whose
+     * points changed get a new label.
+     */
+    private void updateScorePreview() {
+        ScoreCard card = yahtzeeGame.getScoreCards()[yahtzeeGame.getSelectedPlayer()];
+        boolean rolled = numRolls > 0;
+        if (rolled) {
+            card.evaluate(dice, previewPoints);
+        }
+        for (int i = 0; i < scoringButtons.length; i++) {
+            int points = rolled && !card.isUsed(i) ? previewPoints[i] : NO_PREVIEW;
+            if (points != shownPoints[i]) {
+                scoringButtons[i][0].setText(points == NO_PREVIEW ? YahtzeeGame.SCORING_TYPES[i]
+                        : YahtzeeGame.SCORING_TYPES[i] + " (" + points + ")");
+                shownPoints[i] = points;
+            }
+        }
+    }
+
+    /**
+     * Adds the results of the finished game to the high scores in the
+     * background, then announces the winner with the best high scores and
+     * asks whether to play again.
+     */
+    private void recordHighScores() {
+        String winner = "Player " + (yahtzeeGame.getWinner() + 1) + " wins!";
+        int[] scores = yahtzeeGame.getScores();
+        int[] ranks = new int[scores.length];
+        for (int player = 0; player < ranks.length; player++) {
+            ranks[player] = yahtzeeGame.getRank(player);
+        }
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                HighScoreStore store = openHighScores();
+                if (store == null) {
+                    return "";
+                }
+                store.recordGame(scores, ranks);
+                StringBuilder list = new StringBuilder("\n\nHigh scores:");
+                int place = 1;
+                for (HighScore score : store.top(HIGH_SCORES_SHOWN)) {
+                    list.append("\n").append(place++).append(". ").append(score.getScore());
+                }
+                return list.toString();
+            }
+
+            @Override
+            protected void done() {
+                String list;
+                try {
+                    list = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // high scores are optional
+                    list = "";
+                }
+                JOptionPane.showMessageDialog(null, winner + list);
+                int choice = JOptionPane.showConfirmDialog(null, "Do you want to play again?", "Play again?", 2);
+                if (choice == 0) {
+                    new YahtzeeGameGUI();
+                } else {
+                    System.exit(0);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Returns the high scores, opening them the first time. They are in
+     * the directory named by the {@value #HIGH_SCORES_PROPERTY} system
+     * property, or by default {@value #DEFAULT_HIGH_SCORES} in the user's
+     * data directory (see {@link UserDirectories#data()}), and are closed
+     * when the program exits.
+     * @return the high scores, or null if they cannot be opened
+     */
+    private static synchronized HighScoreStore openHighScores() {
+        if (highScores == null && !highScoresFailed) {
+            String property = System.getProperty(HIGH_SCORES_PROPERTY);
+            Path directory = property != null ? Paths.get(property)
+                    : UserDirectories.data().resolve(DEFAULT_HIGH_SCORES);
+            try {
+                highScores = new HighScoreStore(directory);
+            } catch (IOException e) {
+                // high scores are optional
+                highScoresFailed = true;
+                return null;
+            }
+            HighScoreStore store = highScores;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    // the results are already in the mapped log
+                }
+            }, "yahtzee-high-score-closer"));
+        }
+        return highScores;
+    }
+
+    /**
+     * Decodes the blank die face and the six die faces from the classpath.
+     * @return the icons, indexed by face value
+     */
+    private static ImageIcon[] loadDieIcons() {
+        ImageIcon[] icons = new ImageIcon[Die.MAX_VALUE + 1];
+        for (int face = 0; face < icons.length; face++) {
+            icons[face] = new ImageIcon(YahtzeeGameGUI.class.getResource(PATH + face + EXTENSION));
+        }
+        return icons;
     }
 
     /**
@@ -0,0 +1,67 @@
+package tleibert.yahtzee.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the seats of a battle royale share one dice sequence: seats
+ * playing the same strategy must end with the same card, whatever the
+ * seats between them do with their dice.
+ *
+ * @author Trevor Leibert
+ */
+public class BattleRoyaleTest {
+
+    /** number of seats in each game */
+    private static final int SEATS = 40;
+
+    /** number of games played */
+    private static final int GAMES = 50;
+
+    /**
+     * Plays games where the seats alternate between the greedy and the
+     * heuristic strategy, and compares the cards of the seats of each.
+     */
+    @Test
+    public void sameStrategySameCard() {
+        for (long seed = 0; seed < GAMES; seed++) {
+            YahtzeeGame game = YahtzeeGame.battleRoyale(SEATS, seed);
+            for (int seat = 0; seat < SEATS; seat++) {
+                game.setStrategy(seat, seat % 2 == 0 ? new GreedyStrategy() : new HeuristicStrategy());
+            }
+            game.playStrategyTurns();
+            assertTrue(game.getIsOver());
+
+            ScoreCard[] cards = game.getScoreCards();
+            for (int seat = 2; seat < SEATS; seat++) {
+                assertEquals(cards[seat % 2].pack(), cards[seat].pack(),
+                        "seed " + seed + ", seat " + seat);
+            }
+        }
+    }
+
+    /**
+     * Checks that the dice depend on the seed, so the seats do not all
+     * roll one fixed sequence.
+     */
+    @Test
+    public void seedsGiveDifferentGames() {
+        long first = 0;
+        boolean differ = false;
+        for (long seed = 0; seed < GAMES && !differ; seed++) {
+            YahtzeeGame game = YahtzeeGame.battleRoyale(YahtzeeGame.MIN_PLAYERS, seed);
+            game.setStrategy(0, new HeuristicStrategy());
+            game.setStrategy(1, new HeuristicStrategy());
+            game.playStrategyTurns();
+            long card = game.getScoreCards()[0].pack();
+            if (seed == 0) {
+                first = card;
+            } else {
+                differ = card != first;
+            }
+        }
+        assertTrue(differ);
+    }
+}
@@ -0,0 +1,192 @@
+package tleibert.yahtzee.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import tleibert.yahtzee.model.dice.SplittableRandomSource;
+
+/**
+ * Plays random moves in many games of a {@link GameStore} and, in
+ * lockstep, in YahtzeeGames built from the same seeds, and checks after
+ * every move that the dice, the cards, the player to move and the end of
+ * the game agree. Finished games are removed, so their slots are reused.
+ *
+ * @author Trevor Leibert
+ */
+public class GameStoreEquivalenceTest {
+
+    /** number of games played at once */
+    private static final int IN_FLIGHT = 300;
+
+    /** number of moves played in all */
+    private static final int MOVES = 300_000;
+
+    /** number of scoring types */
+    private static final int NUM_TYPES = YahtzeeGame.SCORING_TYPES.length;
+
+    /** chooses the games, the moves and the seeds */
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    /** the store */
+    private final GameStore store = new GameStore(16);
+
+    /** slot of each game in the store */
+    private final List<Integer> slots = new ArrayList<>();
+
+    /** the same games, played as YahtzeeGames */
+    private final List<YahtzeeGame> games = new ArrayList<>();
+
+    /**
+     * Plays the moves and compares the games after each.
+     */
+    @Test
+    public void storeMatchesYahtzeeGame() {
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            startGame(i);
+        }
+        int finished = 0;
+        for (int move = 0; move < MOVES; move++) {
+            int i = random.nextInt(IN_FLIGHT);
+            int slot = slots.get(i);
+            YahtzeeGame game = games.get(i);
+            play(slot, game);
+            compare(slot, game);
+            if (game.getIsOver()) {
+                assertThrows(IllegalStateException.class, () -> store.rollDice(slot, 0));
+                store.removeGame(slot);
+                startGame(i);
+                finished++;
+            }
+        }
+        assertEquals(IN_FLIGHT, store.size());
+        // a game takes about 120 moves, so thousands of slots were reused
+        assertTrue(finished > MOVES / 200, "games finished: " + finished);
+    }
+
+    /**
+     * Starts a game in the store and as a YahtzeeGame, in place of game i.
+     * @param i index of the game
+     */
+    private void startGame(int i) {
+        int players = YahtzeeGame.MIN_PLAYERS + random.nextInt(YahtzeeGame.MAX_PLAYERS - 1);
+        long seed = random.nextLong();
+        int slot;
+        YahtzeeGame game;
+        if (random.nextBoolean()) {
+            slot = store.newGame(players, seed);
+            game = new YahtzeeGame(players, new SplittableRandomSource(seed));
+        } else {
+            int first = random.nextInt(players);
+            slot = store.newGame(players, first, seed);
+            game = new YahtzeeGame(players, first, new SplittableRandomSource(seed));
+        }
+        if (i < slots.size()) {
+            slots.set(i, slot);
+            games.set(i, game);
+        } else {
+            slots.add(slot);
+            games.add(game);
+        }
+        compare(slot, game);
+    }
+
+    /**
+     * Plays one random move, sometimes an illegal one, in both copies of a game.
+     * @param slot slot of the game in the store
+     * @param game the game as a YahtzeeGame
+     */
+    private void play(int slot, YahtzeeGame game) {
+        int rolls = game.getNumRolls();
+        int choice = random.nextInt(20);
+        if (choice == 0) {
+            // an illegal move must be refused the same way by both
+            if (rolls == YahtzeeGame.MAX_ROLLS) {
+                assertThrows(IllegalStateException.class, () -> game.rollDice(0));
+                assertThrows(IllegalStateException.class, () -> store.rollDice(slot, 0));
+            } else if (rolls == 0) {
+                assertThrows(IllegalStateException.class, () -> game.scoreTurn(0));
+                assertThrows(IllegalStateException.class, () -> store.scoreTurn(slot, 0));
+            } else {
+                int used = usedType(game);
+                if (used >= 0) {
+                    assertThrows(IllegalArgumentException.class, () -> game.scoreTurn(used));
+                    assertThrows(IllegalArgumentException.class, () -> store.scoreTurn(slot, used));
+                }
+            }
+        } else if (rolls == 0 || rolls < YahtzeeGame.MAX_ROLLS && choice < 12) {
+            int keepMask = random.nextInt(1 << 5);
+            game.rollDice(keepMask);
+            store.rollDice(slot, keepMask);
+        } else {
+            int type = openType(game);
+            assertEquals(game.scoreTurn(type), store.scoreTurn(slot, type));
+        }
+    }
+
+    /**
+     * Returns a random scoring type the current player can still score.
+     * @param game the game
+     * @return the scoring type
+     */
+    private int openType(YahtzeeGame game) {
+        int start = random.nextInt(NUM_TYPES);
+        for (int i = 0; i < NUM_TYPES; i++) {
+            int type = (start + i) % NUM_TYPES;
+            if (game.isOpen(type)) {
+                return type;
+            }
+        }
+        throw new AssertionError("No open scoring type");
+    }
+
+    /**
+     * Returns a scoring type the current player can no longer score.
+     * @param game the game
+     * @return the scoring type, or -1 if every type is open
+     */
+    private int usedType(YahtzeeGame game) {
+        for (int type = 0; type < NUM_TYPES; type++) {
+            if (!game.isOpen(type)) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the store and the flyweights describe the game as the
+     * YahtzeeGame does.
+     * @param slot slot of the game in the store
+     * @param game the game as a YahtzeeGame
+     */
+    private void compare(int slot, YahtzeeGame game) {
+        int players = game.getNumPlayers();
+        assertEquals(players, store.getNumPlayers(slot));
+        assertEquals(game.getDiceBlock().getPacked(), store.getDice(slot));
+        assertEquals(game.getSelectedPlayer(), store.getSelectedPlayer(slot));
+        assertEquals(game.getNumRolls(), store.getNumRolls(slot));
+        assertEquals(game.getNumTurns(), store.getNumTurns(slot));
+        assertEquals(game.getIsOver(), store.getIsOver(slot));
+        assertEquals(game.getWinner(), store.getWinner(slot));
+        ScoreCard[] cards = game.getScoreCards();
+        GameStore.Game view = store.getGame(slot);
+        for (int player = 0; player < players; player++) {
+            assertEquals(cards[player].pack(), store.getCardState(slot, player));
+            assertEquals(cards[player].getScore(), store.getScore(slot, player));
+            assertEquals(game.getRank(player), store.getRank(slot, player));
+            assertEquals(cards[player].availableMask(), view.getScoreCard(player).availableMask());
+        }
+        assertEquals(game.getCurrentPlayerScore(), view.getCurrentPlayerScore());
+        assertEquals(game.getTurn(), view.getTurn());
+        for (int type = 0; type < NUM_TYPES; type++) {
+            assertEquals(game.isOpen(type), view.isOpen(type));
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package tleibert.yahtzee.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import tleibert.yahtzee.model.dice.DiceBlock;
+import tleibert.yahtzee.model.dice.Die;
+
+/**
+ * Checks that scoring through the {@link ScoreTable} gives the same points,
+ * totals and bonuses as the scoring logic ScoreCard had before the table:
+ * the switch over scoring types, isSmallStraight, isLargeStraight and the
+ * Yahtzee and upper bonus bookkeeping, kept below as {@link LegacyScoreCard}.
+ * Every one of the 7776 ordered hands is scored in all 13 types after each
+ * of several histories.
+ *
+ * @author Trevor Leibert
+ */
+public class ScoreCardEquivalenceTest {
+
+    /** number of ordered rolls of five dice, 6^5 */
+    private static final int NUM_ROLLS = 7776;
+
+    /**
+     * Turns played before the checked turn, as pairs of dice and scoring
+     * type. A step in the checked type is left out.
+     */
+    private static final int[][][] HISTORIES = {
+        // a new card
+        {},
+        // a Yahtzee already scored, so the next one is a bonus
+        {{6, 6, 6, 6, 6}, {ScoreCard.YAHTZEE}},
+        // the Yahtzee box scored for zero
+        {{1, 2, 3, 4, 6}, {ScoreCard.YAHTZEE}},
+        // three of each face: exactly the bonus threshold once all six are in
+        {{1, 1, 1, 2, 3}, {ScoreCard.ONES}, {2, 2, 2, 1, 3}, {ScoreCard.TWOS},
+            {3, 3, 3, 1, 2}, {ScoreCard.THREES}, {4, 4, 4, 1, 2}, {ScoreCard.FOURS},
+            {5, 5, 5, 1, 2}, {ScoreCard.FIVES}, {6, 6, 6, 1, 2}, {ScoreCard.SIXES}},
+        // two of each face: never reaches the threshold
+        {{1, 1, 2, 3, 4}, {ScoreCard.ONES}, {2, 2, 1, 3, 4}, {ScoreCard.TWOS},
+            {3, 3, 1, 2, 4}, {ScoreCard.THREES}, {4, 4, 1, 2, 3}, {ScoreCard.FOURS},
+            {5, 5, 1, 2, 3}, {ScoreCard.FIVES}, {6, 6, 1, 2, 3}, {ScoreCard.SIXES}},
+        // a Yahtzee of sixes in the upper box, then a Yahtzee
+        {{6, 6, 6, 6, 6}, {ScoreCard.SIXES}, {2, 2, 2, 2, 2}, {ScoreCard.YAHTZEE},
+            {5, 5, 5, 5, 5}, {ScoreCard.FIVES}},
+    };
+
+    /**
+     * Scores every ordered hand in every type after every history, and
+     * checks the points, total and flags after each turn.
+     */
+    @Test
+    public void everyHandAndTypeMatchesLegacyScoring() {
+        DiceBlock dice = new DiceBlock();
+        int[] values = new int[DiceBlock.NUM_DICE];
+        for (int[][] history : HISTORIES) {
+            for (int roll = 0; roll < NUM_ROLLS; roll++) {
+                for (int die = 0, rest = roll; die < values.length; die++, rest /= Die.MAX_VALUE) {
+                    values[die] = rest % Die.MAX_VALUE + 1;
+                }
+                for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+                    ScoreCard card = new ScoreCard();
+                    LegacyScoreCard legacy = new LegacyScoreCard();
+                    for (int step = 0; step < history.length; step += 2) {
+                        if (history[step + 1][0] != type) {
+                            dice.setDiceValues(history[step]);
+                            assertTurn(legacy, card, dice, history[step], history[step + 1][0]);
+                        }
+                    }
+                    dice.setDiceValues(values);
+                    assertTurn(legacy, card, dice, values, type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks every ordered hand against the base points in the table.
+     */
+    @Test
+    public void tableMatchesLegacyBasePoints() {
+        DiceBlock dice = new DiceBlock();
+        int[] values = new int[DiceBlock.NUM_DICE];
+        for (int roll = 0; roll < NUM_ROLLS; roll++) {
+            for (int die = 0, rest = roll; die < values.length; die++, rest /= Die.MAX_VALUE) {
+                values[die] = rest % Die.MAX_VALUE + 1;
+            }
+            dice.setDiceValues(values);
+            for (int type = 0; type < ScoreTable.NUM_CATEGORIES; type++) {
+                assertEquals(new LegacyScoreCard().score(values, type),
+                        ScoreTable.points(dice.getHandId(), type),
+                        () -> Arrays.toString(values));
+            }
+        }
+    }
+
+    /**
+     * Scores one turn on both cards and checks they agree.
+     * @param legacy card scored with the old logic
+     * @param card card scored through the table
+     * @param dice the dice, set to values
+     * @param values the dice values
+     * @param type scoring type
+     */
+    private static void assertTurn(LegacyScoreCard legacy, ScoreCard card, DiceBlock dice,
+            int[] values, int type) {
+        String turn = Arrays.toString(values) + " in type " + type;
+        assertEquals(legacy.score(values, type), card.score(dice, type), turn);
+        assertEquals(legacy.score, card.getScore(), turn);
+        assertEquals(legacy.hadBonusScore, card.getHadBonusScore(), turn);
+        assertEquals(legacy.hadYahtzee, card.getHadYahtzee(), turn);
+    }
+
+    /**
+     * ScoreCard's scoring logic from before the {@link ScoreTable}, with
+     * the upper bonus fixed to latch only once it is awarded.
+     */
+    private static class LegacyScoreCard {
+
+        /** the current score */
+        private int score;
+
+        /** the total upper score */
+        private int upperScore;
+
+        /** whether each upper box has been used */
+        private boolean[] upperScoreChecked = new boolean[ScoreCard.SIXES + 1];
+
+        /** whether a Yahtzee has been scored */
+        private boolean hadYahtzee;
+
+        /** whether the upper bonus has been awarded */
+        private boolean hadBonusScore;
+
+        /**
+         * Scores dice in a scoring type.
+         * @param values the dice values
+         * @param scoringType the scoring type
+         * @return the points of the turn
+         */
+        int score(int[] values, int scoringType) {
+            int tempScore = 0;
+            int[] diceTally = new int[Die.MAX_VALUE];
+            int sumOfDice = 0;
+            for (int value : values) {
+                diceTally[value - 1]++;
+                sumOfDice += value;
+            }
+
+            switch (scoringType) {
+                case ScoreCard.ONES :
+                case ScoreCard.TWOS :
+                case ScoreCard.THREES :
+                case ScoreCard.FOURS :
+                case ScoreCard.FIVES :
+                case ScoreCard.SIXES :
+                    tempScore = diceTally[scoringType] * (scoringType + 1);
+                    upperScore += tempScore;
+                    upperScoreChecked[scoringType] = true;
+                    bonusScore();
+                    break;
+
+                case ScoreCard.THREE_OF_KIND :
+                    for (int i = 0; i < diceTally.length; i++) {
+                        if (diceTally[i] >= 3) {
+                            tempScore = sumOfDice;
+                        }
+                    }
+                    break;
+
+                case ScoreCard.FOUR_OF_KIND :
+                    for (int i = 0; i < diceTally.length; i++) {
+                        if (diceTally[i] >= 4) {
+                            tempScore = sumOfDice;
+                        }
+                    }
+                    break;
+
+                case ScoreCard.FULL_HOUSE :
+                    boolean had2 = false;
+                    boolean had3 = false;
+                    for (int i = 0; i < diceTally.length; i++) {
+                        if (diceTally[i] == 2) {
+                            had2 = true;
+                        } else if (diceTally[i] == 3) {
+                            had3 = true;
+                        }
+                    }
+                    if (had2 && had3) {
+                        tempScore = ScoreCard.FULL_HOUSE_POINTS;
+                    }
+                    break;
+
+                case ScoreCard.SMALL_STRAIGHT :
+                    if (isSmallStraight(diceTally)) {
+                        tempScore = ScoreCard.SMALL_STRAIGHT_POINTS;
+                    }
+                    break;
+
+                case ScoreCard.LARGE_STRAIGHT :
+                    if (isLargeStraight(diceTally)) {
+                        tempScore = ScoreCard.LARGE_STRAIGHT_POINTS;
+                    }
+                    break;
+
+                case ScoreCard.YAHTZEE :
+                    if (isYahtzee(diceTally)) {
+                        if (!hadYahtzee) {
+                            tempScore = ScoreCard.YAHTZEE_POINTS;
+                            hadYahtzee = true;
+                        } else {
+                            tempScore = ScoreCard.YAHTZEE_BONUS;
+                        }
+                    }
+                    break;
+
+                case ScoreCard.CHANCE :
+                    tempScore = sumOfDice;
+                    break;
+                default :
+            }
+
+            score += tempScore;
+            return tempScore;
+        }
+
+        /**
+         * Adds the upper bonus once every upper box is used and the upper
+         * score reaches the threshold.
+         */
+        private void bonusScore() {
+            if (!hadBonusScore && upperScore >= ScoreCard.BONUS_SCORE_THRESHOLD) {
+                boolean[] allTrue = new boolean[upperScoreChecked.length];
+                Arrays.fill(allTrue, true);
+                if (Arrays.equals(upperScoreChecked, allTrue)) {
+                    score += ScoreCard.BONUS_SCORE_POINTS;
+                    hadBonusScore = true;
+                }
+            }
+        }
+
+        /**
+         * Tests for five of a kind.
+         * @param diceTally count of each face
+         * @return true for a Yahtzee
+         */
+        private static boolean isYahtzee(int[] diceTally) {
+            for (int i = 0; i < diceTally.length; i++) {
+                if (diceTally[i] == 5) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Tests for four in a row.
+         * @param diceTally count of each face
+         * @return true for a small straight
+         */
+        private static boolean isSmallStraight(int[] diceTally) {
+            //case 1 -- 1234
+            if (diceTally[0] >= 1 && diceTally[1] >= 1 && diceTally[2] >= 1 && diceTally[3] >= 1) {
+                return true;
+            }
+            //case 2 -- 2345
+            if (diceTally[1] >= 1 && diceTally[2] >= 1 && diceTally[3] >= 1 && diceTally[4] >= 1) {
+                return true;
+            }
+            //case 3 -- 3456
+            return diceTally[2] >= 1 && diceTally[3] >= 1 && diceTally[4] >= 1 && diceTally[5] >= 1;
+        }
+
+        /**
+         * Tests for five in a row.
+         * @param diceTally count of each face
+         * @return true for a large straight
+         */
+        private static boolean isLargeStraight(int[] diceTally) {
+            int[] possibility1 = {1, 1, 1, 1, 1, 0};
+            int[] possibility2 = {0, 1, 1, 1, 1, 1};
+
+            return Arrays.equals(diceTally, possibility1)
+                    || Arrays.equals(diceTally, possibility2);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package tleibert.yahtzee.model.dice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link RerollTable} against brute force: for every hand and
+ * every keep mask, the dice not kept are rolled in all 6^k ways and the
+ * hands they end in are counted.
+ *
+ * @author Trevor Leibert
+ */
+public class RerollTableTest {
+
+    /** number of keep masks of five dice */
+    private static final int NUM_MASKS = 1 << DiceBlock.NUM_DICE;
+
+    /** largest error allowed in a probability */
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Compares the outcomes of every keep of every hand with an enumeration
+     * of the rerolls.
+     */
+    @Test
+    public void outcomesMatchEnumeration() {
+        double[] counts = new double[HandIndex.NUM_HANDS];
+        for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+            long dice = PackedDice.ofHand(hand);
+            for (int mask = 0; mask < NUM_MASKS; mask++) {
+                int rolled = DiceBlock.NUM_DICE - Integer.bitCount(mask);
+                int ways = 1;
+                for (int i = 0; i < rolled; i++) {
+                    ways *= 6;
+                }
+                Arrays.fill(counts, 0);
+                for (int roll = 0; roll < ways; roll++) {
+                    long result = dice;
+                    for (int die = 0, rest = roll; die < DiceBlock.NUM_DICE; die++) {
+                        if ((mask & (1 << die)) == 0) {
+                            result = PackedDice.withFace(result, die, rest % 6 + 1);
+                            rest /= 6;
+                        }
+                    }
+                    counts[PackedDice.canonicalId(result)]++;
+                }
+
+                int keep = RerollTable.keepId(dice, mask);
+                assertEquals(Integer.bitCount(mask), RerollTable.size(keep));
+                double total = 0;
+                Set<Integer> seen = new TreeSet<>();
+                for (int i = RerollTable.outcomeStart(keep); i < RerollTable.outcomeEnd(keep); i++) {
+                    int outcome = RerollTable.outcomeHand(i);
+                    assertTrue(seen.add(outcome), "hand listed twice");
+                    assertEquals(counts[outcome] / ways, RerollTable.outcomeProbability(i), EPSILON);
+                    total += RerollTable.outcomeProbability(i);
+                }
+                assertEquals(1, total, EPSILON);
+                for (int outcome = 0; outcome < HandIndex.NUM_HANDS; outcome++) {
+                    assertEquals(counts[outcome] / ways, RerollTable.probability(dice, mask, outcome), EPSILON);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that each hand lists exactly the distinct keeps its masks give.
+     */
+    @Test
+    public void handKeepsMatchMasks() {
+        for (int hand = 0; hand < HandIndex.NUM_HANDS; hand++) {
+            long dice = PackedDice.ofHand(hand);
+            Set<Integer> fromMasks = new TreeSet<>();
+            for (int mask = 0; mask < NUM_MASKS; mask++) {
+                fromMasks.add(RerollTable.keepId(dice, mask));
+            }
+            Set<Integer> listed = new TreeSet<>();
+            for (int i = RerollTable.handKeepStart(hand); i < RerollTable.handKeepEnd(hand); i++) {
+                assertTrue(listed.add(RerollTable.handKeep(i)), "keep listed twice");
+            }
+            assertEquals(fromMasks, listed);
+        }
+    }
+
+    /**
+     * Checks that keeping a die that has not been rolled is rejected, and
+     * that rolling every die of a new DiceBlock is the initial roll.
+     */
+    @Test
+    public void unrolledDiceAreRejected() {
+        DiceBlock dice = new DiceBlock();
+        assertEquals(RerollTable.EMPTY_KEEP, dice.getKeepId(0));
+        assertThrows(IllegalArgumentException.class, () -> dice.getKeepId(1));
+        assertThrows(IllegalArgumentException.class,
+                () -> RerollTable.keepId(PackedDice.EMPTY, NUM_MASKS - 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> RerollTable.probability(PackedDice.EMPTY, 1 << 4, 0));
+    }
+}
@@ -0,0 +1,196 @@
+package tleibert.yahtzee.scores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks a {@link HighScoreStore} against brute force: every result added
+ * is also kept in a list, and the places, the best results and the
+ * percentiles the store gives are compared with those of the sorted list
+ * as results are added, the store is reopened and its index rewritten.
+ *
+ * @author Trevor Leibert
+ */
+public class HighScoreStoreTest {
+
+    /** results added between checks */
+    private static final int BATCH = 7000;
+
+    /** number of best results compared */
+    private static final int TOP = 500;
+
+    /** number of random places compared */
+    private static final int PLACES = 300;
+
+    /** fractions whose percentiles are compared */
+    private static final double[] FRACTIONS = {0, 0.001, 0.1, 0.25, 0.5, 0.9, 0.99, 0.999, 1};
+
+    /** directory of the store */
+    @TempDir
+    Path directory;
+
+    /** score of every result added, by record number */
+    private final List<Integer> scores = new ArrayList<>();
+
+    /** game id of every result added, by record number */
+    private final List<Long> gameIds = new ArrayList<>();
+
+    /** chooses the results and the places compared */
+    private final SplittableRandom random = new SplittableRandom(2024);
+
+    /**
+     * Adds results with background compactions running, and checks after
+     * every batch, after reopening, and after a forced compaction.
+     * @throws IOException if the store cannot be opened
+     */
+    @Test
+    public void matchesBruteForceWithCompactions() throws IOException {
+        try (HighScoreStore store = new HighScoreStore(directory, 1000)) {
+            for (int batch = 0; batch < 3; batch++) {
+                addResults(store);
+                check(store);
+            }
+        }
+        try (HighScoreStore store = new HighScoreStore(directory, 1000)) {
+            check(store);
+            addResults(store);
+            store.compact();
+            assertEquals(store.size(), store.getIndexed());
+            check(store);
+        }
+        try (HighScoreStore store = new HighScoreStore(directory, 1000)) {
+            check(store);
+        }
+    }
+
+    /**
+     * Keeps most results past the end of the index, so queries have to
+     * merge the index with the chains of newer results.
+     * @throws IOException if the store cannot be opened
+     */
+    @Test
+    public void mergesIndexWithChains() throws IOException {
+        try (HighScoreStore store = new HighScoreStore(directory, Integer.MAX_VALUE)) {
+            addResults(store);
+            check(store);
+            store.compact();
+            addResults(store);
+            addResults(store);
+            assertTrue(store.getIndexed() < store.size());
+            check(store);
+        }
+        try (HighScoreStore store = new HighScoreStore(directory, Integer.MAX_VALUE)) {
+            check(store);
+        }
+    }
+
+    /**
+     * Adds a batch of results, mostly as whole games under ids the store
+     * assigns, and some one at a time under given ids.
+     * @param store the store
+     */
+    private void addResults(HighScoreStore store) {
+        int added = 0;
+        while (added < BATCH) {
+            if (random.nextInt(4) == 0) {
+                int score = randomScore();
+                long gameId = random.nextLong(1_000_000);
+                long record = store.record(gameId, 0, score, 0, 1, 1);
+                assertEquals(scores.size(), record);
+                scores.add(score);
+                gameIds.add(gameId);
+                added++;
+            } else {
+                int players = 1 + random.nextInt(4);
+                int[] gameScores = new int[players];
+                int[] ranks = new int[players];
+                for (int player = 0; player < players; player++) {
+                    gameScores[player] = randomScore();
+                }
+                for (int player = 0; player < players; player++) {
+                    ranks[player] = 1;
+                    for (int other = 0; other < players; other++) {
+                        if (gameScores[other] > gameScores[player]) {
+                            ranks[player]++;
+                        }
+                    }
+                }
+                long expectedId = gameIds.isEmpty() ? 0 : gameIds.get(gameIds.size() - 1) + 1;
+                assertEquals(expectedId, store.recordGame(gameScores, ranks));
+                for (int score : gameScores) {
+                    scores.add(score);
+                    gameIds.add(expectedId);
+                }
+                added += players;
+            }
+        }
+    }
+
+    /**
+     * Returns a score, with many ties and a few high scores.
+     * @return the score
+     */
+    private int randomScore() {
+        if (random.nextInt(100) == 0) {
+            return random.nextInt(HighScoreStore.MAX_SCORE + 1);
+        }
+        return 100 + random.nextInt(250);
+    }
+
+    /**
+     * Compares the store with the results added.
+     * @param store the store
+     */
+    private void check(HighScoreStore store) {
+        int n = scores.size();
+        assertEquals(n, store.size());
+        List<Integer> order = new ArrayList<>();
+        for (int record = 0; record < n; record++) {
+            order.add(record);
+        }
+        order.sort(Comparator.<Integer>comparingInt(record -> -scores.get(record))
+                .thenComparingInt(record -> record));
+
+        List<HighScore> top = store.top(TOP);
+        assertEquals(Math.min(TOP, n), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals((long) order.get(i), top.get(i).getRecordNumber(), "place " + (i + 1));
+            assertEquals((int) scores.get(order.get(i)), top.get(i).getScore());
+            assertEquals((long) gameIds.get(order.get(i)), top.get(i).getGameId());
+        }
+
+        for (int i = 0; i < PLACES; i++) {
+            int place = 1 + random.nextInt(n);
+            assertEquals((long) order.get(place - 1), store.getAt(place).getRecordNumber(), "place " + place);
+        }
+
+        int[] counts = new int[HighScoreStore.MAX_SCORE + 1];
+        for (int score : scores) {
+            counts[score]++;
+        }
+        long below = 0;
+        for (int score = 0; score <= HighScoreStore.MAX_SCORE; score++) {
+            assertEquals(counts[score], store.getCount(score));
+            assertEquals(n - below - counts[score] + 1, store.getPlace(score));
+            assertEquals((double) below / n, store.getFractionBelow(score), 1e-12);
+            below += counts[score];
+        }
+
+        List<Integer> sorted = new ArrayList<>(scores);
+        sorted.sort(null);
+        for (double fraction : FRACTIONS) {
+            int target = (int) Math.max(1, Math.ceil(fraction * n));
+            assertEquals((int) sorted.get(target - 1), store.getPercentile(fraction), "fraction " + fraction);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package tleibert.yahtzee.session;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tleibert.yahtzee.model.ScoreCard;
+import tleibert.yahtzee.model.YahtzeeGame;
+
+/**
+ * Plays seeded games through a {@link SessionCache} too small to hold
+ * them all, so they are spilled and read back over and over, and checks
+ * after every move that each matches the same game played outside the
+ * cache.
+ *
+ * @author Trevor Leibert
+ */
+public class SessionCacheTest {
+
+    /** number of games kept in memory */
+    private static final int CAPACITY = 8;
+
+    /** number of games played */
+    private static final int GAMES = 100;
+
+    /** number of moves played in all */
+    private static final int MOVES = 40_000;
+
+    /** longest wait for the sweep to catch up, in milliseconds */
+    private static final long SETTLE_MILLIS = 10_000;
+
+    /** directory of the spill file */
+    @TempDir
+    Path directory;
+
+    /** chooses the games and the moves */
+    private final SplittableRandom random = new SplittableRandom(11);
+
+    /**
+     * Plays random moves, some of them illegal, in the cached games and in
+     * games outside the cache, and compares them after each.
+     * @throws IOException if the spill file cannot be made
+     * @throws InterruptedException if interrupted while waiting for the sweep
+     */
+    @Test
+    public void spilledGamesMatchUncachedGames() throws IOException, InterruptedException {
+        try (SessionCache cache = new SessionCache(directory.resolve("spill.bin"), CAPACITY)) {
+            long[] ids = new long[GAMES];
+            YahtzeeGame[] games = new YahtzeeGame[GAMES];
+            for (int i = 0; i < GAMES; i++) {
+                startGame(cache, ids, games, i);
+            }
+            for (int move = 0; move < MOVES; move++) {
+                int i = random.nextInt(GAMES);
+                YahtzeeGame game = games[i];
+                int rolls = game.getNumRolls();
+                if (random.nextInt(10) == 0 && rolls > 0) {
+                    // an illegal move throws in the cache just as outside it
+                    int keepMask = random.nextInt(1 << 5);
+                    if (rolls == YahtzeeGame.MAX_ROLLS) {
+                        assertThrows(IllegalStateException.class, () -> game.rollDice(keepMask));
+                        assertThrows(IllegalStateException.class,
+                                () -> cache.apply(ids[i], g -> roll(g, keepMask)));
+                    } else {
+                        int used = usedType(game);
+                        if (used >= 0) {
+                            assertThrows(IllegalArgumentException.class, () -> game.scoreTurn(used));
+                            assertThrows(IllegalArgumentException.class,
+                                    () -> cache.apply(ids[i], g -> g.scoreTurn(used)));
+                        }
+                    }
+                } else if (rolls == 0 || rolls < YahtzeeGame.MAX_ROLLS && random.nextBoolean()) {
+                    int keepMask = random.nextInt(1 << 5);
+                    game.rollDice(keepMask);
+                    assertEquals(game.getDiceBlock().getPacked(),
+                            (long) cache.apply(ids[i], g -> roll(g, keepMask)));
+                } else {
+                    int type = openType(game);
+                    int points = game.scoreTurn(type);
+                    assertEquals(points, (int) cache.apply(ids[i], g -> g.scoreTurn(type)));
+                }
+                assertArrayEquals(describe(game), cache.read(ids[i], SessionCacheTest::describe));
+                if (game.getIsOver()) {
+                    cache.remove(ids[i]);
+                    startGame(cache, ids, games, i);
+                }
+            }
+            assertTrue(cache.getFaults() > MOVES / 20, "faults: " + cache.getFaults());
+            assertTrue(cache.getEvictions() > MOVES / 20, "evictions: " + cache.getEvictions());
+            settle(cache);
+        }
+    }
+
+    /**
+     * Plays every game with a move that throws, round after round. A game
+     * read back for a move that throws must still be counted and spilled
+     * again, so every round reads back every game that was spilled.
+     * @throws IOException if the spill file cannot be made
+     * @throws InterruptedException if interrupted while waiting for the sweep
+     */
+    @Test
+    public void throwingMovesKeepGamesSpillable() throws IOException, InterruptedException {
+        int rounds = 10;
+        try (SessionCache cache = new SessionCache(directory.resolve("spill.bin"), CAPACITY)) {
+            long[] ids = new long[GAMES];
+            for (int i = 0; i < GAMES; i++) {
+                ids[i] = cache.newGame(YahtzeeGame.MIN_PLAYERS, i);
+            }
+            for (int round = 0; round < rounds; round++) {
+                settle(cache);
+                for (long id : ids) {
+                    assertThrows(IllegalStateException.class, () -> cache.apply(id, g -> g.scoreTurn(0)));
+                }
+            }
+            settle(cache);
+            assertTrue(cache.getFaults() >= (long) rounds * (GAMES - CAPACITY), "faults: " + cache.getFaults());
+        }
+    }
+
+    /**
+     * Starts game i, in the cache and outside it.
+     * @param cache the cache
+     * @param ids id of each game in the cache
+     * @param games each game outside the cache
+     * @param i index of the game
+     */
+    private void startGame(SessionCache cache, long[] ids, YahtzeeGame[] games, int i) {
+        int players = YahtzeeGame.MIN_PLAYERS + random.nextInt(YahtzeeGame.MAX_PLAYERS - 1);
+        long seed = random.nextLong();
+        ids[i] = cache.newGame(players, seed);
+        games[i] = new YahtzeeGame(players, seed);
+    }
+
+    /**
+     * Waits for the sweep to bring the games in memory down to the capacity.
+     * @param cache the cache
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void settle(SessionCache cache) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETTLE_MILLIS;
+        while (cache.getResident() > cache.getCapacity() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(cache.getResident() <= cache.getCapacity(), "resident: " + cache.getResident());
+    }
+
+    /**
+     * Rolls the dice of a game.
+     * @param game the game
+     * @param keepMask dice to keep
+     * @return the dice afterwards
+     */
+    private static long roll(YahtzeeGame game, int keepMask) {
+        game.rollDice(keepMask);
+        return game.getDiceBlock().getPacked();
+    }
+
+    /**
+     * Returns a random scoring type the current player can still score.
+     * @param game the game
+     * @return the scoring type
+     */
+    private int openType(YahtzeeGame game) {
+        int types = YahtzeeGame.SCORING_TYPES.length;
+        int start = random.nextInt(types);
+        for (int i = 0; i < types; i++) {
+            int type = (start + i) % types;
+            if (game.isOpen(type)) {
+                return type;
+            }
+        }
+        throw new AssertionError("No open scoring type");
+    }
+
+    /**
+     * Returns a scoring type the current player can no longer score.
+     * @param game the game
+     * @return the scoring type, or -1 if every type is open
+     */
+    private static int usedType(YahtzeeGame game) {
+        for (int type = 0; type < YahtzeeGame.SCORING_TYPES.length; type++) {
+            if (!game.isOpen(type)) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lists everything a move can change in a game.
+     * @param game the game
+     * @return the dice, the player to move, the rolls and turns taken,
+     *         whether it is over, and each player's card
+     */
+    private static long[] describe(YahtzeeGame game) {
+        ScoreCard[] cards = game.getScoreCards();
+        long[] state = new long[5 + cards.length];
+        state[0] = game.getDiceBlock().getPacked();
+        state[1] = game.getSelectedPlayer();
+        state[2] = game.getNumRolls();
+        state[3] = game.getNumTurns();
+        state[4] = game.getIsOver() ? 1 : 0;
+        for (int player = 0; player < cards.length; player++) {
+            state[5 + player] = cards[player].pack();
+        }
+        return state;
+    }
+}